@@ -0,0 +1,98 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.util.Utility;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Packing and unpacking a BPEL archive with {@link Utility#zipIt(String, String, List)} and
+ * {@link Utility#unZipIt(String, String)}. The archive holds a generated server profile and deployment descriptor,
+ * and the given number of WSDL files of about 8 KB, as BPEL packages usually carry the WSDLs of their partners.
+ */
+@State(Scope.Benchmark)
+public class ArchiveBenchmark extends MigrationBenchmark {
+
+    private static final String BPEL_PACKAGE = "wso2/business-process/repository/bpel/-1234/bpel-package-6-1";
+    private static final int WSDL_SIZE = 8 * 1024;
+
+    @Param({"4", "32"})
+    public int wsdlFiles;
+
+    private File directory;
+    private String sourceFolder;
+    private List<String> files;
+    private String archive;
+    private String extractedFolder;
+
+    @Setup
+    public void setUp() throws MigrationClientException, IOException {
+        directory = Files.createTempDirectory("archive-benchmark").toFile();
+        File source = new File(directory, "Process");
+        Files.createDirectories(source.toPath());
+        File bpelPackage = BenchmarkData.getFile(BPEL_PACKAGE);
+        for (String name : new String[]{"serverprofile.xml", "deploy.xml"}) {
+            Files.copy(new File(bpelPackage, name).toPath(), new File(source, name).toPath());
+        }
+        for (int i = 0; i < wsdlFiles; i++) {
+            Files.write(new File(source, "Partner" + i + ".wsdl").toPath(), wsdl(i));
+        }
+        sourceFolder = source.getAbsolutePath();
+        files = Utility.generateFileList(sourceFolder);
+        archive = new File(directory, "Process.zip").getAbsolutePath();
+        Utility.zipIt(sourceFolder, archive, files);
+        extractedFolder = new File(directory, "Extracted_Process").getAbsolutePath();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Utility.delete(directory);
+    }
+
+    @Benchmark
+    public void zipIt() throws MigrationClientException {
+        Utility.zipIt(sourceFolder, archive, files);
+    }
+
+    @Benchmark
+    public void unZipIt() throws MigrationClientException {
+        Utility.unZipIt(archive, extractedFolder);
+    }
+
+    private static byte[] wsdl(int index) {
+        StringBuilder wsdl = new StringBuilder(WSDL_SIZE + 256);
+        wsdl.append("<wsdl:definitions xmlns:wsdl=\"http://schemas.xmlsoap.org/wsdl/\" ")
+                .append("xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"http://example.com/partner")
+                .append(index).append("\">\n<wsdl:types>\n<xsd:schema>\n");
+        for (int i = 0; wsdl.length() < WSDL_SIZE; i++) {
+            wsdl.append("<xsd:element name=\"field").append(i).append("\" type=\"xsd:string\"/>\n");
+        }
+        wsdl.append("</xsd:schema>\n</wsdl:types>\n</wsdl:definitions>\n");
+        return wsdl.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.benchmark;
+
+import org.wso2.carbon.core.util.CryptoException;
+import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.service.crypto.CipherEngine;
+import org.wso2.carbon.ei.migration.service.crypto.SoftwareCryptoProvider;
+import org.wso2.carbon.ei.migration.testkit.DatasetGenerator;
+import org.wso2.carbon.ei.migration.util.Constant;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Input of the benchmarks: the super tenant files of a generated data set, encrypted with a software crypto provider.
+ * The data set is generated once per benchmark JVM.
+ */
+public final class BenchmarkData {
+
+    private static File carbonHome;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return carbon.home of the generated data set
+     * @throws MigrationClientException if the data set can not be generated
+     */
+    public static synchronized File getCarbonHome() throws MigrationClientException {
+        if (carbonHome == null) {
+            try {
+                CipherEngine.getInstance().setProvider(new SoftwareCryptoProvider());
+                File directory = Files.createTempDirectory("migration-benchmark").toFile();
+                DatasetGenerator generator = new DatasetGenerator();
+                generator.setTenants(0);
+                generator.setFilesPerTenant(20);
+                generator.generate(directory, null, null);
+                System.setProperty(Constant.CARBON_HOME, directory.getAbsolutePath());
+                carbonHome = directory;
+            } catch (CryptoException | IOException e) {
+                throw new MigrationClientException("Unable to generate the benchmark data", e);
+            }
+        }
+        return carbonHome;
+    }
+
+    /**
+     * @param path path of a generated file, relative to carbon.home
+     * @return content of the file
+     * @throws MigrationClientException if the file can not be read
+     */
+    public static byte[] read(String path) throws MigrationClientException {
+        File file = getFile(path);
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new MigrationClientException("Unable to read the benchmark file " + file, e);
+        }
+    }
+
+    /**
+     * @param path path of a generated file or folder, relative to carbon.home
+     * @return the file
+     */
+    public static File getFile(String path) throws MigrationClientException {
+        return new File(getCarbonHome(), path);
+    }
+
+    /**
+     * @param document name of a generated document, i.e. user-store, api, proxy-service, sequence or template
+     * @return path of the first super tenant file of the document, relative to carbon.home
+     */
+    public static String getDocumentPath(String document) {
+        String deployment = Constant.SUPER_TENANT_DEPLOYMENT_PATH + "/";
+        switch (document) {
+            case "user-store":
+                return deployment + "userstores/USER-STORE-0.xml";
+            case "api":
+                return deployment + "synapse-configs/default/api/api-1.xml";
+            case "proxy-service":
+                return deployment + "synapse-configs/default/proxy-services/proxy-service-2.xml";
+            case "sequence":
+                return deployment + "synapse-configs/default/sequences/sequence-3.xml";
+            case "template":
+                return deployment + "synapse-configs/default/templates/template-4.xml";
+            default:
+                throw new IllegalArgumentException("Unknown document " + document);
+        }
+    }
+}
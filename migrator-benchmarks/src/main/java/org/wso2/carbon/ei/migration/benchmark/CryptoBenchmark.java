@@ -0,0 +1,83 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.wso2.carbon.core.util.CryptoException;
+import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.service.crypto.CipherEngine;
+import org.wso2.carbon.ei.migration.service.crypto.CipherTextClassifier;
+import org.wso2.carbon.ei.migration.service.crypto.CryptoProvider;
+import org.wso2.carbon.ei.migration.service.crypto.ReEncryptionCache;
+import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.ei.migration.util.Utility;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Re-encryption of a single value through {@link Utility#getNewEncryptedValue(String)}, with and without the
+ * re-encryption cache, and the structural classification deciding whether a value is decrypted at all.
+ */
+@State(Scope.Benchmark)
+public class CryptoBenchmark extends MigrationBenchmark {
+
+    @Param({"true", "false"})
+    public String cache;
+
+    private String legacyValue;
+    private String migratedValue;
+    private int modulusLength;
+
+    @Setup
+    public void setUp() throws MigrationClientException, CryptoException {
+        BenchmarkData.getCarbonHome();
+        CryptoProvider provider = CipherEngine.getInstance().getProvider();
+        legacyValue = provider.encryptLegacy("admin".getBytes(StandardCharsets.UTF_8));
+        migratedValue = provider.encrypt("admin".getBytes(StandardCharsets.UTF_8));
+        modulusLength = provider.getModulusLength();
+        System.setProperty(Constant.CACHE_ENABLED, cache);
+        ReEncryptionCache.getInstance().reset();
+    }
+
+    @Benchmark
+    public String getNewEncryptedValueOfLegacy() throws CryptoException {
+        return Utility.getNewEncryptedValue(legacyValue);
+    }
+
+    @Benchmark
+    public String getNewEncryptedValueOfMigrated() throws CryptoException {
+        return Utility.getNewEncryptedValue(migratedValue);
+    }
+
+    @Benchmark
+    public CipherTextClassifier.Shape classifyLegacy() {
+        return CipherTextClassifier.classify(legacyValue, modulusLength);
+    }
+
+    @Benchmark
+    public CipherTextClassifier.Shape classifyMigrated() {
+        return CipherTextClassifier.classify(migratedValue, modulusLength);
+    }
+
+    @Benchmark
+    public CipherTextClassifier.Shape classifyPlainText() {
+        return CipherTextClassifier.classify("admin", modulusLength);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.core.util.CryptoException;
+import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.service.crypto.CipherEngine;
+import org.wso2.carbon.ei.migration.service.dao.EventSinkDAO;
+import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.event.sink.EventSink;
+import org.wso2.carbon.event.sink.EventSinkException;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.wso2.carbon.base.MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+
+/**
+ * Building, formatting and writing an event sink with {@link EventSinkDAO#writeEventSink(EventSink)}. The state is
+ * per thread, so the event sink is written within the super tenant flow started by the setup.
+ */
+@State(Scope.Thread)
+public class EventSinkBenchmark extends MigrationBenchmark {
+
+    private EventSink eventSink;
+
+    @Setup
+    public void setUp() throws MigrationClientException, CryptoException {
+        BenchmarkData.getCarbonHome();
+        PrivilegedCarbonContext.startTenantFlow();
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        carbonContext.setTenantId(Constant.SUPER_TENANT_ID);
+        carbonContext.setTenantDomain(SUPER_TENANT_DOMAIN_NAME);
+        String password = CipherEngine.getInstance().getProvider().encrypt("admin".getBytes(StandardCharsets.UTF_8));
+        eventSink = new EventSink("benchmark-sink", "admin", password, "tcp://localhost:7611",
+                "ssl://localhost:7711");
+    }
+
+    @TearDown
+    public void tearDown() {
+        PrivilegedCarbonContext.endTenantFlow();
+    }
+
+    @Benchmark
+    public boolean writeEventSink() throws EventSinkException {
+        return EventSinkDAO.getInstance().writeEventSink(eventSink);
+    }
+}
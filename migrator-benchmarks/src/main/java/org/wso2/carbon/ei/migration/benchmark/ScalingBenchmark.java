@@ -0,0 +1,222 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.benchmark;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONObject;
+import org.wso2.carbon.core.util.CryptoException;
+import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.MigrationClientImpl;
+import org.wso2.carbon.ei.migration.service.MigrationReport;
+import org.wso2.carbon.ei.migration.service.crypto.CipherEngine;
+import org.wso2.carbon.ei.migration.service.crypto.SoftwareCryptoProvider;
+import org.wso2.carbon.ei.migration.service.execution.FixedThreadPoolExecutionStrategy;
+import org.wso2.carbon.ei.migration.testkit.DatasetGenerator;
+import org.wso2.carbon.ei.migration.testkit.InMemoryRealmService;
+import org.wso2.carbon.ei.migration.testkit.InMemoryRegistryService;
+import org.wso2.carbon.ei.migration.testkit.LatencyProfile;
+import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.ei.migration.util.Utility;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * End to end scaling benchmark. Runs the complete {@link MigrationClientImpl} flow against the in-memory registry and
+ * realm services and a generated data set, for every combination of the configured I/O execution strategies, tenant
+ * counts and thread counts. A fresh data set is generated for each run, as a run migrates the data in place.
+ * <p>
+ * Migrators are executed one after the other, so the duration of a migrator is not affected by the others. The
+ * thread count is used for both the I/O and the CPU bound work. Each run adds a row per migrator, and a row of the
+ * whole run named "total", to a CSV file with the columns strategy, tenants, threads, migrator, status,
+ * durationMillis, scanned, migrated, failed, itemsPerSecond, valuesPerSecond and speedup.
+ * The speedup is relative to the first thread count of the same strategy, tenant count and migrator. Configured with
+ * the system properties:
+ * <ul>
+ * <li>migrate.benchmark.strategies: I/O execution strategies, default fixed</li>
+ * <li>migrate.benchmark.tenants: tenant counts, default 10,100</li>
+ * <li>migrate.benchmark.threads: thread counts, default 1,2,4,8</li>
+ * <li>migrate.benchmark.filesPerTenant and migrate.benchmark.registryResourcesPerTenant: size of a tenant,
+ * default 20 and 8</li>
+ * <li>migrate.benchmark.output: CSV file, default scaling.csv</li>
+ * <li>migrate.testkit.readLatencyMicros and migrate.testkit.writeLatencyMicros: registry latency, default none</li>
+ * </ul>
+ */
+public final class ScalingBenchmark {
+
+    private static final Log log = LogFactory.getLog(ScalingBenchmark.class);
+
+    public static final String STRATEGIES = "migrate.benchmark.strategies";
+    public static final String TENANTS = "migrate.benchmark.tenants";
+    public static final String THREADS = "migrate.benchmark.threads";
+    public static final String FILES_PER_TENANT = "migrate.benchmark.filesPerTenant";
+    public static final String REGISTRY_RESOURCES_PER_TENANT = "migrate.benchmark.registryResourcesPerTenant";
+    public static final String OUTPUT = "migrate.benchmark.output";
+
+    private static final String TOTAL = "total";
+    private static final String HEADER = "strategy,tenants,threads,migrator,status,durationMillis,scanned,migrated,"
+            + "failed,itemsPerSecond,valuesPerSecond,speedup";
+
+    private final Map<String, Long> baselines = new HashMap<>();
+
+    private ScalingBenchmark() {
+    }
+
+    public static void main(String[] args) throws MigrationClientException, CryptoException, IOException {
+        CipherEngine.getInstance().setProvider(new SoftwareCryptoProvider());
+        List<String> strategies = getList(STRATEGIES, FixedThreadPoolExecutionStrategy.NAME);
+        List<Integer> tenantCounts = toIntegers(getList(TENANTS, "10,100"));
+        List<Integer> threadCounts = toIntegers(getList(THREADS, "1,2,4,8"));
+        File output = new File(System.getProperty(OUTPUT, "scaling.csv"));
+
+        ScalingBenchmark benchmark = new ScalingBenchmark();
+        // A discarded run, so the first measured run does not include class loading and JIT compilation.
+        benchmark.run(strategies.get(0), tenantCounts.get(0), threadCounts.get(0));
+
+        Writer writer = new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8);
+        try {
+            writer.write(HEADER + "\n");
+            for (String strategy : strategies) {
+                for (int tenants : tenantCounts) {
+                    for (int threads : threadCounts) {
+                        for (String row : benchmark.toRows(strategy, tenants, threads,
+                                benchmark.run(strategy, tenants, threads))) {
+                            writer.write(row + "\n");
+                        }
+                        // Rows of the completed runs are kept if the sweep is interrupted.
+                        writer.flush();
+                    }
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        log.info(Constant.MIGRATION_LOG + "Scaling curve written to " + output.getAbsolutePath());
+    }
+
+    /**
+     * Generate a data set and migrate it.
+     *
+     * @return report of the migration
+     */
+    private JSONObject run(String strategy, int tenants, int threads) throws MigrationClientException, IOException {
+        File carbonHome = Files.createTempDirectory("migration-scaling").toFile();
+        try {
+            System.setProperty(Constant.CARBON_HOME, carbonHome.getAbsolutePath());
+            LatencyProfile latency = LatencyProfile.fromSystemProperties();
+            InMemoryRegistryService registryService = new InMemoryRegistryService(latency).install();
+            InMemoryRealmService realmService = new InMemoryRealmService(latency).install();
+            DatasetGenerator generator = new DatasetGenerator();
+            generator.setTenants(tenants);
+            generator.setFilesPerTenant(Utility.getIntProperty(FILES_PER_TENANT, 20));
+            generator.setRegistryResourcesPerTenant(Utility.getIntProperty(REGISTRY_RESOURCES_PER_TENANT, 8));
+            generator.generate(carbonHome, registryService, realmService);
+
+            System.setProperty(Constant.MIGRATOR_THREADS, "1");
+            System.setProperty(Constant.IO_STRATEGY, strategy);
+            System.setProperty(Constant.IO_THREADS, String.valueOf(threads));
+            System.setProperty(Constant.CPU_THREADS, String.valueOf(threads));
+            System.setProperty(Constant.RESUME, "false");
+            System.clearProperty(Constant.DRY_RUN);
+            System.gc();
+            log.info(Constant.MIGRATION_LOG + "Migrating " + tenants + " tenants with " + threads + " threads, "
+                    + strategy + " strategy, registry latency " + latency);
+            new MigrationClientImpl().execute();
+            return MigrationReport.getInstance().toJSON(MigrationReport.Status.COMPLETED, false);
+        } finally {
+            Utility.delete(carbonHome);
+        }
+    }
+
+    private List<String> toRows(String strategy, int tenants, int threads, JSONObject report) {
+        List<String> rows = new ArrayList<>();
+        JSONObject migrators = report.getJSONObject("migrators");
+        JSONObject counters = report.getJSONObject("metrics").getJSONObject("migrators");
+        long scannedTotal = 0;
+        long migratedTotal = 0;
+        long failedTotal = 0;
+        for (Iterator<?> it = migrators.keys(); it.hasNext(); ) {
+            String migrator = (String) it.next();
+            JSONObject migratorReport = migrators.getJSONObject(migrator);
+            long scanned = 0;
+            long failed = 0;
+            JSONObject tenantReports = migratorReport.optJSONObject("tenants");
+            if (tenantReports != null) {
+                for (Iterator<?> tenantIt = tenantReports.keys(); tenantIt.hasNext(); ) {
+                    JSONObject tenantReport = tenantReports.getJSONObject((String) tenantIt.next());
+                    scanned += tenantReport.getLong("scanned");
+                    failed += tenantReport.getLong("failed");
+                }
+            }
+            JSONObject migratorCounters = counters.optJSONObject(migrator);
+            long migrated = migratorCounters != null ? migratorCounters.getLong("valuesReEncrypted") : 0;
+            rows.add(toRow(strategy, tenants, threads, migrator, migratorReport.getString("status"),
+                    migratorReport.getLong("durationMillis"), scanned, migrated, failed));
+            scannedTotal += scanned;
+            migratedTotal += migrated;
+            failedTotal += failed;
+        }
+        rows.add(toRow(strategy, tenants, threads, TOTAL, report.getString("status"),
+                report.getLong("durationMillis"), scannedTotal, migratedTotal, failedTotal));
+        return rows;
+    }
+
+    private String toRow(String strategy, int tenants, int threads, String migrator, String status,
+                         long durationMillis, long scanned, long migrated, long failed) {
+        String key = strategy + ":" + tenants + ":" + migrator;
+        Long baseline = baselines.get(key);
+        if (baseline == null) {
+            baseline = durationMillis;
+            baselines.put(key, baseline);
+        }
+        double seconds = Math.max(durationMillis, 1) / 1000.0;
+        // The root locale keeps the decimal separator of the CSV a dot.
+        return strategy + "," + tenants + "," + threads + "," + migrator + "," + status + "," + durationMillis + ","
+                + scanned + "," + migrated + "," + failed + ","
+                + String.format(Locale.ROOT, "%.1f,%.1f,%.2f", scanned / seconds, migrated / seconds,
+                (double) Math.max(baseline, 1) / Math.max(durationMillis, 1));
+    }
+
+    private static List<String> getList(String property, String defaultValue) {
+        List<String> values = new ArrayList<>(Utility.getListProperty(property));
+        if (values.isEmpty()) {
+            for (String value : defaultValue.split(",")) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    private static List<Integer> toIntegers(List<String> values) {
+        List<Integer> integers = new ArrayList<>(values.size());
+        for (String value : values) {
+            integers.add(Integer.parseInt(value));
+        }
+        return integers;
+    }
+}
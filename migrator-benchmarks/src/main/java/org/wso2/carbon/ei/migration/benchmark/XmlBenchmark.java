@@ -0,0 +1,73 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.benchmark;
+
+import org.apache.axiom.om.OMElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.wso2.carbon.core.util.CryptoException;
+import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.service.crypto.ReEncryptionService;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.ResourceType;
+import org.wso2.carbon.ei.migration.util.StreamingXmlRewriter;
+import org.wso2.carbon.ei.migration.util.Utility;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+
+/**
+ * Parsing a document into an OM tree with {@link Utility#toOM(byte[], ResourceType)}, and serializing it back, for
+ * the user store and synapse configuration files. The round trip is compared with a streaming copy of the document
+ * by a {@link StreamingXmlRewriter} without rules.
+ */
+@State(Scope.Benchmark)
+public class XmlBenchmark extends MigrationBenchmark {
+
+    @Param({"user-store", "api", "proxy-service", "sequence", "template"})
+    public String document;
+
+    private static final StreamingXmlRewriter COPY = new StreamingXmlRewriter();
+
+    private byte[] content;
+
+    @Setup
+    public void setUp() throws MigrationClientException {
+        content = BenchmarkData.read(BenchmarkData.getDocumentPath(document));
+    }
+
+    @Benchmark
+    public OMElement toOM() throws XMLStreamException {
+        return Utility.toOM(content, ResourceType.FILE);
+    }
+
+    @Benchmark
+    public byte[] toOMAndSerialize() throws XMLStreamException {
+        return Utility.serialize(Utility.toOM(content, ResourceType.FILE), ResourceType.FILE);
+    }
+
+    @Benchmark
+    public byte[] streamingCopy() throws XMLStreamException, CryptoException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(content.length);
+        COPY.rewrite(new ByteArrayInputStream(content), outputStream,
+                ReEncryptionService.getInstance().submit(Collections.<String>emptyList()));
+        return outputStream.toByteArray();
+    }
+}
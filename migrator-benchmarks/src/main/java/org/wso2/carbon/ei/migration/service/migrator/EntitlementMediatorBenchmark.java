@@ -0,0 +1,66 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.migrator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.wso2.carbon.core.util.CryptoException;
+import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.benchmark.BenchmarkData;
+import org.wso2.carbon.ei.migration.benchmark.MigrationBenchmark;
+import org.wso2.carbon.ei.migration.service.crypto.ReEncryptionCache;
+import org.wso2.carbon.ei.migration.service.crypto.ReEncryptionService;
+import org.wso2.carbon.ei.migration.util.Constant;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Searching a synapse configuration for entitlement mediators and re-encrypting their passwords with the streaming
+ * rewriter of {@link EntitlementMediatorMigrator}, in memory. The benchmark is in the package of the migrator to reach
+ * the package private rewriter. The document is not modified, so every invocation migrates the same passwords.
+ */
+@State(Scope.Thread)
+public class EntitlementMediatorBenchmark extends MigrationBenchmark {
+
+    @Param({"api", "proxy-service", "sequence", "template"})
+    public String document;
+
+    @Param({"true", "false"})
+    public String cache;
+
+    private byte[] content;
+
+    @Setup
+    public void setUp() throws MigrationClientException {
+        content = BenchmarkData.read(BenchmarkData.getDocumentPath(document));
+        System.setProperty(Constant.CACHE_ENABLED, cache);
+        ReEncryptionCache.getInstance().reset();
+    }
+
+    @Benchmark
+    public byte[] rewrite() throws XMLStreamException, CryptoException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(content.length);
+        EntitlementMediatorMigrator.REWRITER.rewrite(new ByteArrayInputStream(content), outputStream,
+                ReEncryptionService.getInstance().submit(
+                        EntitlementMediatorMigrator.REWRITER.scan(new ByteArrayInputStream(content))));
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,630 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.testkit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.analytics.common.jmx.agent.profiles.Profile;
+import org.wso2.carbon.core.util.CryptoException;
+import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.service.crypto.CipherEngine;
+import org.wso2.carbon.ei.migration.service.crypto.CryptoProvider;
+import org.wso2.carbon.ei.migration.testkit.InMemoryRegistryService.RegistryType;
+import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.ndatasource.common.DataSourceConstants;
+import org.wso2.carbon.registry.core.ResourceImpl;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.wso2.carbon.base.MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+
+/**
+ * Generates a synthetic Carbon server to migrate: a carbon.home with the files of each migrator and the matching
+ * registry resources in an {@link InMemoryRegistryService}. Every secret is a legacy RSA cipher text of the given
+ * crypto provider, so the same provider has to be used to migrate the generated data.
+ * <p>
+ * The super tenant and the tenants 1 to N get the configured number of files and registry resources, spread round
+ * robin over the resource kinds:
+ * <ul>
+ * <li>files: secondary user stores, synapse APIs, proxy services, sequences and templates with entitlement mediators,
+ * BPEL archives and deployed BPEL packages with server profiles. The super tenant also gets event sinks, event
+ * publishers and event receivers.</li>
+ * <li>registry resources: key stores, STS policies, data sources and JMX agent profiles. Each tenant also gets the
+ * SYSLOG properties.</li>
+ * </ul>
+ * Data of a tenant is derived from the seed and the tenant id only, so the same configuration always generates the
+ * same data, while the tenants are generated in parallel.
+ */
+public class DatasetGenerator {
+
+    private static final Log log = LogFactory.getLog(DatasetGenerator.class);
+
+    private static final String SYNAPSE_NS = "http://ws.apache.org/ns/synapse";
+    private static final String JMX_PROFILE_PATH = "repository/components/org.wso2.carbon.publish.jmx.agent/";
+    private static final String STS_POLICY_PATH = Constant.SERVICE_GROUPS_PATH + Constant.STS_SERVICE_GROUP
+            + Constant.SECURITY_POLICY_RESOURCE_PATH;
+    private static final String[] BPEL_PATH = {"wso2", "business-process", "repository"};
+
+    private enum FileKind {
+        USER_STORE, API, PROXY_SERVICE, SEQUENCE, TEMPLATE, BPEL_ARCHIVE, BPEL_PACKAGE, EVENT_SINK, EVENT_PUBLISHER,
+        EVENT_RECEIVER
+    }
+
+    private enum RegistryKind {
+        KEY_STORE, STS_POLICY, DATA_SOURCE, JMX_PROFILE
+    }
+
+    private static final FileKind[] TENANT_FILES = {FileKind.USER_STORE, FileKind.API, FileKind.PROXY_SERVICE,
+            FileKind.SEQUENCE, FileKind.TEMPLATE, FileKind.BPEL_ARCHIVE, FileKind.BPEL_PACKAGE};
+    private static final FileKind[] SUPER_TENANT_FILES = FileKind.values();
+
+    private int tenants = 10;
+    private int filesPerTenant = 20;
+    private int registryResourcesPerTenant = 8;
+    private int distinctSecrets = 1000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long seed = 1;
+    private CryptoProvider cryptoProvider;
+
+    private String[] secrets;
+    private JAXBContext profileContext;
+
+    public void setTenants(int tenants) {
+        this.tenants = tenants;
+    }
+
+    public void setFilesPerTenant(int filesPerTenant) {
+        this.filesPerTenant = filesPerTenant;
+    }
+
+    public void setRegistryResourcesPerTenant(int registryResourcesPerTenant) {
+        this.registryResourcesPerTenant = registryResourcesPerTenant;
+    }
+
+    /**
+     * @param distinctSecrets number of distinct plain texts the secrets are drawn from. Zero makes every secret
+     *                        distinct.
+     */
+    public void setDistinctSecrets(int distinctSecrets) {
+        this.distinctSecrets = distinctSecrets;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param cryptoProvider provider encrypting the secrets. The provider of the {@link CipherEngine} is used by
+     *                       default.
+     */
+    public void setCryptoProvider(CryptoProvider cryptoProvider) {
+        this.cryptoProvider = cryptoProvider;
+    }
+
+    /**
+     * Generate the data set.
+     *
+     * @param carbonHome      carbon.home to create the files in
+     * @param registryService registry service to add the registry resources to, or null to only generate the files
+     * @param realmService    realm service to add the tenants to, or null
+     * @return counts of the generated data
+     * @throws MigrationClientException if the data can not be generated
+     */
+    public Summary generate(File carbonHome, InMemoryRegistryService registryService,
+                            InMemoryRealmService realmService) throws MigrationClientException {
+
+        long start = System.nanoTime();
+        if (cryptoProvider == null) {
+            cryptoProvider = CipherEngine.getInstance().getProvider();
+        }
+        try {
+            profileContext = JAXBContext.newInstance(Profile.class);
+        } catch (JAXBException e) {
+            throw new MigrationClientException("Unable to create the JAXB context of the JMX profiles", e);
+        }
+        secrets = new String[Math.max(distinctSecrets, 0)];
+        for (int i = 0; i < secrets.length; i++) {
+            secrets[i] = encrypt("secret-" + i);
+        }
+
+        Summary summary = new Summary();
+        List<Integer> tenantIds = new ArrayList<>(tenants + 1);
+        tenantIds.add(Constant.SUPER_TENANT_ID);
+        for (int tenantId = 1; tenantId <= tenants; tenantId++) {
+            if (realmService != null) {
+                realmService.addTenant(tenantId, getDomain(tenantId));
+            }
+            tenantIds.add(tenantId);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(threads, 1));
+        try {
+            List<Future<Void>> futures = new ArrayList<>(tenantIds.size());
+            for (Integer tenantId : tenantIds) {
+                futures.add(executor.submit(new TenantGenerator(carbonHome, registryService, tenantId, summary)));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationClientException("Data set generation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new MigrationClientException("Unable to generate the data set: " + e.getCause().getMessage(),
+                    e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        summary.nanos = System.nanoTime() - start;
+        log.info(Constant.MIGRATION_LOG + "Generated " + summary + " in " + carbonHome.getAbsolutePath());
+        return summary;
+    }
+
+    private String encrypt(String plainText) throws MigrationClientException {
+        try {
+            return cryptoProvider.encryptLegacy(plainText.getBytes(StandardCharsets.UTF_8));
+        } catch (CryptoException e) {
+            throw new MigrationClientException("Unable to encrypt the generated secrets", e);
+        }
+    }
+
+    private static String getDomain(int tenantId) {
+        if (tenantId == Constant.SUPER_TENANT_ID) {
+            return SUPER_TENANT_DOMAIN_NAME;
+        }
+        return "tenant" + tenantId + ".com";
+    }
+
+    /**
+     * Counts of a generated data set.
+     */
+    public static class Summary {
+
+        private final AtomicLong files = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong registryResources = new AtomicLong();
+        private final AtomicLong secrets = new AtomicLong();
+        private long nanos;
+
+        public long getFiles() {
+            return files.get();
+        }
+
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        public long getRegistryResources() {
+            return registryResources.get();
+        }
+
+        public long getSecrets() {
+            return secrets.get();
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return files + " files (" + bytes + " bytes), " + registryResources + " registry resources and "
+                    + secrets + " secrets";
+        }
+    }
+
+    /**
+     * Generates the data of a tenant.
+     */
+    private class TenantGenerator implements Callable<Void> {
+
+        private final File carbonHome;
+        private final InMemoryRegistryService registryService;
+        private final int tenantId;
+        private final Summary summary;
+        private final Random random;
+
+        private TenantGenerator(File carbonHome, InMemoryRegistryService registryService, int tenantId,
+                                Summary summary) {
+            this.carbonHome = carbonHome;
+            this.registryService = registryService;
+            this.tenantId = tenantId;
+            this.summary = summary;
+            this.random = new Random(seed * 31 + tenantId);
+        }
+
+        @Override
+        public Void call() throws Exception {
+            FileKind[] kinds = tenantId == Constant.SUPER_TENANT_ID ? SUPER_TENANT_FILES : TENANT_FILES;
+            for (int i = 0; i < filesPerTenant; i++) {
+                writeFile(kinds[i % kinds.length], i);
+            }
+            if (registryService != null) {
+                addSysLogProperties();
+                RegistryKind[] registryKinds = RegistryKind.values();
+                for (int i = 0; i < registryResourcesPerTenant; i++) {
+                    addRegistryResource(registryKinds[i % registryKinds.length], i);
+                }
+            }
+            return null;
+        }
+
+        private void writeFile(FileKind kind, int index) throws IOException, MigrationClientException {
+            String name = kind.name().toLowerCase().replace('_', '-') + "-" + index;
+            switch (kind) {
+                case USER_STORE:
+                    write(getDeploymentDirectory("userstores"), name.toUpperCase() + ".xml", userStore(index));
+                    break;
+                case API:
+                    write(getSynapseDirectory("api"), name + ".xml", api(name, index));
+                    break;
+                case PROXY_SERVICE:
+                    write(getSynapseDirectory("proxy-services"), name + ".xml", proxyService(name, index));
+                    break;
+                case SEQUENCE:
+                    write(getSynapseDirectory("sequences"), name + ".xml", sequence(name, index));
+                    break;
+                case TEMPLATE:
+                    write(getSynapseDirectory("templates"), name + ".xml", template(name, index));
+                    break;
+                case BPEL_ARCHIVE:
+                    writeBpelArchive(name);
+                    break;
+                case BPEL_PACKAGE:
+                    writeBpelPackage(name);
+                    break;
+                case EVENT_SINK:
+                    write(getDeploymentDirectory("event-sinks"), name + ".xml", eventSink());
+                    break;
+                case EVENT_PUBLISHER:
+                    write(getDeploymentDirectory("eventpublishers"), name + ".xml", eventPublisher(name));
+                    break;
+                case EVENT_RECEIVER:
+                    write(getDeploymentDirectory("eventreceivers"), name + ".xml", eventReceiver(name));
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown file kind " + kind);
+            }
+        }
+
+        private void addSysLogProperties() throws RegistryException, MigrationClientException {
+            ResourceImpl resource = new ResourceImpl();
+            resource.setProperty("syslogHost", "localhost");
+            resource.setProperty("syslogPort", "514");
+            resource.setProperty("realm", getDomain(tenantId));
+            resource.setProperty("userName", "admin");
+            resource.setProperty(Constant.PASSWORD, nextSecret());
+            put(RegistryType.CONFIG, Constant.SYSLOG, resource);
+        }
+
+        private void addRegistryResource(RegistryKind kind, int index) throws RegistryException,
+                MigrationClientException, JAXBException {
+
+            ResourceImpl resource = new ResourceImpl();
+            switch (kind) {
+                case KEY_STORE:
+                    byte[] keyStore = new byte[2048];
+                    random.nextBytes(keyStore);
+                    resource.setContent(keyStore);
+                    resource.setMediaType("application/vnd.wso2.keystore");
+                    resource.setProperty("type", "JKS");
+                    resource.setProperty("privatekeyAlias", "wso2carbon");
+                    resource.setProperty(Constant.PASSWORD, nextSecret());
+                    resource.setProperty(Constant.PRIVATE_KEY_PASS, nextSecret());
+                    put(RegistryType.GOVERNANCE, Constant.KEYSTORE_RESOURCE_PATH
+                            + getDomain(tenantId).replace('.', '-') + "-" + index + ".jks", resource);
+                    break;
+                case STS_POLICY:
+                    resource.setContent(stsPolicy(index).getBytes(StandardCharsets.UTF_8));
+                    put(RegistryType.CONFIG, STS_POLICY_PATH + "policy-" + index, resource);
+                    break;
+                case DATA_SOURCE:
+                    resource.setContent(dataSource(index).getBytes(StandardCharsets.UTF_8));
+                    resource.setMediaType("application/xml");
+                    put(RegistryType.CONFIG, DataSourceConstants.DATASOURCES_REPOSITORY_BASE_PATH + "/DS_" + index,
+                            resource);
+                    break;
+                case JMX_PROFILE:
+                    Profile profile = new Profile();
+                    profile.setName("profile-" + index);
+                    profile.setPass(nextSecret());
+                    ByteArrayOutputStream content = new ByteArrayOutputStream();
+                    Marshaller marshaller = profileContext.createMarshaller();
+                    marshaller.marshal(profile, content);
+                    resource.setContent(content.toByteArray());
+                    put(RegistryType.GOVERNANCE, JMX_PROFILE_PATH + profile.getName(), resource);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown registry resource kind " + kind);
+            }
+        }
+
+        private void put(RegistryType type, String path, ResourceImpl resource) throws RegistryException {
+            registryService.getRegistry(type, tenantId).put(path, resource);
+            summary.registryResources.incrementAndGet();
+        }
+
+        private String nextSecret() throws MigrationClientException {
+            long count = summary.secrets.incrementAndGet();
+            if (secrets.length == 0) {
+                return encrypt("secret-" + count);
+            }
+            return secrets[random.nextInt(secrets.length)];
+        }
+
+        private File getDeploymentDirectory(String name) {
+            if (tenantId == Constant.SUPER_TENANT_ID) {
+                return new File(carbonHome, Constant.SUPER_TENANT_DEPLOYMENT_PATH + File.separator + name);
+            }
+            return new File(carbonHome, "repository" + File.separator + "tenants" + File.separator + tenantId
+                    + File.separator + name);
+        }
+
+        private File getSynapseDirectory(String name) {
+            return new File(getDeploymentDirectory("synapse-configs"), "default" + File.separator + name);
+        }
+
+        private File getBpelDirectory(String... names) {
+            File directory = new File(carbonHome, BPEL_PATH[0]);
+            for (int i = 1; i < BPEL_PATH.length; i++) {
+                directory = new File(directory, BPEL_PATH[i]);
+            }
+            for (String name : names) {
+                directory = new File(directory, name);
+            }
+            return directory;
+        }
+
+        private void write(File directory, String name, String content) throws IOException {
+            if (!directory.isDirectory()) {
+                Files.createDirectories(directory.toPath());
+            }
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            Files.write(new File(directory, name).toPath(), bytes);
+            summary.files.incrementAndGet();
+            summary.bytes.addAndGet(bytes.length);
+        }
+
+        private void writeBpelArchive(String name) throws IOException, MigrationClientException {
+            File directory = tenantId == Constant.SUPER_TENANT_ID
+                    ? getBpelDirectory("deployment", "server", "bpel")
+                    : getBpelDirectory("tenants", String.valueOf(tenantId), "bpel");
+            if (!directory.isDirectory()) {
+                Files.createDirectories(directory.toPath());
+            }
+            File archive = new File(directory, name + ".zip");
+            // Entries are kept under a folder named after the archive, as expected by the server profile migrator.
+            try (OutputStream out = new FileOutputStream(archive);
+                 ZipOutputStream zip = new ZipOutputStream(out)) {
+                addEntry(zip, name + "/serverprofile.xml", serverProfile(name));
+                addEntry(zip, name + "/deploy.xml", deployDescriptor(name));
+                addEntry(zip, name + "/" + name + ".bpel", bpelProcess(name));
+            }
+            summary.files.incrementAndGet();
+            summary.bytes.addAndGet(archive.length());
+        }
+
+        private void writeBpelPackage(String name) throws IOException, MigrationClientException {
+            File directory = getBpelDirectory("bpel", String.valueOf(tenantId), name + "-1");
+            write(directory, "serverprofile.xml", serverProfile(name));
+            write(directory, "deploy.xml", deployDescriptor(name));
+        }
+
+        private void addEntry(ZipOutputStream zip, String name, String content) throws IOException {
+            zip.putNextEntry(new ZipEntry(name));
+            zip.write(content.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+
+        private String userStore(int index) throws MigrationClientException {
+            if (index % 2 == 0) {
+                return "<UserStoreManager class=\"org.wso2.carbon.user.core.ldap.ReadWriteLDAPUserStoreManager\">\n"
+                        + "    <Property name=\"ConnectionURL\">ldap://ldap" + index + ".example.com:389</Property>\n"
+                        + "    <Property name=\"ConnectionName\">uid=admin,ou=system</Property>\n"
+                        + "    <Property encrypted=\"true\" name=\"" + Constant.CONNECTION_PASSWORD + "\">"
+                        + nextSecret() + "</Property>\n"
+                        + "    <Property name=\"UserSearchBase\">ou=Users,dc=example,dc=com</Property>\n"
+                        + "    <Property name=\"DomainName\">LDAP" + index + "</Property>\n"
+                        + "</UserStoreManager>\n";
+            }
+            return "<UserStoreManager class=\"org.wso2.carbon.user.core.jdbc.JDBCUserStoreManager\">\n"
+                    + "    <Property name=\"driverName\">com.mysql.jdbc.Driver</Property>\n"
+                    + "    <Property name=\"url\">jdbc:mysql://db.example.com:3306/users" + index + "</Property>\n"
+                    + "    <Property name=\"userName\">wso2</Property>\n"
+                    + "    <Property encrypted=\"true\" name=\"" + Constant.PASSWORD + "\">" + nextSecret()
+                    + "</Property>\n"
+                    + "    <Property name=\"DomainName\">JDBC" + index + "</Property>\n"
+                    + "</UserStoreManager>\n";
+        }
+
+        /**
+         * Every fifth mediation sequence has no entitlement mediator, as most synapse configurations do not.
+         */
+        private String mediation(int index) throws MigrationClientException {
+            if (index % 5 == 4) {
+                return "<log level=\"full\"/>\n<respond/>\n";
+            }
+            return "<entitlementService remoteServiceUrl=\"https://localhost:9443/services/\" "
+                    + "remoteServiceUserName=\"admin\" remoteServicePassword=\""
+                    + Constant.EM_ENCRYPTED_PASSWORD_PREFIX + nextSecret() + "\" "
+                    + "callbackClass=\"org.wso2.carbon.identity.entitlement.mediator.callback."
+                    + "UTEntitlementCallbackHandler\" client=\"basicAuth\">\n"
+                    + "    <onReject><makefault version=\"soap11\"><code value=\"soap11Env:Client\" "
+                    + "xmlns:soap11Env=\"http://schemas.xmlsoap.org/soap/envelope/\"/>"
+                    + "<reason value=\"Unauthorized\"/></makefault><respond/></onReject>\n"
+                    + "    <onAccept><send/></onAccept>\n"
+                    + "    <obligations/>\n"
+                    + "    <advice/>\n"
+                    + "</entitlementService>\n";
+        }
+
+        private String api(String name, int index) throws MigrationClientException {
+            return "<api xmlns=\"" + SYNAPSE_NS + "\" name=\"" + name + "\" context=\"/" + name + "\">\n"
+                    + "<resource methods=\"GET POST\" uri-template=\"/*\">\n"
+                    + "<inSequence>\n" + mediation(index) + "</inSequence>\n"
+                    + "<outSequence><send/></outSequence>\n"
+                    + "</resource>\n"
+                    + "</api>\n";
+        }
+
+        private String proxyService(String name, int index) throws MigrationClientException {
+            return "<proxy xmlns=\"" + SYNAPSE_NS + "\" name=\"" + name + "\" transports=\"http https\" "
+                    + "startOnLoad=\"true\">\n"
+                    + "<target>\n"
+                    + "<inSequence>\n" + mediation(index) + "</inSequence>\n"
+                    + "<outSequence><send/></outSequence>\n"
+                    + "</target>\n"
+                    + "</proxy>\n";
+        }
+
+        private String sequence(String name, int index) throws MigrationClientException {
+            return "<sequence xmlns=\"" + SYNAPSE_NS + "\" name=\"" + name + "\">\n" + mediation(index)
+                    + "</sequence>\n";
+        }
+
+        private String template(String name, int index) throws MigrationClientException {
+            return "<template xmlns=\"" + SYNAPSE_NS + "\" name=\"" + name + "\">\n"
+                    + "<parameter name=\"message\"/>\n"
+                    + "<sequence>\n" + mediation(index) + "</sequence>\n"
+                    + "</template>\n";
+        }
+
+        private String eventSink() throws MigrationClientException {
+            return "<eventSink>\n"
+                    + "    <receiverUrlSet>tcp://localhost:7611</receiverUrlSet>\n"
+                    + "    <authenticatorUrlSet>ssl://localhost:7711</authenticatorUrlSet>\n"
+                    + "    <username>admin</username>\n"
+                    + "    <password>" + nextSecret() + "</password>\n"
+                    + "</eventSink>\n";
+        }
+
+        /**
+         * The event publisher and receiver migration reads the encrypted adapter properties of the to element.
+         */
+        private String eventPublisher(String name) throws MigrationClientException {
+            return "<eventPublisher name=\"" + name + "\" statistics=\"disable\" trace=\"disable\" "
+                    + "xmlns=\"http://wso2.org/carbon/eventpublisher\">\n"
+                    + "    <from streamName=\"org.wso2.event.stream\" version=\"1.0.0\"/>\n"
+                    + "    <mapping customMapping=\"disable\" type=\"wso2event\"/>\n"
+                    + "    <to eventAdapterType=\"wso2event\">\n"
+                    + "        <property name=\"receiverURL\">tcp://localhost:7611</property>\n"
+                    + "        <property name=\"username\">admin</property>\n"
+                    + "        <property encrypted=\"true\" name=\"password\">" + nextSecret() + "</property>\n"
+                    + "        <property name=\"protocol\">thrift</property>\n"
+                    + "    </to>\n"
+                    + "</eventPublisher>\n";
+        }
+
+        private String eventReceiver(String name) throws MigrationClientException {
+            return "<eventReceiver name=\"" + name + "\" statistics=\"disable\" trace=\"disable\" "
+                    + "xmlns=\"http://wso2.org/carbon/eventreceiver\">\n"
+                    + "    <from eventAdapterType=\"jms\">\n"
+                    + "        <property name=\"destination\">" + name + "</property>\n"
+                    + "    </from>\n"
+                    + "    <mapping customMapping=\"disable\" type=\"xml\"/>\n"
+                    + "    <to streamName=\"org.wso2.event.stream\" version=\"1.0.0\">\n"
+                    + "        <property name=\"username\">admin</property>\n"
+                    + "        <property encrypted=\"true\" name=\"password\">" + nextSecret() + "</property>\n"
+                    + "    </to>\n"
+                    + "</eventReceiver>\n";
+        }
+
+        private String serverProfile(String name) throws MigrationClientException {
+            return "<ServerProfile name=\"" + name + "\">\n"
+                    + "    <Service name=\"" + name + "Partner\" url=\"https://partner.example.com/services/"
+                    + name + "\" username=\"admin\" password=\"" + nextSecret() + "\" securePassword=\"true\"/>\n"
+                    + "    <Service name=\"" + name + "Callback\" url=\"http://localhost:9763/services/" + name
+                    + "Callback\"/>\n"
+                    + "</ServerProfile>\n";
+        }
+
+        private String deployDescriptor(String name) {
+            return "<deploy xmlns=\"http://www.apache.org/ode/schemas/dd/2007/03\" "
+                    + "xmlns:p=\"http://example.com/" + name + "\">\n"
+                    + "    <process name=\"p:" + name + "\">\n"
+                    + "        <active>true</active>\n"
+                    + "        <provide partnerLink=\"client\"><service name=\"p:" + name + "Service\" "
+                    + "port=\"" + name + "Port\"/></provide>\n"
+                    + "    </process>\n"
+                    + "</deploy>\n";
+        }
+
+        private String bpelProcess(String name) {
+            return "<bpel:process name=\"" + name + "\" targetNamespace=\"http://example.com/" + name + "\" "
+                    + "xmlns:bpel=\"http://docs.oasis-open.org/wsbpel/2.0/process/executable\">\n"
+                    + "    <bpel:sequence name=\"main\"><bpel:empty/></bpel:sequence>\n"
+                    + "</bpel:process>\n";
+        }
+
+        private String stsPolicy(int index) throws MigrationClientException {
+            return "<wsp:Policy wsu:Id=\"kerberossignandencrypt-" + index + "\" "
+                    + "xmlns:wsp=\"http://schemas.xmlsoap.org/ws/2004/09/policy\" "
+                    + "xmlns:wsu=\"http://docs.oasis-open.org/wss/2004/01/"
+                    + "oasis-200401-wss-wssecurity-utility-1.0.xsd\">\n"
+                    + "    <wsp:ExactlyOne><wsp:All/></wsp:ExactlyOne>\n"
+                    + "    <sec:CarbonSecConfig xmlns:sec=\"http://www.wso2.org/products/carbon/security\">\n"
+                    + "        <sec:Kerberos>\n"
+                    + "            <sec:property name=\"service.principal.name\">HTTP/sts" + index
+                    + ".example.com@EXAMPLE.COM</sec:property>\n"
+                    + "            <sec:property name=\"" + Constant.SERVICE_PRINCIPAL_PASSWORD + "\">" + nextSecret()
+                    + "</sec:property>\n"
+                    + "        </sec:Kerberos>\n"
+                    + "    </sec:CarbonSecConfig>\n"
+                    + "</wsp:Policy>\n";
+        }
+
+        private String dataSource(int index) throws MigrationClientException {
+            return "<datasource>\n"
+                    + "    <name>DS_" + index + "</name>\n"
+                    + "    <description>Generated data source</description>\n"
+                    + "    <definition type=\"RDBMS\">\n"
+                    + "        <configuration>\n"
+                    + "            <url>jdbc:mysql://db.example.com:3306/db" + index + "</url>\n"
+                    + "            <username>wso2</username>\n"
+                    + "            <password encrypted=\"true\">" + nextSecret() + "</password>\n"
+                    + "            <driverClassName>com.mysql.jdbc.Driver</driverClassName>\n"
+                    + "            <maxActive>50</maxActive>\n"
+                    + "        </configuration>\n"
+                    + "    </definition>\n"
+                    + "</datasource>\n";
+        }
+    }
+}
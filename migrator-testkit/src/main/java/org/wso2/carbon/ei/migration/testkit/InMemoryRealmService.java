@@ -0,0 +1,148 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.testkit;
+
+import org.wso2.carbon.ei.migration.internal.MigrationServiceDataHolder;
+import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.user.core.service.RealmService;
+import org.wso2.carbon.user.core.tenant.Tenant;
+import org.wso2.carbon.user.core.tenant.TenantManager;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.wso2.carbon.base.MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+
+/**
+ * Realm service with an in-memory tenant manager. Only the tenant queries of the tenant manager are supported,
+ * i.e. getAllTenants, getTenant, getDomain, getTenantId and isTenantActive. Any other method throws an
+ * {@link UnsupportedOperationException}. The super tenant is known to getDomain and getTenantId, but like a Carbon
+ * server it is not returned by getAllTenants.
+ */
+public class InMemoryRealmService {
+
+    private final Map<Integer, Tenant> tenants = new ConcurrentSkipListMap<>();
+    private final LatencyProfile latency;
+    private final RealmService realmService;
+    private final TenantManager tenantManager;
+
+    public InMemoryRealmService(LatencyProfile latency) {
+        this.latency = latency;
+        this.tenantManager = (TenantManager) Proxy.newProxyInstance(TenantManager.class.getClassLoader(),
+                new Class<?>[]{TenantManager.class}, new TenantManagerHandler());
+        this.realmService = (RealmService) Proxy.newProxyInstance(RealmService.class.getClassLoader(),
+                new Class<?>[]{RealmService.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getDeclaringClass() == Object.class) {
+                            return Proxies.invokeObjectMethod(proxy, method, args, "InMemoryRealmService");
+                        }
+                        if ("getTenantManager".equals(method.getName())) {
+                            return tenantManager;
+                        }
+                        throw Proxies.unsupported(RealmService.class, method);
+                    }
+                });
+    }
+
+    /**
+     * Set this realm service to the migration service data holder, in place of the OSGi service.
+     *
+     * @return this realm service
+     */
+    public InMemoryRealmService install() {
+        MigrationServiceDataHolder.setRealmService(realmService);
+        return this;
+    }
+
+    public RealmService getRealmService() {
+        return realmService;
+    }
+
+    /**
+     * Add an active tenant.
+     *
+     * @param tenantId tenant id
+     * @param domain   tenant domain
+     * @return added tenant
+     */
+    public Tenant addTenant(int tenantId, String domain) {
+        if (tenantId == Constant.SUPER_TENANT_ID) {
+            throw new IllegalArgumentException("The super tenant can not be added");
+        }
+        Tenant tenant = new Tenant();
+        tenant.setId(tenantId);
+        tenant.setDomain(domain);
+        tenant.setActive(true);
+        tenants.put(tenantId, tenant);
+        return tenant;
+    }
+
+    public int getTenantCount() {
+        return tenants.size();
+    }
+
+    private class TenantManagerHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+
+            if (method.getDeclaringClass() == Object.class) {
+                return Proxies.invokeObjectMethod(proxy, method, args,
+                        "InMemoryTenantManager with " + tenants.size() + " tenants");
+            }
+            latency.read();
+            switch (method.getName()) {
+                case "getAllTenants":
+                    return tenants.values().toArray(new Tenant[0]);
+                case "getTenant":
+                    return tenants.get((Integer) args[0]);
+                case "getDomain":
+                    return getDomain((Integer) args[0]);
+                case "getTenantId":
+                    return getTenantId((String) args[0]);
+                case "isTenantActive":
+                    Tenant tenant = tenants.get((Integer) args[0]);
+                    return tenant != null && tenant.isActive();
+                default:
+                    throw Proxies.unsupported(TenantManager.class, method);
+            }
+        }
+
+        private String getDomain(int tenantId) {
+            if (tenantId == Constant.SUPER_TENANT_ID) {
+                return SUPER_TENANT_DOMAIN_NAME;
+            }
+            Tenant tenant = tenants.get(tenantId);
+            return tenant == null ? null : tenant.getDomain();
+        }
+
+        private int getTenantId(String domain) {
+            if (SUPER_TENANT_DOMAIN_NAME.equals(domain)) {
+                return Constant.SUPER_TENANT_ID;
+            }
+            for (Tenant tenant : tenants.values()) {
+                if (tenant.getDomain().equals(domain)) {
+                    return tenant.getId();
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.testkit;
+
+import org.wso2.carbon.registry.core.Collection;
+import org.wso2.carbon.registry.core.CollectionImpl;
+import org.wso2.carbon.registry.core.Registry;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.ResourceImpl;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+import org.wso2.carbon.registry.core.exceptions.ResourceNotFoundException;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Registry kept in memory. Only the subset of the registry API used by the migrators is supported: get, put,
+ * resourceExists, delete, newResource, newCollection and the transaction methods. Any other method throws an
+ * {@link UnsupportedOperationException}.
+ * <p>
+ * Resources are copied on get and put, so a resource read from the registry is not changed until it is put back, as
+ * with a database backed registry. Parent collections are created on put. A transaction is bound to the calling
+ * thread and undoes its puts and deletes on rollback. Changes of an open transaction are visible to the other
+ * threads.
+ */
+public class InMemoryRegistry implements InvocationHandler {
+
+    private static final String ROOT = "/";
+
+    private final ConcurrentNavigableMap<String, ResourceImpl> resources = new ConcurrentSkipListMap<>();
+    private final ThreadLocal<Transaction> transaction = new ThreadLocal<>();
+    private final LatencyProfile latency;
+    private final Registry registry;
+
+    public InMemoryRegistry(LatencyProfile latency) {
+        this.latency = latency;
+        this.registry = (Registry) Proxy.newProxyInstance(Registry.class.getClassLoader(),
+                new Class<?>[]{Registry.class}, this);
+        resources.put(ROOT, newCollection(ROOT));
+    }
+
+    /**
+     * @return registry backed by this in-memory registry
+     */
+    public Registry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * @return number of resources, including the collections
+     */
+    public int size() {
+        return resources.size();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+        if (method.getDeclaringClass() == Object.class) {
+            return Proxies.invokeObjectMethod(proxy, method, args,
+                    "InMemoryRegistry with " + resources.size() + " resources");
+        }
+        int arity = args == null ? 0 : args.length;
+        switch (method.getName()) {
+            case "get":
+                if (arity == 1) {
+                    latency.read();
+                    return get((String) args[0]);
+                }
+                break;
+            case "resourceExists":
+                if (arity == 1) {
+                    latency.read();
+                    return resources.containsKey(normalize((String) args[0]));
+                }
+                break;
+            case "put":
+                if (arity == 2) {
+                    latency.write();
+                    return put((String) args[0], (Resource) args[1]);
+                }
+                break;
+            case "delete":
+                if (arity == 1) {
+                    latency.write();
+                    delete((String) args[0]);
+                    return null;
+                }
+                break;
+            case "newResource":
+                return new ResourceImpl();
+            case "newCollection":
+                return new CollectionImpl();
+            case "beginTransaction":
+                beginTransaction();
+                return null;
+            case "commitTransaction":
+                latency.write();
+                endTransaction(false);
+                return null;
+            case "rollbackTransaction":
+                latency.write();
+                endTransaction(true);
+                return null;
+            default:
+                break;
+        }
+        throw Proxies.unsupported(Registry.class, method);
+    }
+
+    public Resource get(String path) throws RegistryException {
+        path = normalize(path);
+        ResourceImpl resource = resources.get(path);
+        if (resource == null) {
+            throw new ResourceNotFoundException(path);
+        }
+        ResourceImpl copy = copyOf(resource, path);
+        if (copy instanceof CollectionImpl) {
+            ((CollectionImpl) copy).setChildren(getChildren(path));
+        }
+        return copy;
+    }
+
+    public String put(String path, Resource resource) throws RegistryException {
+        path = normalize(path);
+        String parent = getParent(path);
+        if (parent != null && !resources.containsKey(parent)) {
+            put(parent, newCollection(parent));
+        }
+        ResourceImpl copy = copyOf(resource, path);
+        ResourceImpl previous = resources.put(path, copy);
+        Transaction current = transaction.get();
+        if (current != null) {
+            current.changed(path, previous);
+        }
+        if (resource instanceof ResourceImpl) {
+            ((ResourceImpl) resource).setPath(path);
+        }
+        return path;
+    }
+
+    public void delete(String path) {
+        path = normalize(path);
+        if (ROOT.equals(path)) {
+            throw new IllegalArgumentException("The root collection can not be deleted");
+        }
+        Transaction current = transaction.get();
+        List<String> removed = new ArrayList<>();
+        removed.add(path);
+        removed.addAll(getDescendants(path).keySet());
+        for (String removedPath : removed) {
+            ResourceImpl previous = resources.remove(removedPath);
+            if (current != null && previous != null) {
+                current.changed(removedPath, previous);
+            }
+        }
+    }
+
+    private void beginTransaction() {
+        Transaction current = transaction.get();
+        if (current == null) {
+            transaction.set(new Transaction());
+        } else {
+            current.depth++;
+        }
+    }
+
+    private void endTransaction(boolean rollback) {
+        Transaction current = transaction.get();
+        if (current == null) {
+            throw new IllegalStateException("No transaction is started by the current thread");
+        }
+        if (rollback) {
+            current.rollback = true;
+        }
+        if (--current.depth > 0) {
+            return;
+        }
+        transaction.remove();
+        if (current.rollback) {
+            for (Map.Entry<String, ResourceImpl> entry : current.originals.entrySet()) {
+                if (entry.getValue() == null) {
+                    resources.remove(entry.getKey());
+                } else {
+                    resources.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private String[] getChildren(String path) {
+        List<String> children = new ArrayList<>();
+        String prefix = ROOT.equals(path) ? ROOT : path + ROOT;
+        for (String descendant : getDescendants(path).keySet()) {
+            if (descendant.indexOf('/', prefix.length()) < 0) {
+                children.add(descendant);
+            }
+        }
+        return children.toArray(new String[children.size()]);
+    }
+
+    private ConcurrentNavigableMap<String, ResourceImpl> getDescendants(String path) {
+        String prefix = ROOT.equals(path) ? ROOT : path + ROOT;
+        // '0' follows '/', so the range holds exactly the paths starting with the prefix.
+        return resources.subMap(prefix, false, prefix.substring(0, prefix.length() - 1) + '0', false);
+    }
+
+    private static ResourceImpl copyOf(Resource source, String path) throws RegistryException {
+
+        ResourceImpl copy = source instanceof Collection ? new CollectionImpl() : new ResourceImpl();
+        copy.setPath(path);
+        copy.setMediaType(source.getMediaType());
+        if (!(source instanceof Collection)) {
+            Object content = source.getContent();
+            copy.setContent(content instanceof byte[] ? ((byte[]) content).clone() : content);
+        }
+        Properties properties = source.getProperties();
+        if (properties != null) {
+            for (Object name : properties.keySet()) {
+                List<String> values = source.getPropertyValues((String) name);
+                copy.setProperty((String) name, values == null ? new ArrayList<String>() : new ArrayList<>(values));
+            }
+        }
+        return copy;
+    }
+
+    private static CollectionImpl newCollection(String path) {
+        CollectionImpl collection = new CollectionImpl();
+        collection.setPath(path);
+        return collection;
+    }
+
+    private static String getParent(String path) {
+        if (ROOT.equals(path)) {
+            return null;
+        }
+        int index = path.lastIndexOf('/');
+        return index == 0 ? ROOT : path.substring(0, index);
+    }
+
+    private static String normalize(String path) {
+        if (path == null || path.isEmpty()) {
+            throw new IllegalArgumentException("Registry path can not be empty");
+        }
+        if (!path.startsWith(ROOT)) {
+            path = ROOT + path;
+        }
+        while (path.length() > 1 && path.endsWith(ROOT)) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    /**
+     * Changes of a thread's transaction. The original of each changed path is kept once, a null original means the
+     * path did not exist when the transaction started.
+     */
+    private static class Transaction {
+
+        private final Map<String, ResourceImpl> originals = new LinkedHashMap<>();
+        private int depth = 1;
+        private boolean rollback;
+
+        private void changed(String path, ResourceImpl original) {
+            if (!originals.containsKey(path)) {
+                originals.put(path, original);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.testkit;
+
+import org.wso2.carbon.ei.migration.internal.MigrationServiceDataHolder;
+import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.registry.core.service.RegistryService;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry service keeping the registries of each tenant in memory. The config and governance system registries and
+ * the local repository of a tenant are separate {@link InMemoryRegistry} instances, created on first use. User
+ * registries are mapped to the system registries of the tenant. Methods without a tenant id use the super tenant.
+ */
+public class InMemoryRegistryService implements InvocationHandler {
+
+    /**
+     * Registries of a tenant.
+     */
+    public enum RegistryType {
+        CONFIG, GOVERNANCE, LOCAL
+    }
+
+    private final ConcurrentMap<String, InMemoryRegistry> registries = new ConcurrentHashMap<>();
+    private final LatencyProfile latency;
+    private final RegistryService registryService;
+
+    public InMemoryRegistryService(LatencyProfile latency) {
+        this.latency = latency;
+        this.registryService = (RegistryService) Proxy.newProxyInstance(RegistryService.class.getClassLoader(),
+                new Class<?>[]{RegistryService.class}, this);
+    }
+
+    /**
+     * Set this registry service to the migration service data holder, in place of the OSGi service.
+     *
+     * @return this registry service
+     */
+    public InMemoryRegistryService install() {
+        MigrationServiceDataHolder.setRegistryService(registryService);
+        return this;
+    }
+
+    public RegistryService getRegistryService() {
+        return registryService;
+    }
+
+    public LatencyProfile getLatency() {
+        return latency;
+    }
+
+    /**
+     * @param type     registry type
+     * @param tenantId tenant id
+     * @return in-memory registry of the tenant, e.g. to load the data to migrate
+     */
+    public InMemoryRegistry getRegistry(RegistryType type, int tenantId) {
+        String key = type + ":" + tenantId;
+        InMemoryRegistry registry = registries.get(key);
+        if (registry == null) {
+            InMemoryRegistry created = new InMemoryRegistry(latency);
+            registry = registries.putIfAbsent(key, created);
+            if (registry == null) {
+                registry = created;
+            }
+        }
+        return registry;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+        if (method.getDeclaringClass() == Object.class) {
+            return Proxies.invokeObjectMethod(proxy, method, args,
+                    "InMemoryRegistryService with " + registries.size() + " registries");
+        }
+        String name = method.getName();
+        if (!name.endsWith("Registry") && !name.endsWith("Repository")) {
+            throw Proxies.unsupported(RegistryService.class, method);
+        }
+        RegistryType type = RegistryType.CONFIG;
+        if (name.contains("Governance")) {
+            type = RegistryType.GOVERNANCE;
+        } else if (name.contains("Local")) {
+            type = RegistryType.LOCAL;
+        }
+        int tenantId = Constant.SUPER_TENANT_ID;
+        if (args != null) {
+            for (Object arg : args) {
+                if (arg instanceof Integer) {
+                    tenantId = (Integer) arg;
+                    break;
+                }
+            }
+        }
+        return getRegistry(type, tenantId).getRegistry();
+    }
+}
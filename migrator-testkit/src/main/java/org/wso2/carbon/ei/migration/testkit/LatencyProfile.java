@@ -0,0 +1,94 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.testkit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Latency injected into every call of an in-memory service, to mimic the round trip of a database backed registry or
+ * user store. Reads and writes are delayed separately. The calling thread is parked for the delay, so it behaves like
+ * a thread blocked on I/O rather than a thread burning CPU.
+ */
+public class LatencyProfile {
+
+    public static final String READ_LATENCY_MICROS = "migrate.testkit.readLatencyMicros";
+    public static final String WRITE_LATENCY_MICROS = "migrate.testkit.writeLatencyMicros";
+
+    private static final LatencyProfile NONE = new LatencyProfile(0, 0, TimeUnit.MICROSECONDS);
+
+    private final long readNanos;
+    private final long writeNanos;
+
+    public LatencyProfile(long readLatency, long writeLatency, TimeUnit unit) {
+        if (readLatency < 0 || writeLatency < 0) {
+            throw new IllegalArgumentException("Latency can not be negative");
+        }
+        this.readNanos = unit.toNanos(readLatency);
+        this.writeNanos = unit.toNanos(writeLatency);
+    }
+
+    /**
+     * @return profile without any latency
+     */
+    public static LatencyProfile none() {
+        return NONE;
+    }
+
+    /**
+     * @return profile configured by the migrate.testkit.readLatencyMicros and migrate.testkit.writeLatencyMicros
+     * system properties. Latency which is not configured is zero.
+     */
+    public static LatencyProfile fromSystemProperties() {
+        return new LatencyProfile(Long.getLong(READ_LATENCY_MICROS, 0), Long.getLong(WRITE_LATENCY_MICROS, 0),
+                TimeUnit.MICROSECONDS);
+    }
+
+    public long getReadLatency(TimeUnit unit) {
+        return unit.convert(readNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getWriteLatency(TimeUnit unit) {
+        return unit.convert(writeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void read() {
+        pause(readNanos);
+    }
+
+    public void write() {
+        pause(writeNanos);
+    }
+
+    private static void pause(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        // parkNanos may return early, e.g. on a spurious wake up, so park until the deadline is reached.
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "read " + getReadLatency(TimeUnit.MICROSECONDS) + "us, write " + getWriteLatency(TimeUnit.MICROSECONDS)
+                + "us";
+    }
+}
@@ -0,0 +1,46 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.testkit;
+
+import java.lang.reflect.Method;
+
+/**
+ * Helpers of the dynamic proxies backing the in-memory services.
+ */
+final class Proxies {
+
+    private Proxies() {
+    }
+
+    /**
+     * Handle equals, hashCode and toString of a proxy. A proxy is only equal to itself.
+     */
+    static Object invokeObjectMethod(Object proxy, Method method, Object[] args, String description) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return description;
+        }
+    }
+
+    static UnsupportedOperationException unsupported(Class<?> service, Method method) {
+        return new UnsupportedOperationException(service.getSimpleName() + "." + method.getName()
+                + " is not supported by the in-memory " + service.getSimpleName());
+    }
+}
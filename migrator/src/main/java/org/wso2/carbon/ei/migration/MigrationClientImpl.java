@@ -17,8 +17,18 @@ package org.wso2.carbon.ei.migration;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.ei.migration.service.MigrationInventory;
+import org.wso2.carbon.ei.migration.service.MigrationJournal;
+import org.wso2.carbon.ei.migration.service.MigrationProgress;
+import org.wso2.carbon.ei.migration.service.MigrationReport;
 import org.wso2.carbon.ei.migration.service.Migrator;
+import org.wso2.carbon.ei.migration.service.MigratorScheduler;
+import org.wso2.carbon.ei.migration.service.crypto.MigratedValueFilter;
+import org.wso2.carbon.ei.migration.service.crypto.ReEncryptionCache;
+import org.wso2.carbon.ei.migration.service.execution.ExecutionStrategyFactory;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics;
 import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.ei.migration.util.Utility;
 
 import java.util.List;
 
@@ -32,6 +42,9 @@ public class MigrationClientImpl implements MigrationClient {
     @Override
     public void execute() throws MigrationClientException {
 
+        MigrationJournal journal = null;
+        boolean isCompleted = false;
+        boolean isDryRun = Utility.isDryRun();
         try {
             log.info("............................................................................................");
             log.info("............................................................................................");
@@ -50,12 +63,40 @@ public class MigrationClientImpl implements MigrationClient {
             List<Migrator> migrators
                     = migrationHolder.getMigrationList();
 
-            for (Migrator migrator : migrators) {
-                migrator.migrate();
+            MigrationMetrics.getInstance().reset();
+            ReEncryptionCache.getInstance().reset();
+            MigrationReport.getInstance().start();
+            if (isDryRun) {
+                log.info(Constant.MIGRATION_LOG + "Dry run. Sources are scanned without decrypting or writing.");
+                MigrationInventory.getInstance().start();
+            } else {
+                journal = MigrationJournal.open(Utility.getMigrationResourceDirectoryPath(),
+                        !"false".equalsIgnoreCase(System.getProperty(Constant.RESUME)));
+                MigratedValueFilter.open(Utility.getMigrationResourceDirectoryPath());
+            }
+            MigrationProgress.getInstance().start(migrators.size());
+            // Migrators run one after the other unless -Dmigrate.threads allows independent ones to run together.
+            int parallelism = Utility.getIntProperty(Constant.MIGRATOR_THREADS, 1);
+            new MigratorScheduler(parallelism).execute(migrators);
+            isCompleted = true;
+            if (isDryRun) {
+                MigrationInventory.getInstance().logReport(Utility.getIntProperty(Constant.IO_THREADS, 1));
             }
             log.info(Constant.MIGRATION_LOG + "Execution was done.");
         } catch (Throwable e) {
             log.error("Migration process was stopped." + e.getMessage(), e);
+        } finally {
+            if (journal != null) {
+                journal.close(isCompleted);
+            }
+            MigratedValueFilter.close();
+            MigrationProgress progress = MigrationProgress.getInstance();
+            progress.stop();
+            MigrationMetrics.getInstance().export(Utility.getMigrationResourceDirectoryPath());
+            MigrationReport.Status status = isCompleted ? MigrationReport.Status.COMPLETED
+                    : progress.isCancelled() ? MigrationReport.Status.CANCELLED : MigrationReport.Status.FAILED;
+            MigrationReport.getInstance().write(Utility.getMigrationResourceDirectoryPath(), status, isDryRun);
+            ExecutionStrategyFactory.shutdown();
         }
 
         log.info("............................................................................................");
@@ -15,40 +15,160 @@
 */
 package org.wso2.carbon.ei.migration;
 
-import org.wso2.carbon.ei.migration.service.migrator.KeyStorePasswordMigrator;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.ei.migration.service.Migrator;
-import org.wso2.carbon.ei.migration.service.migrator.*;
+import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.ei.migration.util.Utility;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Holder class to hold version migrator objects.
+ * <p>
+ * Migrators are discovered from the META-INF/services/org.wso2.carbon.ei.migration.service.Migrator files visible to
+ * this bundle and from the Migrator OSGi services registered by other bundles. A discovered migrator is only
+ * instantiated when it is selected for the run. Migrators are selected by their simple class name:
+ * <pre>
+ * -Dmigrate.migrators=DatasourceMigrator,ServerProfileMigrator    run only the listed migrators
+ * -Dmigrate.excludeMigrators=SysLogPropertiesMigrator            skip the listed migrators
+ * </pre>
+ * Migrators which are disabled by default only run when they are listed in -Dmigrate.migrators.
  */
 public class MigrationHolder {
 
-    private static MigrationHolder migrationHolder = new MigrationHolder();
-    private List<Migrator> migrationList = new ArrayList<>();
+    private static final Log log = LogFactory.getLog(MigrationHolder.class);
+
+    private static final String SERVICE_FILE = "META-INF/services/" + Migrator.class.getName();
+    private static final Set<String> DISABLED_BY_DEFAULT = Collections.singleton("ProfileDataMigrator");
 
+    private static MigrationHolder migrationHolder = new MigrationHolder();
+    private final List<Migrator> serviceMigrators = new CopyOnWriteArrayList<>();
 
     private MigrationHolder() {
-        migrationList.add(new DatasourceMigrator());
-        migrationList.add(new EntitlementMediatorMigrator());
-        migrationList.add(new EventSinkMigrator());
-        migrationList.add(new InputOutputDataMigration());
-        migrationList.add(new KeyStorePasswordMigrator());
-//        migrationList.add(new ProfileDataMigrator());
-        migrationList.add(new SecurityPolicyPasswordMigrator());
-        migrationList.add(new ServerProfileMigrator());
-        migrationList.add(new SysLogPropertiesMigrator());
-        migrationList.add(new UserStorePasswordMigrator());
     }
 
     public static MigrationHolder getInstance() {
         return MigrationHolder.migrationHolder;
     }
 
-    public List<Migrator> getMigrationList() {
+    /**
+     * Instantiate the migrators selected for the run, in the order they were discovered.
+     *
+     * @return selected migrators
+     * @throws MigrationClientException if a selected migrator can not be instantiated
+     */
+    public List<Migrator> getMigrationList() throws MigrationClientException {
+        Set<String> include = Utility.getListProperty(Constant.MIGRATORS);
+        Set<String> exclude = Utility.getListProperty(Constant.EXCLUDE_MIGRATORS);
+        Set<String> discovered = new HashSet<>();
+        List<Migrator> migrationList = new ArrayList<>();
+
+        for (String className : getMigratorClassNames()) {
+            String name = className.substring(className.lastIndexOf('.') + 1);
+            discovered.add(name);
+            if (isSelected(name, include, exclude)) {
+                migrationList.add(newMigrator(className));
+            } else if (log.isDebugEnabled()) {
+                log.debug("Migrator " + name + " is not selected");
+            }
+        }
+        for (Migrator migrator : serviceMigrators) {
+            String name = migrator.getClass().getSimpleName();
+            if (discovered.add(name) && isSelected(name, include, exclude)) {
+                migrationList.add(migrator);
+            }
+        }
+        for (String name : include) {
+            if (!discovered.contains(name)) {
+                log.warn(Constant.MIGRATION_LOG + "Migrator " + name + " listed in " + Constant.MIGRATORS
+                        + " is not available");
+            }
+        }
+        log.info(Constant.MIGRATION_LOG + "Selected " + migrationList.size() + " of " + discovered.size()
+                + " migrators");
         return migrationList;
     }
+
+    /**
+     * Add a migrator registered as an OSGi service by another bundle.
+     *
+     * @param migrator migrator service
+     */
+    public void addMigrator(Migrator migrator) {
+        serviceMigrators.add(migrator);
+    }
+
+    /**
+     * Remove a migrator registered as an OSGi service by another bundle.
+     *
+     * @param migrator migrator service
+     */
+    public void removeMigrator(Migrator migrator) {
+        serviceMigrators.remove(migrator);
+    }
+
+    private static boolean isSelected(String name, Set<String> include, Set<String> exclude) {
+        if (exclude.contains(name)) {
+            return false;
+        }
+        if (include.isEmpty()) {
+            return !DISABLED_BY_DEFAULT.contains(name);
+        }
+        return include.contains(name);
+    }
+
+    /**
+     * Read the migrator class names from the service files without loading the classes. Lines starting with # are
+     * comments.
+     */
+    private static Set<String> getMigratorClassNames() throws MigrationClientException {
+        Set<String> classNames = new LinkedHashSet<>();
+        try {
+            Enumeration<URL> serviceFiles = MigrationHolder.class.getClassLoader().getResources(SERVICE_FILE);
+            while (serviceFiles.hasMoreElements()) {
+                URL serviceFile = serviceFiles.nextElement();
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(serviceFile.openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        int comment = line.indexOf('#');
+                        String className = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                        if (!className.isEmpty()) {
+                            classNames.add(className);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new MigrationClientException("Error while reading the migrator service files", e);
+        }
+        return classNames;
+    }
+
+    private static Migrator newMigrator(String className) throws MigrationClientException {
+        try {
+            Class<?> migratorClass = Class.forName(className, true, MigrationHolder.class.getClassLoader());
+            return migratorClass.asSubclass(Migrator.class).getDeclaredConstructor().newInstance();
+        } catch (InvocationTargetException e) {
+            // Class#newInstance would have rethrown the checked exceptions of the constructor undeclared.
+            throw new MigrationClientException("Error while instantiating the migrator " + className, e.getCause());
+        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | IllegalAccessException
+                | ClassCastException e) {
+            throw new MigrationClientException("Unable to instantiate the migrator " + className, e);
+        }
+    }
 }
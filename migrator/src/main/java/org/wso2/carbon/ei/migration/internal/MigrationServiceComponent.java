@@ -22,6 +22,8 @@ import org.osgi.service.component.ComponentContext;
 import org.wso2.carbon.base.api.ServerConfigurationService;
 import org.wso2.carbon.ei.migration.MigrationClient;
 import org.wso2.carbon.ei.migration.MigrationClientImpl;
+import org.wso2.carbon.ei.migration.MigrationHolder;
+import org.wso2.carbon.ei.migration.service.Migrator;
 import org.wso2.carbon.registry.core.service.RegistryService;
 import org.wso2.carbon.tomcat.api.CarbonTomcatService;
 import org.apache.axis2.context.ConfigurationContext;
@@ -41,6 +43,9 @@ import org.wso2.carbon.user.core.service.RealmService;
  * @scr.reference name="carbontomcat.service"
  * interface="org.wso2.carbon.tomcat.api.CarbonTomcatService" cardinality="1..1"
  * policy="dynamic" bind="setCarbonTomcatService" unbind="unsetCarbonTomcatService"
+ * @scr.reference name="migrator.service"
+ * interface="org.wso2.carbon.ei.migration.service.Migrator" cardinality="0..n"
+ * policy="dynamic" bind="addMigrator" unbind="removeMigrator"
  */
 public class MigrationServiceComponent {
 
@@ -176,4 +181,28 @@ public class MigrationServiceComponent {
         }
         MigrationServiceDataHolder.setCarbonTomcatService(null);
     }
+
+    /**
+     * Method to add a migrator registered by another bundle.
+     *
+     * @param migrator migrator to be executed with the migrators of this bundle.
+     */
+    protected void addMigrator(Migrator migrator) {
+        if (log.isDebugEnabled()) {
+            log.debug("Adding migrator " + migrator.getName() + " to WSO2 EI Config component");
+        }
+        MigrationHolder.getInstance().addMigrator(migrator);
+    }
+
+    /**
+     * Method to remove a migrator registered by another bundle.
+     *
+     * @param migrator migrator to be removed.
+     */
+    protected void removeMigrator(Migrator migrator) {
+        if (log.isDebugEnabled()) {
+            log.debug("Removing migrator " + migrator.getName() + " from WSO2 EI Config component");
+        }
+        MigrationHolder.getInstance().removeMigrator(migrator);
+    }
 }
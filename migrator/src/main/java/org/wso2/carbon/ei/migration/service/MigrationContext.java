@@ -0,0 +1,47 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service;
+
+/**
+ * Migrator executed by the current thread. The tenant is available from the carbon context of the thread.
+ */
+public final class MigrationContext {
+
+    private static final ThreadLocal<String> migrator = new ThreadLocal<>();
+
+    private MigrationContext() {
+    }
+
+    public static String getMigrator() {
+        return migrator.get();
+    }
+
+    /**
+     * Set the migrator executed by the current thread.
+     *
+     * @param name migrator name, or null to clear
+     * @return previous migrator of the thread, to be restored once the unit is completed
+     */
+    public static String setMigrator(String name) {
+        String previous = migrator.get();
+        if (name == null) {
+            migrator.remove();
+        } else {
+            migrator.set(name);
+        }
+        return previous;
+    }
+}
@@ -0,0 +1,374 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.core.util.CryptoException;
+import org.wso2.carbon.ei.migration.service.crypto.CipherEngine;
+import org.wso2.carbon.ei.migration.service.crypto.CipherTextClassifier;
+import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.ei.migration.util.Utility;
+import org.wso2.carbon.registry.core.Resource;
+import org.wso2.carbon.registry.core.exceptions.RegistryException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inventory of a dry run. The migrators walk their sources as in a real run, but
+ * {@link Utility#getNewEncryptedValue(String)} only classifies the values, so nothing is decrypted or written. The
+ * resources, their bytes and the encrypted values are counted per migrator and tenant, and the runtime of the real
+ * migration is estimated from sampled crypto and write operations.
+ */
+public class MigrationInventory {
+
+    private static final Log log = LogFactory.getLog(MigrationInventory.class);
+
+    private static final int WARM_UP = 5;
+    private static final int SAMPLES = 20;
+    private static final int MAX_SAMPLE_SIZE = 1024 * 1024;
+    private static final int MIN_RSA_CIPHER_LENGTH = 128;
+    private static final String UNKNOWN = "unknown";
+    private static final String ROW_FORMAT = "%-32s %-24s %10s %14s %8s %8s %8s %9s";
+
+    private static MigrationInventory instance = new MigrationInventory();
+
+    /**
+     * Legacy RSA values are detected from the length of the cipher text, which equals the key modulus size. Self
+     * contained cipher texts of the new format are base64 encoded JSON documents.
+     */
+    enum Encryption {
+        RSA, SELF_CONTAINED, OTHER
+    }
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Entry>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> durations = new ConcurrentHashMap<>();
+    // Resource scanned by the current thread which has not been counted as a rewrite yet
+    private final ThreadLocal<Entry> rewriteCandidate = new ThreadLocal<>();
+    private volatile boolean enabled;
+
+    private MigrationInventory() {
+    }
+
+    public static MigrationInventory getInstance() {
+        return instance;
+    }
+
+    /**
+     * Start collecting the inventory. Values passed to the migration utilities are classified instead of being
+     * re-encrypted from now on.
+     */
+    public void start() {
+        entries.clear();
+        durations.clear();
+        enabled = true;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Record a candidate resource of the current migrator and tenant. Values recorded afterwards by the same thread
+     * belong to this resource.
+     *
+     * @param bytes size of the resource
+     */
+    public void resourceScanned(long bytes) {
+        if (!enabled) {
+            return;
+        }
+        Entry entry = getEntry();
+        entry.resources.incrementAndGet();
+        entry.bytes.addAndGet(bytes);
+        rewriteCandidate.set(entry);
+    }
+
+    /**
+     * Record a candidate registry resource of the current migrator and tenant.
+     *
+     * @param resource registry resource
+     * @throws RegistryException if the content of the resource can not be read
+     */
+    public void resourceScanned(Resource resource) throws RegistryException {
+        if (!enabled) {
+            return;
+        }
+        Object content = resource.getContent();
+        long bytes = 0;
+        if (content instanceof byte[]) {
+            bytes = ((byte[]) content).length;
+        } else if (content instanceof String) {
+            bytes = ((String) content).getBytes(StandardCharsets.UTF_8).length;
+        }
+        resourceScanned(bytes);
+    }
+
+    /**
+     * Record a value which would be re-encrypted by a real run.
+     *
+     * @param value encrypted value
+     */
+    public void valueScanned(String value) {
+        if (!enabled || StringUtils.isEmpty(value)) {
+            return;
+        }
+        Entry entry = getEntry();
+        entry.values.incrementAndGet();
+        switch (classify(value)) {
+            case RSA:
+                entry.rsaValues.incrementAndGet();
+                if (rewriteCandidate.get() == entry) {
+                    entry.rewrites.incrementAndGet();
+                    rewriteCandidate.remove();
+                }
+                break;
+            case SELF_CONTAINED:
+                entry.newValues.incrementAndGet();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Record the time a migrator took to walk its sources.
+     *
+     * @param migrator migrator name
+     * @param duration duration in milliseconds
+     */
+    public void migratorCompleted(String migrator, long duration) {
+        if (enabled) {
+            durations.put(migrator, duration);
+        }
+    }
+
+    /**
+     * Stop collecting and log the inventory together with the runtime estimate.
+     *
+     * @param ioThreads number of threads used for the per tenant and per file work
+     */
+    public void logReport(int ioThreads) {
+        enabled = false;
+
+        Map<String, Entry> totals = new TreeMap<>();
+        long resources = 0;
+        long bytes = 0;
+        Set<String> migrators = new TreeSet<>(durations.keySet());
+        migrators.addAll(entries.keySet());
+
+        log.info(Constant.MIGRATION_LOG + "Dry run inventory");
+        log.info(String.format(ROW_FORMAT, "Migrator", "Tenant", "Resources", "Bytes", "Values", "RSA", "New",
+                "Rewrites"));
+        for (String migrator : migrators) {
+            Entry total = new Entry();
+            Map<String, Entry> tenants = entries.get(migrator);
+            if (tenants != null) {
+                for (Map.Entry<String, Entry> tenant : new TreeMap<>(tenants).entrySet()) {
+                    logRow(migrator, tenant.getKey(), tenant.getValue());
+                    total.add(tenant.getValue());
+                }
+            }
+            totals.put(migrator, total);
+            resources += total.resources.get();
+            bytes += total.bytes.get();
+        }
+
+        long cryptoNanos = sampleCryptoNanos();
+        long writeNanos = sampleWriteNanos(resources > 0 ? bytes / resources : 0);
+        int threads = Math.max(1, ioThreads);
+        long estimate = 0;
+        log.info(Constant.MIGRATION_LOG + "Sampled crypto cost per value: " + toMicros(cryptoNanos)
+                + ". Sampled write cost per rewritten resource: " + toMicros(writeNanos) + ".");
+        for (Map.Entry<String, Entry> total : totals.entrySet()) {
+            Long scanned = durations.get(total.getKey());
+            long scanMillis = scanned != null ? scanned : 0;
+            long cryptoMillis = toMillis(Math.max(0, cryptoNanos) * total.getValue().rsaValues.get());
+            long writeMillis = toMillis(Math.max(0, writeNanos) * total.getValue().rewrites.get());
+            long migratorEstimate = scanMillis + (cryptoMillis + writeMillis) / threads;
+            estimate += migratorEstimate;
+            log.info(Constant.MIGRATION_LOG + total.getKey() + ": " + total.getValue().resources.get()
+                    + " resources, " + total.getValue().rsaValues.get() + " RSA values. Scan " + scanMillis
+                    + " ms, crypto " + cryptoMillis + " ms, write " + writeMillis + " ms. Estimated " + migratorEstimate
+                    + " ms with " + threads + " IO threads.");
+        }
+        log.info(Constant.MIGRATION_LOG + "Dry run found " + resources + " resources of " + bytes
+                + " bytes. Estimated migration runtime with " + threads + " IO threads: " + estimate
+                + " ms, when the migrators are executed one after the other.");
+    }
+
+    private void logRow(String migrator, String tenant, Entry entry) {
+        log.info(String.format(ROW_FORMAT, migrator, tenant, entry.resources.get(), entry.bytes.get(),
+                entry.values.get(), entry.rsaValues.get(), entry.newValues.get(), entry.rewrites.get()));
+    }
+
+    private Entry getEntry() {
+        String migrator = MigrationContext.getMigrator();
+        if (migrator == null) {
+            migrator = UNKNOWN;
+        }
+        String tenant = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain();
+        if (tenant == null) {
+            tenant = String.valueOf(PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId());
+        }
+        ConcurrentMap<String, Entry> tenants = entries.get(migrator);
+        if (tenants == null) {
+            ConcurrentMap<String, Entry> created = new ConcurrentHashMap<>();
+            tenants = entries.putIfAbsent(migrator, created);
+            if (tenants == null) {
+                tenants = created;
+            }
+        }
+        Entry entry = tenants.get(tenant);
+        if (entry == null) {
+            Entry created = new Entry();
+            entry = tenants.putIfAbsent(tenant, created);
+            if (entry == null) {
+                entry = created;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Classify a value without decrypting it.
+     *
+     * @param value encrypted value
+     * @return detected encryption
+     */
+    static Encryption classify(String value) {
+        int decodedLength = CipherTextClassifier.getDecodedLength(value);
+        if (decodedLength <= 0) {
+            return Encryption.OTHER;
+        }
+        if (CipherTextClassifier.hasSelfContainedHeader(value)) {
+            return Encryption.SELF_CONTAINED;
+        }
+        if (decodedLength >= MIN_RSA_CIPHER_LENGTH && decodedLength % 64 == 0) {
+            return Encryption.RSA;
+        }
+        return Encryption.OTHER;
+    }
+
+    /**
+     * Time the crypto operations of {@link CipherEngine#reEncrypt(String)} on a sample value encrypted with
+     * the legacy algorithm.
+     *
+     * @return average nanoseconds per value, or -1 if the crypto operations are not available
+     */
+    private long sampleCryptoNanos() {
+        try {
+            String legacyValue = CipherEngine.getInstance().getProvider().encryptLegacy(
+                    "dry-run-sample".getBytes(StandardCharsets.UTF_8));
+            long elapsed = 0;
+            for (int i = 0; i < WARM_UP + SAMPLES; i++) {
+                long start = System.nanoTime();
+                CipherEngine.getInstance().reEncrypt(legacyValue);
+                if (i >= WARM_UP) {
+                    elapsed += System.nanoTime() - start;
+                }
+            }
+            return elapsed / SAMPLES;
+        } catch (CryptoException e) {
+            log.warn("Unable to sample the crypto operations. Crypto time is not estimated.", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Time synchronous writes of a file of the given size to the migration resources directory.
+     *
+     * @param size average size of the resources
+     * @return average nanoseconds per write, or -1 if the sample file can not be written
+     */
+    private long sampleWriteNanos(long size) {
+        File directory = new File(Utility.getMigrationResourceDirectoryPath());
+        byte[] content = new byte[(int) Math.max(1, Math.min(size, MAX_SAMPLE_SIZE))];
+        File file = null;
+        try {
+            if (!directory.exists() && !directory.mkdirs()) {
+                log.warn("Unable to create " + directory.getAbsolutePath() + ". Write time is not estimated.");
+                return -1;
+            }
+            file = File.createTempFile("dry-run", ".tmp", directory);
+            long elapsed = 0;
+            for (int i = 0; i < WARM_UP + SAMPLES; i++) {
+                long start = System.nanoTime();
+                FileOutputStream outputStream = new FileOutputStream(file);
+                try {
+                    outputStream.write(content);
+                    outputStream.getFD().sync();
+                } finally {
+                    outputStream.close();
+                }
+                if (i >= WARM_UP) {
+                    elapsed += System.nanoTime() - start;
+                }
+            }
+            return elapsed / SAMPLES;
+        } catch (IOException e) {
+            log.warn("Unable to sample file writes. Write time is not estimated.", e);
+            return -1;
+        } finally {
+            if (file != null && !file.delete()) {
+                log.warn("Unable to delete the sample file " + file.getAbsolutePath());
+            }
+        }
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static String toMicros(long nanos) {
+        return nanos < 0 ? "not available" : TimeUnit.NANOSECONDS.toMicros(nanos) + " us";
+    }
+
+    /**
+     * Counters of a migrator and tenant.
+     */
+    private static class Entry {
+
+        private final AtomicLong resources = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong values = new AtomicLong();
+        private final AtomicLong rsaValues = new AtomicLong();
+        private final AtomicLong newValues = new AtomicLong();
+        private final AtomicLong rewrites = new AtomicLong();
+
+        private void add(Entry other) {
+            resources.addAndGet(other.resources.get());
+            bytes.addAndGet(other.bytes.get());
+            values.addAndGet(other.values.get());
+            rsaValues.addAndGet(other.rsaValues.get());
+            newValues.addAndGet(other.newValues.get());
+            rewrites.addAndGet(other.rewrites.get());
+        }
+    }
+}
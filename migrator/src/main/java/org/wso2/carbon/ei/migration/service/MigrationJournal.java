@@ -0,0 +1,256 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.util.Constant;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Append only journal of the completed migration units. A unit is either a tenant or a resource, e.g. a file, of a
+ * migrator. Completed tenants are kept as a bit set per migrator and completed resources as a set per migrator. When
+ * a run is interrupted the journal is kept under the migration resources directory and the next run skips the
+ * completed units. A run completed without failures archives the journal, so the next run starts from scratch.
+ * <p>
+ * Journal records are tab separated lines:
+ * <pre>
+ * T  migrator  tenantId
+ * R  migrator  tenantId  resource
+ * </pre>
+ */
+public class MigrationJournal {
+
+    private static final Log log = LogFactory.getLog(MigrationJournal.class);
+
+    private static final String HEADER = "# WSO2 EI migration journal v1";
+    private static final String TENANT_RECORD = "T";
+    private static final String RESOURCE_RECORD = "R";
+    private static final char SEPARATOR = '\t';
+
+    private static volatile MigrationJournal current = new MigrationJournal(null);
+
+    private final File file;
+    private final Map<String, BitSet> completedTenants = new HashMap<>();
+    private final Map<String, Set<String>> completedResources = new HashMap<>();
+    private volatile boolean hasFailures;
+    private Writer writer;
+
+    private MigrationJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return journal of the current run. A journal which is not backed by a file is returned when no run is active.
+     */
+    public static MigrationJournal getInstance() {
+        return current;
+    }
+
+    /**
+     * Open the journal of a run. Units recorded by an interrupted previous run are loaded unless resume is disabled.
+     *
+     * @param directory directory holding the journal
+     * @param resume    load the units completed by the previous run
+     * @return opened journal
+     * @throws MigrationClientException if the journal can not be read or created
+     */
+    public static synchronized MigrationJournal open(String directory, boolean resume)
+            throws MigrationClientException {
+
+        File file = new File(directory, Constant.JOURNAL_FILE);
+        MigrationJournal journal = new MigrationJournal(file);
+        if (file.exists()) {
+            if (resume) {
+                journal.load();
+                log.info(Constant.MIGRATION_LOG + "Resuming migration from journal " + file.getAbsolutePath());
+            } else if (!file.delete()) {
+                throw new MigrationClientException("Unable to delete the journal " + file.getAbsolutePath());
+            }
+        }
+        try {
+            File parent = file.getParentFile();
+            if (!parent.exists() && !parent.mkdirs()) {
+                throw new MigrationClientException("Unable to create the directory " + parent.getAbsolutePath());
+            }
+            boolean isNew = !file.exists();
+            journal.writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8);
+            // A resumed journal starts on a new line, in case the last record was torn by a crash.
+            journal.writer.write(isNew ? HEADER + "\n" : "\n");
+            journal.writer.flush();
+        } catch (IOException e) {
+            throw new MigrationClientException("Unable to open the journal " + file.getAbsolutePath(), e);
+        }
+        current = journal;
+        return journal;
+    }
+
+    public synchronized boolean isTenantCompleted(String migrator, int tenantId) {
+        BitSet tenants = completedTenants.get(migrator);
+        return tenants != null && toIndex(tenantId) >= 0 && tenants.get(toIndex(tenantId));
+    }
+
+    public synchronized boolean isResourceCompleted(String migrator, int tenantId, String resource) {
+        Set<String> resources = completedResources.get(migrator);
+        return resources != null && resources.contains(toResourceKey(tenantId, resource));
+    }
+
+    public synchronized void tenantCompleted(String migrator, int tenantId) {
+        if (toIndex(tenantId) < 0) {
+            return;
+        }
+        BitSet tenants = completedTenants.get(migrator);
+        if (tenants == null) {
+            tenants = new BitSet();
+            completedTenants.put(migrator, tenants);
+        }
+        tenants.set(toIndex(tenantId));
+        append(TENANT_RECORD + SEPARATOR + migrator + SEPARATOR + tenantId);
+    }
+
+    public synchronized void resourceCompleted(String migrator, int tenantId, String resource) {
+        Set<String> resources = completedResources.get(migrator);
+        if (resources == null) {
+            resources = new HashSet<>();
+            completedResources.put(migrator, resources);
+        }
+        resources.add(toResourceKey(tenantId, resource));
+        append(RESOURCE_RECORD + SEPARATOR + migrator + SEPARATOR + tenantId + SEPARATOR + resource);
+    }
+
+    /**
+     * Record that a unit failed. The journal of a run with failures is kept, so the failed units are retried by the
+     * next run.
+     */
+    public void failed() {
+        hasFailures = true;
+    }
+
+    /**
+     * Close the journal. When the run completed without failures the journal is archived.
+     *
+     * @param isRunCompleted true if all the migrators were executed
+     */
+    public synchronized void close(boolean isRunCompleted) {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.error("Error while closing the journal " + file.getAbsolutePath(), e);
+            }
+            writer = null;
+        }
+        if (file != null && isRunCompleted && !hasFailures) {
+            File archive = new File(file.getParentFile(), Constant.JOURNAL_FILE + "."
+                    + new SimpleDateFormat("yyyyMMddHHmmss").format(new Date()) + ".completed");
+            if (!file.renameTo(archive)) {
+                log.warn("Unable to archive the journal " + file.getAbsolutePath());
+            }
+        } else if (file != null) {
+            log.info(Constant.MIGRATION_LOG + "Migration journal kept at " + file.getAbsolutePath()
+                    + ". The next run resumes from the completed units.");
+        }
+        current = new MigrationJournal(null);
+    }
+
+    private void append(String record) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(record);
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            log.error("Error while writing to the journal " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private void load() throws MigrationClientException {
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(String.valueOf(SEPARATOR), 4);
+                try {
+                    if (TENANT_RECORD.equals(fields[0]) && fields.length == 3) {
+                        int tenantId = Integer.parseInt(fields[2]);
+                        if (toIndex(tenantId) < 0) {
+                            continue;
+                        }
+                        BitSet tenants = completedTenants.get(fields[1]);
+                        if (tenants == null) {
+                            tenants = new BitSet();
+                            completedTenants.put(fields[1], tenants);
+                        }
+                        tenants.set(toIndex(tenantId));
+                    } else if (RESOURCE_RECORD.equals(fields[0]) && fields.length == 4) {
+                        int tenantId = Integer.parseInt(fields[2]);
+                        Set<String> resources = completedResources.get(fields[1]);
+                        if (resources == null) {
+                            resources = new HashSet<>();
+                            completedResources.put(fields[1], resources);
+                        }
+                        resources.add(toResourceKey(tenantId, fields[3]));
+                    }
+                } catch (NumberFormatException e) {
+                    // A record torn by a crash. The unit is migrated again.
+                    log.warn("Ignoring incomplete journal record: " + line);
+                }
+            }
+        } catch (IOException e) {
+            throw new MigrationClientException("Unable to read the journal " + file.getAbsolutePath(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    log.error("Error occurred while closing the journal", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tenant ids start from one, so the super tenant is mapped to the otherwise unused index zero. Any other
+     * negative id is not a valid tenant and is never recorded.
+     */
+    private static int toIndex(int tenantId) {
+        return tenantId == Constant.SUPER_TENANT_ID ? 0 : tenantId;
+    }
+
+    private static String toResourceKey(int tenantId, String resource) {
+        return tenantId + ":" + resource;
+    }
+}
@@ -0,0 +1,321 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.util.Constant;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of the running migration, registered as an MBean for the duration of the run. Every unit passes through
+ * {@link #beginUnit()} and {@link #endUnit()}, which block while the migration is paused or the concurrency limit is
+ * reached, and fail once the migration is cancelled.
+ */
+public class MigrationProgress implements MigrationProgressMBean {
+
+    private static final Log log = LogFactory.getLog(MigrationProgress.class);
+
+    public static final String OBJECT_NAME = "org.wso2.carbon.ei.migration:type=MigrationProgress";
+
+    private static MigrationProgress instance = new MigrationProgress();
+
+    private final Object lock = new Object();
+    private final List<String> currentMigrators = new CopyOnWriteArrayList<>();
+    private final Map<Thread, String> currentTenants = new ConcurrentHashMap<>();
+    // Units held by the current thread, so that nested units do not wait for a permit held by their parent
+    private final ThreadLocal<Integer> heldUnits = new ThreadLocal<>();
+    private final AtomicInteger completedMigrators = new AtomicInteger();
+    private final AtomicLong completedUnits = new AtomicLong();
+    private final AtomicLong failedUnits = new AtomicLong();
+    private final AtomicLong totalUnits = new AtomicLong();
+    private volatile int totalMigrators;
+    private volatile long startTime;
+    private volatile boolean paused;
+    private volatile boolean cancelled;
+    private int concurrency;
+    private int activeUnits;
+
+    private MigrationProgress() {
+    }
+
+    public static MigrationProgress getInstance() {
+        return instance;
+    }
+
+    /**
+     * Reset the progress and register the MBean.
+     *
+     * @param migrators number of migrators of the run
+     */
+    public void start(int migrators) {
+        synchronized (lock) {
+            currentMigrators.clear();
+            currentTenants.clear();
+            completedMigrators.set(0);
+            completedUnits.set(0);
+            failedUnits.set(0);
+            totalUnits.set(0);
+            totalMigrators = migrators;
+            startTime = System.currentTimeMillis();
+            paused = false;
+            cancelled = false;
+            concurrency = 0;
+            activeUnits = 0;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            log.warn("Unable to register the migration progress MBean. The run can not be managed over JMX.", e);
+        }
+    }
+
+    /**
+     * Unregister the MBean.
+     */
+    public void stop() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            log.warn("Unable to unregister the migration progress MBean", e);
+        }
+    }
+
+    public void migratorStarted(String migrator) {
+        currentMigrators.add(migrator);
+    }
+
+    public void migratorCompleted(String migrator) {
+        currentMigrators.remove(migrator);
+        completedMigrators.incrementAndGet();
+    }
+
+    /**
+     * Record units discovered by a migrator.
+     *
+     * @param units number of units
+     */
+    public void unitsDiscovered(int units) {
+        totalUnits.addAndGet(units);
+    }
+
+    /**
+     * Wait until a unit can be started on the current thread.
+     *
+     * @throws MigrationClientException if the migration is cancelled or the thread is interrupted
+     */
+    public void beginUnit() throws MigrationClientException {
+        Integer held = heldUnits.get();
+        if (held != null) {
+            heldUnits.set(held + 1);
+            return;
+        }
+        synchronized (lock) {
+            try {
+                while (!cancelled && (paused || (concurrency > 0 && activeUnits >= concurrency))) {
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MigrationClientException("Interrupted while waiting to start a migration unit", e);
+            }
+            if (cancelled) {
+                throw new MigrationClientException("Migration was cancelled");
+            }
+            activeUnits++;
+        }
+        heldUnits.set(1);
+        String tenant = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain();
+        if (tenant != null) {
+            currentTenants.put(Thread.currentThread(), tenant);
+        }
+    }
+
+    /**
+     * Complete the unit started by {@link #beginUnit()} on the current thread.
+     *
+     * @param isSuccessful true if the unit was migrated
+     */
+    public void endUnit(boolean isSuccessful) {
+        Integer held = heldUnits.get();
+        if (held == null) {
+            return;
+        }
+        if (held > 1) {
+            heldUnits.set(held - 1);
+            return;
+        }
+        heldUnits.remove();
+        currentTenants.remove(Thread.currentThread());
+        synchronized (lock) {
+            activeUnits--;
+            lock.notifyAll();
+        }
+        if (isSuccessful) {
+            completedUnits.incrementAndGet();
+        } else {
+            failedUnits.incrementAndGet();
+        }
+    }
+
+    /**
+     * Wait while the migration is paused.
+     *
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public void awaitResume() throws InterruptedException {
+        synchronized (lock) {
+            while (paused && !cancelled) {
+                lock.wait();
+            }
+        }
+    }
+
+    @Override
+    public String[] getCurrentMigrators() {
+        return currentMigrators.toArray(new String[0]);
+    }
+
+    @Override
+    public String[] getCurrentTenants() {
+        List<String> tenants = new ArrayList<>();
+        for (String tenant : currentTenants.values()) {
+            if (!tenants.contains(tenant)) {
+                tenants.add(tenant);
+            }
+        }
+        return tenants.toArray(new String[tenants.size()]);
+    }
+
+    @Override
+    public int getCompletedMigrators() {
+        return completedMigrators.get();
+    }
+
+    @Override
+    public int getTotalMigrators() {
+        return totalMigrators;
+    }
+
+    @Override
+    public long getCompletedUnits() {
+        return completedUnits.get();
+    }
+
+    @Override
+    public long getFailedUnits() {
+        return failedUnits.get();
+    }
+
+    @Override
+    public long getTotalUnits() {
+        return totalUnits.get();
+    }
+
+    @Override
+    public double getThroughput() {
+        long elapsed = System.currentTimeMillis() - startTime;
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return (completedUnits.get() + failedUnits.get()) * 1000.0 / elapsed;
+    }
+
+    @Override
+    public long getEtaSeconds() {
+        double throughput = getThroughput();
+        if (throughput <= 0) {
+            return -1;
+        }
+        long remaining = totalUnits.get() - completedUnits.get() - failedUnits.get();
+        return (long) Math.ceil(Math.max(0, remaining) / throughput);
+    }
+
+    @Override
+    public boolean isPaused() {
+        return paused;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public int getConcurrency() {
+        synchronized (lock) {
+            return concurrency;
+        }
+    }
+
+    @Override
+    public void setConcurrency(int concurrency) {
+        synchronized (lock) {
+            this.concurrency = Math.max(0, concurrency);
+            lock.notifyAll();
+        }
+        log.info(Constant.MIGRATION_LOG + "Migration concurrency set to "
+                + (concurrency > 0 ? String.valueOf(concurrency) : "the thread pool size"));
+    }
+
+    @Override
+    public void pause() {
+        synchronized (lock) {
+            paused = true;
+        }
+        log.info(Constant.MIGRATION_LOG + "Migration paused. Running units are completed.");
+    }
+
+    @Override
+    public void resume() {
+        synchronized (lock) {
+            paused = false;
+            lock.notifyAll();
+        }
+        log.info(Constant.MIGRATION_LOG + "Migration resumed.");
+    }
+
+    @Override
+    public void cancel() {
+        synchronized (lock) {
+            cancelled = true;
+            lock.notifyAll();
+        }
+        log.info(Constant.MIGRATION_LOG + "Migration cancelled. Running units are completed.");
+    }
+}
@@ -0,0 +1,82 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service;
+
+/**
+ * Management interface of a running migration. A unit is a tenant or a resource, e.g. a file, processed by a
+ * migrator. The total number of units grows while the migrators discover their work.
+ */
+public interface MigrationProgressMBean {
+
+    /**
+     * @return names of the running migrators
+     */
+    String[] getCurrentMigrators();
+
+    /**
+     * @return tenant domains of the units being processed
+     */
+    String[] getCurrentTenants();
+
+    int getCompletedMigrators();
+
+    int getTotalMigrators();
+
+    long getCompletedUnits();
+
+    long getFailedUnits();
+
+    long getTotalUnits();
+
+    /**
+     * @return completed units per second since the start of the run
+     */
+    double getThroughput();
+
+    /**
+     * @return estimated seconds until the discovered units are completed, or -1 if not known yet
+     */
+    long getEtaSeconds();
+
+    boolean isPaused();
+
+    boolean isCancelled();
+
+    /**
+     * @return maximum number of units processed at the same time, 0 if only the thread pools limit it
+     */
+    int getConcurrency();
+
+    /**
+     * Change the maximum number of units processed at the same time. Units already running are not interrupted. The
+     * limit can not exceed the size of the configured thread pools.
+     *
+     * @param concurrency maximum number of concurrent units, 0 to remove the limit
+     */
+    void setConcurrency(int concurrency);
+
+    /**
+     * Stop starting new units and migrators. Running units are completed.
+     */
+    void pause();
+
+    void resume();
+
+    /**
+     * Cancel the migration. Units which are not started yet fail, so the journal keeps them for the next run.
+     */
+    void cancel();
+}
@@ -0,0 +1,359 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics;
+import org.wso2.carbon.ei.migration.util.Constant;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Structured report of a migration run. Timings and the scanned, migrated, skipped and failed counts are collected
+ * per migrator and tenant. The report is written as JSON to the migration resources directory at the end of every
+ * run, together with the failure reasons, the peak heap usage and the migration metrics.
+ */
+public class MigrationReport {
+
+    private static final Log log = LogFactory.getLog(MigrationReport.class);
+
+    private static final String UNKNOWN = "unknown";
+    private static final int MAX_FAILURES = 1000;
+
+    private static MigrationReport instance = new MigrationReport();
+
+    /**
+     * Outcome of a run.
+     */
+    public enum Status {
+        COMPLETED, FAILED, CANCELLED
+    }
+
+    private final ConcurrentMap<String, MigratorEntry> migrators = new ConcurrentHashMap<>();
+    private volatile long startTime;
+
+    private MigrationReport() {
+    }
+
+    public static MigrationReport getInstance() {
+        return instance;
+    }
+
+    /**
+     * Start a new report. The peak usage of the heap memory pools is reset.
+     */
+    public void start() {
+        migrators.clear();
+        startTime = System.currentTimeMillis();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Record the completion of a migrator.
+     *
+     * @param migrator migrator name
+     * @param duration duration in milliseconds
+     * @param error    error of the migrator, null if it was successful
+     */
+    public void migratorCompleted(String migrator, long duration, Throwable error) {
+        MigratorEntry entry = getMigrator(migrator);
+        entry.duration = duration;
+        entry.error = error != null ? String.valueOf(error.getMessage()) : null;
+    }
+
+    /**
+     * Record a unit executed by the current thread.
+     *
+     * @param item          description of the unit
+     * @param durationNanos duration of the unit
+     * @param error         error of the unit, null if it was successful
+     */
+    public void unitCompleted(String item, long durationNanos, Throwable error) {
+        MigratorEntry migrator = getMigrator(getCurrentMigrator());
+        TenantEntry tenant = migrator.getTenant(getCurrentTenant());
+        tenant.scanned.incrementAndGet();
+        tenant.nanos.addAndGet(durationNanos);
+        if (error != null) {
+            tenant.failed.incrementAndGet();
+            migrator.addFailure(item, getCurrentTenant(), error);
+        }
+    }
+
+    /**
+     * Record units of the current tenant skipped by the current migrator.
+     *
+     * @param count number of skipped units
+     */
+    public void unitsSkipped(int count) {
+        getMigrator(getCurrentMigrator()).getTenant(getCurrentTenant()).skipped.addAndGet(count);
+    }
+
+    /**
+     * Record units of the given tenant skipped by the current migrator.
+     *
+     * @param tenantDomain tenant domain
+     * @param count        number of skipped units
+     */
+    public void unitsSkipped(String tenantDomain, int count) {
+        getMigrator(getCurrentMigrator()).getTenant(tenantDomain).skipped.addAndGet(count);
+    }
+
+    /**
+     * Record a value migrated by the current migrator in the current tenant.
+     */
+    public void valueMigrated() {
+        getMigrator(getCurrentMigrator()).getTenant(getCurrentTenant()).migrated.incrementAndGet();
+    }
+
+    /**
+     * Record a value of the current migrator in the current tenant which is kept as it is, as it is not encrypted.
+     */
+    public void valuePlaintext() {
+        getMigrator(getCurrentMigrator()).getTenant(getCurrentTenant()).plaintext.incrementAndGet();
+    }
+
+    /**
+     * @param status outcome of the run
+     * @param dryRun true if the run was a dry run
+     * @return the report
+     */
+    public JSONObject toJSON(Status status, boolean dryRun) {
+        long endTime = System.currentTimeMillis();
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+        JSONObject report = new JSONObject()
+                .put("status", status.name())
+                .put("dryRun", dryRun)
+                .put("startTime", format.format(new Date(startTime)))
+                .put("endTime", format.format(new Date(endTime)))
+                .put("durationMillis", endTime - startTime)
+                .put("configuration", getConfiguration())
+                .put("memory", getMemory());
+
+        JSONObject migratorReports = new JSONObject();
+        for (Map.Entry<String, MigratorEntry> entry : new TreeMap<>(migrators).entrySet()) {
+            migratorReports.put(entry.getKey(), entry.getValue().toJSON());
+        }
+        report.put("migrators", migratorReports);
+        report.put("metrics", MigrationMetrics.getInstance().toJSON());
+        return report;
+    }
+
+    /**
+     * Write the report to a time stamped file in the given directory.
+     *
+     * @param directory directory of the report
+     * @param status    outcome of the run
+     * @param dryRun    true if the run was a dry run
+     */
+    public void write(String directory, Status status, boolean dryRun) {
+        File file = new File(directory, Constant.REPORT_FILE_PREFIX
+                + new SimpleDateFormat("yyyyMMddHHmmss").format(new Date(startTime)) + ".json");
+        OutputStream outputStream = null;
+        try {
+            if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+                log.warn("Unable to create the directory " + file.getParent() + " for the migration report");
+                return;
+            }
+            outputStream = new FileOutputStream(file);
+            outputStream.write(toJSON(status, dryRun).toString(2).getBytes(StandardCharsets.UTF_8));
+            log.info(Constant.MIGRATION_LOG + "Migration report written to " + file.getAbsolutePath());
+        } catch (IOException e) {
+            log.error("Error while writing the migration report to " + file.getAbsolutePath(), e);
+        } finally {
+            if (outputStream != null) {
+                try {
+                    outputStream.close();
+                } catch (IOException e) {
+                    log.error("Error occurred while closing the output stream", e);
+                }
+            }
+        }
+    }
+
+    private static JSONObject getConfiguration() {
+        JSONObject configuration = new JSONObject();
+        for (String property : new String[]{Constant.MIGRATOR_THREADS, Constant.IO_STRATEGY, Constant.IO_THREADS,
+                Constant.CPU_STRATEGY, Constant.CPU_THREADS, Constant.INLINE_BATCH_SIZE, Constant.RESUME,
+                Constant.DRY_RUN, Constant.IGNORE_INACTIVE_TENANTS}) {
+            String value = System.getProperty(property);
+            if (value != null) {
+                configuration.put(property, value);
+            }
+        }
+        configuration.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        configuration.put("javaVersion", System.getProperty("java.version"));
+        return configuration;
+    }
+
+    private static JSONObject getMemory() {
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid() && pool.getPeakUsage() != null) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return new JSONObject()
+                .put("peakHeapBytes", peakHeap)
+                .put("usedHeapBytes", runtime.totalMemory() - runtime.freeMemory())
+                .put("maxHeapBytes", runtime.maxMemory());
+    }
+
+    private MigratorEntry getMigrator(String name) {
+        MigratorEntry entry = migrators.get(name);
+        if (entry == null) {
+            MigratorEntry created = new MigratorEntry();
+            entry = migrators.putIfAbsent(name, created);
+            if (entry == null) {
+                entry = created;
+            }
+        }
+        return entry;
+    }
+
+    private static String getCurrentMigrator() {
+        String migrator = MigrationContext.getMigrator();
+        return migrator != null ? migrator : UNKNOWN;
+    }
+
+    private static String getCurrentTenant() {
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        String tenant = carbonContext.getTenantDomain();
+        return tenant != null ? tenant : String.valueOf(carbonContext.getTenantId());
+    }
+
+    /**
+     * Report of a migrator.
+     */
+    private static class MigratorEntry {
+
+        private final ConcurrentMap<String, TenantEntry> tenants = new ConcurrentHashMap<>();
+        private final List<JSONObject> failures = new ArrayList<>();
+        private final AtomicLong droppedFailures = new AtomicLong();
+        private volatile long duration = -1;
+        private volatile String error;
+
+        private TenantEntry getTenant(String domain) {
+            TenantEntry entry = tenants.get(domain);
+            if (entry == null) {
+                TenantEntry created = new TenantEntry();
+                entry = tenants.putIfAbsent(domain, created);
+                if (entry == null) {
+                    entry = created;
+                }
+            }
+            return entry;
+        }
+
+        private void addFailure(String item, String tenant, Throwable error) {
+            synchronized (failures) {
+                if (failures.size() >= MAX_FAILURES) {
+                    droppedFailures.incrementAndGet();
+                    return;
+                }
+                failures.add(new JSONObject()
+                        .put("item", item)
+                        .put("tenant", tenant)
+                        .put("error", error.getClass().getName())
+                        .put("reason", String.valueOf(error.getMessage())));
+            }
+        }
+
+        private JSONObject toJSON() {
+            TenantEntry total = new TenantEntry();
+            JSONObject tenantReports = new JSONObject();
+            for (Map.Entry<String, TenantEntry> entry : new TreeMap<>(tenants).entrySet()) {
+                tenantReports.put(entry.getKey(), entry.getValue().toJSON());
+                total.add(entry.getValue());
+            }
+            JSONObject report = total.toJSON()
+                    .put("durationMillis", duration)
+                    .put("status", error == null ? "COMPLETED" : "FAILED")
+                    .put("tenants", tenantReports);
+            if (error != null) {
+                report.put("error", error);
+            }
+            JSONArray failureReports = new JSONArray();
+            synchronized (failures) {
+                for (JSONObject failure : failures) {
+                    failureReports.put(failure);
+                }
+            }
+            report.put("failures", failureReports);
+            if (droppedFailures.get() > 0) {
+                report.put("failuresNotReported", droppedFailures.get());
+            }
+            return report;
+        }
+    }
+
+    /**
+     * Counters and timings of a migrator in a tenant.
+     */
+    private static class TenantEntry {
+
+        private final AtomicLong scanned = new AtomicLong();
+        private final AtomicLong migrated = new AtomicLong();
+        private final AtomicLong plaintext = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+
+        private void add(TenantEntry other) {
+            scanned.addAndGet(other.scanned.get());
+            migrated.addAndGet(other.migrated.get());
+            plaintext.addAndGet(other.plaintext.get());
+            skipped.addAndGet(other.skipped.get());
+            failed.addAndGet(other.failed.get());
+            nanos.addAndGet(other.nanos.get());
+        }
+
+        private JSONObject toJSON() {
+            return new JSONObject()
+                    .put("scanned", scanned.get())
+                    .put("migrated", migrated.get())
+                    .put("plaintext", plaintext.get())
+                    .put("skipped", skipped.get())
+                    .put("failed", failed.get())
+                    .put("unitMillis", TimeUnit.NANOSECONDS.toMillis(nanos.get()));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A registry or file system subtree which is modified by a {@link Migrator}. File system paths are relative to the
+ * carbon home and a "*" segment matches any single path segment, e.g. repository/tenants/*&#47;userstores.
+ */
+public class MigrationResource {
+
+    /**
+     * Storage which holds the resource.
+     */
+    public enum Type {
+        REGISTRY, FILE_SYSTEM
+    }
+
+    private static final String WILDCARD = "*";
+
+    private final Type type;
+    private final List<String> segments;
+
+    private MigrationResource(Type type, String path) {
+        this.type = type;
+        this.segments = new ArrayList<>();
+        for (String segment : path.replace('\\', '/').split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+    }
+
+    public static MigrationResource registry(String... paths) {
+        return new MigrationResource(Type.REGISTRY, join(paths));
+    }
+
+    public static MigrationResource fileSystem(String... paths) {
+        return new MigrationResource(Type.FILE_SYSTEM, join(paths));
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getPath() {
+        return join(segments.toArray(new String[segments.size()]));
+    }
+
+    /**
+     * Two resources conflict when they live in the same storage and one of them is located inside the other.
+     *
+     * @param other resource to compare with
+     * @return true if both resources may be modified at the same location
+     */
+    public boolean conflictsWith(MigrationResource other) {
+        if (type != other.type) {
+            return false;
+        }
+        int common = Math.min(segments.size(), other.segments.size());
+        for (int i = 0; i < common; i++) {
+            String segment = segments.get(i);
+            String otherSegment = other.segments.get(i);
+            if (!WILDCARD.equals(segment) && !WILDCARD.equals(otherSegment) && !segment.equals(otherSegment)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String join(String... paths) {
+        StringBuilder builder = new StringBuilder();
+        for (String path : paths) {
+            builder.append('/').append(path);
+        }
+        return builder.toString().replaceAll("/+", "/");
+    }
+
+    @Override
+    public String toString() {
+        return type + ":" + getPath();
+    }
+}
@@ -15,17 +15,351 @@
 */
 package org.wso2.carbon.ei.migration.service;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.internal.MigrationServiceDataHolder;
+import org.wso2.carbon.ei.migration.service.execution.ExecutionStrategy;
+import org.wso2.carbon.ei.migration.service.execution.ExecutionStrategyFactory;
+import org.wso2.carbon.ei.migration.service.execution.WorkResult;
+import org.wso2.carbon.ei.migration.service.execution.WorkTask;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.ResourceType;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.Stage;
+import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.ei.migration.util.Utility;
+import org.wso2.carbon.user.api.Tenant;
+import org.wso2.carbon.user.api.UserStoreException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.wso2.carbon.base.MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+import static org.wso2.carbon.base.MultitenantConstants.SUPER_TENANT_ID;
 
 /**
  * Abstract class for Migrator contract. All migration implementation should be implemented from this class.
  */
 public abstract class Migrator {
 
+    private static final Log log = LogFactory.getLog(Migrator.class);
+
+    /**
+     * Name used to identify the migrator in logs and in dependency declarations of other migrators.
+     *
+     * @return migrator name
+     */
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Names of the migrators which have to be completed before this migrator is started.
+     *
+     * @return list of migrator names
+     */
+    public List<String> getDependencies() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Registry and file system locations modified by this migrator. Migrators whose resources do not overlap are
+     * executed concurrently. A migrator which does not declare any resource is executed exclusively.
+     *
+     * @return list of resources touched by this migrator
+     */
+    public List<MigrationResource> getResources() {
+        return Collections.emptyList();
+    }
+
     /**
      * Migrator specific implementation.
      *
      */
     public abstract void migrate() throws MigrationClientException;
 
-}
\ No newline at end of file
+    /**
+     * Strategy used to execute the per tenant and per file work of the migrator.
+     *
+     * @return execution strategy for registry and file system bound work
+     */
+    protected ExecutionStrategy getExecutionStrategy() {
+        return ExecutionStrategyFactory.getStrategy(ExecutionStrategyFactory.Workload.IO);
+    }
+
+    /**
+     * Execute the task for every tenant, each within the flow of the tenant.
+     *
+     * @param tenants tenants to process
+     * @param task    task to execute per tenant
+     * @return results in the order of the given tenants
+     * @throws MigrationClientException if interrupted while waiting for the tenants
+     */
+    protected List<WorkResult<Tenant>> forEachTenant(List<Tenant> tenants, final WorkTask<Tenant> task)
+            throws MigrationClientException {
+
+        final MigrationJournal journal = MigrationJournal.getInstance();
+        List<Tenant> pending = new ArrayList<>(tenants.size());
+        for (Tenant tenant : tenants) {
+            if (!journal.isTenantCompleted(getName(), tenant.getId())) {
+                pending.add(tenant);
+            } else {
+                MigrationReport.getInstance().unitsSkipped(tenant.getDomain(), 1);
+            }
+        }
+        if (pending.size() < tenants.size()) {
+            log.info(getName() + " skips " + (tenants.size() - pending.size())
+                    + " tenants completed by a previous run");
+        }
+        MigrationProgress.getInstance().unitsDiscovered(pending.size());
+        return new TenantFlowExecutor(getExecutionStrategy()).execute(pending, new WorkTask<Tenant>() {
+            @Override
+            public void execute(Tenant tenant) throws Exception {
+                executeUnit(tenant, task);
+                journal.tenantCompleted(getName(), tenant.getId());
+            }
+        });
+    }
+
+    /**
+     * Execute the task for the resources of every tenant, e.g. the configuration files of the tenant. The resources
+     * of a tenant are listed and processed within the flow of the tenant, so they are journaled and reported under
+     * the tenant. A tenant is only completed when all of its resources are migrated.
+     *
+     * @param tenants     tenants to process
+     * @param lister      lists the resources of a tenant
+     * @param task        task to execute per resource
+     * @param description description of the work used in log messages
+     * @return results in the order of the given tenants
+     * @throws MigrationClientException if interrupted while waiting for the tenants
+     */
+    protected <T> List<WorkResult<Tenant>> forEachTenantResource(List<Tenant> tenants, final ResourceLister<T> lister,
+                                                                 final WorkTask<T> task, final String description)
+            throws MigrationClientException {
+
+        return forEachTenant(tenants, new WorkTask<Tenant>() {
+            @Override
+            public void execute(Tenant tenant) throws Exception {
+                long start = System.nanoTime();
+                List<T> resources = lister.list(tenant);
+                MigrationMetrics.getInstance().record(ResourceType.FILE, Stage.LIST, start);
+                int failed = logResults(forEach(resources, task), description);
+                if (failed > 0) {
+                    throw new MigrationClientException(description + " migration failed for " + failed + " of "
+                            + resources.size() + " resources of " + describe(tenant));
+                }
+            }
+        });
+    }
+
+    /**
+     * Execute the task for every item within the tenant flow of the calling thread.
+     *
+     * @param items items to process, e.g. files
+     * @param task  task to execute per item
+     * @return results in the order of the given items
+     * @throws MigrationClientException if interrupted while waiting for the items
+     */
+    protected <T> List<WorkResult<T>> forEach(List<T> items, final WorkTask<T> task)
+            throws MigrationClientException {
+
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        final int tenantId = carbonContext.getTenantId();
+        final MigrationJournal journal = MigrationJournal.getInstance();
+        List<T> pending = new ArrayList<>(items.size());
+        for (T item : items) {
+            if (!journal.isResourceCompleted(getName(), tenantId, getResourceKey(item))) {
+                pending.add(item);
+            }
+        }
+        if (pending.size() < items.size()) {
+            log.info(getName() + " skips " + (items.size() - pending.size())
+                    + " resources completed by a previous run");
+            MigrationReport.getInstance().unitsSkipped(items.size() - pending.size());
+        }
+        MigrationProgress.getInstance().unitsDiscovered(pending.size());
+        final WorkTask<T> resourceTask = new WorkTask<T>() {
+            @Override
+            public void execute(T item) throws Exception {
+                MigrationInventory.getInstance().resourceScanned(item instanceof File ? ((File) item).length() : 0);
+                MigrationMetrics.getInstance().itemScanned(getResourceType(item));
+                task.execute(item);
+            }
+        };
+        return new TenantFlowExecutor(getExecutionStrategy()).execute(pending, tenantId,
+                carbonContext.getTenantDomain(), new WorkTask<T>() {
+                    @Override
+                    public void execute(T item) throws Exception {
+                        executeUnit(item, resourceTask);
+                        journal.resourceCompleted(getName(), tenantId, getResourceKey(item));
+                    }
+                });
+    }
+
+    /**
+     * Execute a unit of this migrator on the current thread. The unit waits while the migration is paused or the
+     * concurrency limit is reached, and fails if the migration is cancelled.
+     */
+    private <T> void executeUnit(T item, WorkTask<T> task) throws Exception {
+        MigrationProgress progress = MigrationProgress.getInstance();
+        String previous = MigrationContext.setMigrator(getName());
+        long start = System.nanoTime();
+        try {
+            progress.beginUnit();
+            boolean isSuccessful = false;
+            try {
+                task.execute(item);
+                isSuccessful = true;
+            } finally {
+                progress.endUnit(isSuccessful);
+            }
+            MigrationReport.getInstance().unitCompleted(describe(item), System.nanoTime() - start, null);
+        } catch (Exception e) {
+            MigrationJournal.getInstance().failed();
+            MigrationReport.getInstance().unitCompleted(describe(item), System.nanoTime() - start, e);
+            throw e;
+        } finally {
+            MigrationContext.setMigrator(previous);
+        }
+    }
+
+    /**
+     * Super tenant followed by the tenants registered in the realm. When the tenants can not be retrieved, only the
+     * super tenant is returned.
+     *
+     * @param activeTenantsOnly skip the inactive tenants
+     * @return tenants to be migrated
+     */
+    protected List<Tenant> getTenants(boolean activeTenantsOnly) {
+
+        List<Tenant> tenants = new ArrayList<>();
+        if (isTenantSelected(SUPER_TENANT_ID, SUPER_TENANT_DOMAIN_NAME)) {
+            tenants.add(getSuperTenant());
+        }
+        try {
+            for (Tenant tenant : MigrationServiceDataHolder.getRealmService().getTenantManager().getAllTenants()) {
+                if (activeTenantsOnly && !tenant.isActive()) {
+                    log.info("Tenant " + tenant.getDomain() + " is inactive. Skipping " + getName() + " migration!");
+                    continue;
+                }
+                if (!isTenantSelected(tenant.getId(), tenant.getDomain())) {
+                    continue;
+                }
+                tenants.add(tenant);
+            }
+        } catch (UserStoreException e) {
+            log.error("Error while retrieving tenants. Only the super tenant is migrated by " + getName(), e);
+        }
+        return tenants;
+    }
+
+    /**
+     * Check whether a tenant is selected for the run. Tenants are selected by their id or domain with
+     * -Dmigrate.tenants and -Dmigrate.excludeTenants. All the tenants are selected when neither is set.
+     *
+     * @param tenantId     tenant id
+     * @param tenantDomain tenant domain, null if it is not known
+     * @return true if the tenant should be migrated
+     */
+    protected boolean isTenantSelected(int tenantId, String tenantDomain) {
+        Set<String> include = Utility.getListProperty(Constant.TENANTS);
+        Set<String> exclude = Utility.getListProperty(Constant.EXCLUDE_TENANTS);
+        String id = String.valueOf(tenantId);
+        if (!include.isEmpty() && !include.contains(id) && !include.contains(tenantDomain)) {
+            return false;
+        }
+        return !exclude.contains(id) && !exclude.contains(tenantDomain);
+    }
+
+    /**
+     * @return true if -DignoreInactiveTenants is set
+     */
+    protected boolean isIgnoreInactiveTenants() {
+        return Boolean.parseBoolean(System.getProperty(Constant.IGNORE_INACTIVE_TENANTS));
+    }
+
+    protected Tenant getSuperTenant() {
+        Tenant superTenant = new Tenant();
+        superTenant.setId(SUPER_TENANT_ID);
+        superTenant.setDomain(SUPER_TENANT_DOMAIN_NAME);
+        superTenant.setActive(true);
+        return superTenant;
+    }
+
+    /**
+     * Lists the resources of a tenant processed by {@link #forEachTenantResource}.
+     *
+     * @param <T> resource type
+     */
+    protected interface ResourceLister<T> {
+
+        List<T> list(Tenant tenant) throws Exception;
+    }
+
+    /**
+     * Log the outcome of the executed work.
+     *
+     * @param results     results of the work
+     * @param description description of the work used in log messages
+     * @return number of failed items
+     */
+    protected <T> int logResults(List<WorkResult<T>> results, String description) {
+        int failed = 0;
+        for (WorkResult<T> result : results) {
+            String item = describe(result.getItem());
+            if (result.isSuccessful()) {
+                log.info(description + " migrated for : " + item + " in " + result.getDuration() + " ms");
+            } else {
+                failed++;
+                log.error("Error while migrating " + description + " for : " + item, result.getError());
+            }
+        }
+        if (failed > 0) {
+            log.error(description + " migration failed for " + failed + " of " + results.size() + " items");
+        }
+        return failed;
+    }
+
+    /**
+     * Key identifying a work item in the migration journal.
+     *
+     * @param item work item
+     * @return key which is unique within the tenant and the migrator
+     */
+    protected String getResourceKey(Object item) {
+        if (item instanceof File) {
+            return ((File) item).getAbsolutePath();
+        }
+        return describe(item);
+    }
+
+    /**
+     * Type of a work item used in the migration metrics.
+     *
+     * @param item work item
+     * @return resource type of the item
+     */
+    protected ResourceType getResourceType(Object item) {
+        return ResourceType.FILE;
+    }
+
+    /**
+     * Readable name of a work item used in log messages.
+     *
+     * @param item work item
+     * @return item description
+     */
+    protected String describe(Object item) {
+        if (item instanceof Tenant) {
+            return "tenant " + ((Tenant) item).getDomain();
+        } else if (item instanceof File) {
+            return ((File) item).getAbsolutePath();
+        }
+        return String.valueOf(item);
+    }
+
+}
@@ -0,0 +1,238 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.util.Constant;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.wso2.carbon.base.MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+import static org.wso2.carbon.base.MultitenantConstants.SUPER_TENANT_ID;
+
+/**
+ * Executes migrators on a bounded pool. A migrator is started once all its dependencies are completed and none of
+ * the running migrators touches an overlapping resource. Migrators are considered in list order, so a pool of
+ * size one behaves like the sequential execution.
+ */
+public class MigratorScheduler {
+
+    private static final Log log = LogFactory.getLog(MigratorScheduler.class);
+
+    private final int parallelism;
+
+    public MigratorScheduler(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Run the given migrators. When a migrator fails no further migrators are started, the running ones are allowed
+     * to complete and the first failure is thrown.
+     *
+     * @param migrators migrators to execute
+     * @throws MigrationClientException if a migrator failed or the dependencies can not be resolved
+     */
+    public void execute(List<Migrator> migrators) throws MigrationClientException {
+
+        Set<String> names = new HashSet<>();
+        for (Migrator migrator : migrators) {
+            names.add(migrator.getName());
+        }
+        for (Migrator migrator : migrators) {
+            for (String dependency : migrator.getDependencies()) {
+                if (!names.contains(dependency)) {
+                    log.warn(Constant.MIGRATION_LOG + "Dependency " + dependency + " of " + migrator.getName()
+                            + " is not scheduled for this run. Ignoring the dependency.");
+                }
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, migrators.size())),
+                new MigratorThreadFactory());
+        CompletionService<Migrator> completionService = new ExecutorCompletionService<>(executor);
+        List<Migrator> pending = new ArrayList<>(migrators);
+        List<Migrator> running = new ArrayList<>();
+        Map<Future<Migrator>, Migrator> futures = new HashMap<>();
+        Set<String> completed = new HashSet<>();
+        MigrationClientException failure = null;
+        MigrationProgress progress = MigrationProgress.getInstance();
+
+        try {
+            while (!pending.isEmpty() || !running.isEmpty()) {
+                if (failure == null && !pending.isEmpty()) {
+                    progress.awaitResume();
+                    if (progress.isCancelled()) {
+                        failure = new MigrationClientException("Migration was cancelled. Not started migrators: "
+                                + getNames(pending));
+                    }
+                }
+                if (failure == null) {
+                    Iterator<Migrator> iterator = pending.iterator();
+                    while (running.size() < parallelism && iterator.hasNext()) {
+                        Migrator migrator = iterator.next();
+                        if (isReady(migrator, names, completed) && !conflictsWithRunning(migrator, running)) {
+                            iterator.remove();
+                            running.add(migrator);
+                            futures.put(completionService.submit(new MigratorTask(migrator)), migrator);
+                        }
+                    }
+                }
+                if (running.isEmpty()) {
+                    if (failure == null) {
+                        failure = new MigrationClientException("Unable to resolve the dependencies of migrators: "
+                                + getNames(pending));
+                    }
+                    break;
+                }
+
+                Future<Migrator> future = completionService.take();
+                Migrator migrator = futures.remove(future);
+                running.remove(migrator);
+                try {
+                    future.get();
+                    completed.add(migrator.getName());
+                } catch (ExecutionException e) {
+                    log.error(Constant.MIGRATION_LOG + "Migrator " + migrator.getName() + " failed.", e.getCause());
+                    if (failure == null) {
+                        failure = new MigrationClientException("Migrator " + migrator.getName() + " failed: "
+                                + e.getCause().getMessage(), e.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationClientException("Interrupted while waiting for migrators to complete", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private boolean isReady(Migrator migrator, Set<String> names, Set<String> completed) {
+        for (String dependency : migrator.getDependencies()) {
+            if (names.contains(dependency) && !completed.contains(dependency)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean conflictsWithRunning(Migrator migrator, List<Migrator> running) {
+        if (running.isEmpty()) {
+            return false;
+        }
+        List<MigrationResource> resources = migrator.getResources();
+        if (resources.isEmpty()) {
+            return true;
+        }
+        for (Migrator other : running) {
+            List<MigrationResource> otherResources = other.getResources();
+            if (otherResources.isEmpty()) {
+                return true;
+            }
+            for (MigrationResource resource : resources) {
+                for (MigrationResource otherResource : otherResources) {
+                    if (resource.conflictsWith(otherResource)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static List<String> getNames(List<Migrator> migrators) {
+        List<String> names = new ArrayList<>();
+        for (Migrator migrator : migrators) {
+            names.add(migrator.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Runs a migrator on a pool thread within the super tenant flow.
+     */
+    private static class MigratorTask implements Callable<Migrator> {
+
+        private final Migrator migrator;
+
+        MigratorTask(Migrator migrator) {
+            this.migrator = migrator;
+        }
+
+        @Override
+        public Migrator call() throws MigrationClientException {
+            long start = System.currentTimeMillis();
+            log.info(Constant.MIGRATION_LOG + "Starting " + migrator.getName());
+            MigrationContext.setMigrator(migrator.getName());
+            MigrationProgress.getInstance().migratorStarted(migrator.getName());
+            Throwable error = null;
+            try {
+                PrivilegedCarbonContext.startTenantFlow();
+                PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+                carbonContext.setTenantId(SUPER_TENANT_ID);
+                carbonContext.setTenantDomain(SUPER_TENANT_DOMAIN_NAME);
+                migrator.migrate();
+            } catch (MigrationClientException | RuntimeException e) {
+                error = e;
+                throw e;
+            } finally {
+                PrivilegedCarbonContext.endTenantFlow();
+                MigrationContext.setMigrator(null);
+                MigrationProgress.getInstance().migratorCompleted(migrator.getName());
+                MigrationReport.getInstance().migratorCompleted(migrator.getName(),
+                        System.currentTimeMillis() - start, error);
+            }
+            long duration = System.currentTimeMillis() - start;
+            MigrationInventory.getInstance().migratorCompleted(migrator.getName(), duration);
+            log.info(Constant.MIGRATION_LOG + migrator.getName() + " completed in " + duration + " ms");
+            return migrator;
+        }
+    }
+
+    private static class MigratorThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "migrator-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
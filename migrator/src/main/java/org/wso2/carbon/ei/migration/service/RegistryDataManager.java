@@ -21,21 +21,23 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.core.util.CryptoException;
 import org.wso2.carbon.ei.migration.internal.MigrationServiceDataHolder;
+import org.wso2.carbon.ei.migration.service.crypto.ReEncryptionBatch;
+import org.wso2.carbon.ei.migration.service.crypto.ReEncryptionService;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.ResourceType;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.Stage;
 import org.wso2.carbon.ei.migration.util.Constant;
 import org.wso2.carbon.ei.migration.util.Utility;
+import org.wso2.carbon.ei.migration.util.XmlIOService;
 import org.wso2.carbon.registry.core.Collection;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
 import org.wso2.carbon.registry.core.utils.RegistryUtils;
-import org.wso2.carbon.user.api.Tenant;
-import org.wso2.carbon.user.api.UserStoreException;
 
 import javax.xml.namespace.QName;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
@@ -45,9 +47,6 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
-import static org.wso2.carbon.base.MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
-import static org.wso2.carbon.base.MultitenantConstants.SUPER_TENANT_ID;
-
 public class RegistryDataManager {
 
     private static final Log log = LogFactory.getLog(RegistryDataManager.class);
@@ -61,77 +60,22 @@ public class RegistryDataManager {
         return instance;
     }
 
-    private void startTenantFlow(Tenant tenant) {
-
-        PrivilegedCarbonContext.startTenantFlow();
-        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
-        carbonContext.setTenantId(tenant.getId());
-        carbonContext.setTenantDomain(tenant.getDomain());
-    }
-
     /**
-     * Method to migrate encrypted password of key stores
+     * Method to migrate encrypted password of key stores of a tenant
      *
-     * @param migrateActiveTenantsOnly
+     * @param tenantId tenant id
+     * @throws RegistryException registry exception
+     * @throws CryptoException   crypto exception
      */
-    public void migrateKeyStorePassword(boolean migrateActiveTenantsOnly) {
-        try {
-            //migrating super tenant configurations
-            migrateKeyStorePasswordForTenant(SUPER_TENANT_ID);
-            log.info("Keystore passwords migrated for tenant : " + SUPER_TENANT_DOMAIN_NAME);
-
-            //migrating tenant configurations
-            Tenant[] tenants = MigrationServiceDataHolder.getRealmService().getTenantManager().getAllTenants();
-            for (Tenant tenant : tenants) {
-                if (migrateActiveTenantsOnly && !tenant.isActive()) {
-                    log.info("Tenant " + tenant.getDomain() + " is inactive. Skipping Subscriber migration!");
-                    continue;
-                }
-                startTenantFlow(tenant);
-                migrateKeyStorePasswordForTenant(tenant.getId());
-                log.info("Keystore passwords migrated for tenant : " + tenant.getDomain());
-            }
-        } catch (RegistryException | CryptoException e) {
-            log.error("Error while migrating keystore passwords for tenant");
-        } catch (UserStoreException e) {
-            log.error("Error while getting tenants");
-        }
-    }
-
-    /**
-     * Method to migrate encrypted password of SYSLOG_PROPERTIES registry resource
-     *
-     * @param migrateActiveTenantsOnly
-     * @throws UserStoreException user store exception
-     */
-    public void migrateSysLogPropertyPassword(boolean migrateActiveTenantsOnly)
-            throws UserStoreException, RegistryException, CryptoException {
-        try {
-            //migrating super tenant configurations
-            migrateSysLogPropertyPasswordForTenant(SUPER_TENANT_ID);
-            log.info("Sys log property password migrated for tenant : " + SUPER_TENANT_DOMAIN_NAME);
-        } catch (Exception e) {
-            log.error("Error while migrating Sys log property password for tenant : " + SUPER_TENANT_DOMAIN_NAME, e);
-        }
-        Tenant[] tenants = MigrationServiceDataHolder.getRealmService().getTenantManager().getAllTenants();
-        for (Tenant tenant : tenants) {
-            if (migrateActiveTenantsOnly && !tenant.isActive()) {
-                log.info("Tenant " + tenant.getDomain() + " is inactive. Skipping SYSLOG_PROPERTIES file migration. ");
-                continue;
-            }
-            try {
-                startTenantFlow(tenant);
-                migrateSysLogPropertyPasswordForTenant(tenant.getId());
-            } finally {
-                PrivilegedCarbonContext.endTenantFlow();
-            }
-        }
-    }
-
-    private void migrateKeyStorePasswordForTenant(int tenantId) throws RegistryException, CryptoException {
+    public void migrateKeyStorePassword(int tenantId) throws RegistryException, CryptoException {
         Registry registry = MigrationServiceDataHolder.getRegistryService().getGovernanceSystemRegistry(tenantId);
+        MigrationMetrics metrics = MigrationMetrics.getInstance();
+        long start = System.nanoTime();
+        metrics.registryGet();
         if (registry.resourceExists(Constant.KEYSTORE_RESOURCE_PATH)) {
+            metrics.registryGet();
             Collection keyStoreCollection = (Collection) registry.get(Constant.KEYSTORE_RESOURCE_PATH);
+            metrics.record(ResourceType.REGISTRY, Stage.LIST, start);
             for (String keyStorePath : keyStoreCollection.getChildren()) {
                 updateRegistryProperties(registry, keyStorePath,
                         new ArrayList<>(Arrays.asList(Constant.PASSWORD, Constant.PRIVATE_KEY_PASS)));
@@ -139,48 +83,30 @@ public class RegistryDataManager {
         }
     }
 
-    private void migrateSysLogPropertyPasswordForTenant(int tenantId) throws RegistryException, CryptoException {
+    /**
+     * Method to migrate encrypted password of SYSLOG_PROPERTIES registry resource of a tenant
+     *
+     * @param tenantId tenant id
+     * @throws RegistryException registry exception
+     * @throws CryptoException   crypto exception
+     */
+    public void migrateSysLogPropertyPassword(int tenantId) throws RegistryException, CryptoException {
 
         Registry registry = MigrationServiceDataHolder.getRegistryService().getConfigSystemRegistry(tenantId);
         updateRegistryProperties(registry, Constant.SYSLOG, new ArrayList<>(Arrays.asList(Constant.PASSWORD)));
     }
 
     /**
-     * Method to migrate encrypted password of service principle registry resource
+     * Method to migrate encrypted password of service principle registry resource of a tenant
      *
-     * @param migrateActiveTenantsOnly
-     * @throws CryptoException
-     * @throws RegistryException
-     * @throws UserStoreException
+     * @param tenantId tenant id
+     * @throws CryptoException    crypto exception
+     * @throws RegistryException  registry exception
+     * @throws XMLStreamException if the policy can not be parsed
      */
-    public void migrateServicePrinciplePassword(boolean migrateActiveTenantsOnly) throws
-            CryptoException, RegistryException, UserStoreException {
-
-        //migrating super tenant configurations
-        try {
-            updateSecurityPolicyPassword(SUPER_TENANT_ID);
-            log.info("Policy Subscribers migrated for tenant : " + SUPER_TENANT_DOMAIN_NAME);
-        } catch (XMLStreamException e) {
-            log.error("Error while migrating Policy Subscribers for tenant : " + SUPER_TENANT_DOMAIN_NAME, e);
-        }
-
-        //migrating tenant configurations
-        Tenant[] tenants = MigrationServiceDataHolder.getRealmService().getTenantManager().getAllTenants();
-        for (Tenant tenant : tenants) {
-            if (migrateActiveTenantsOnly && !tenant.isActive()) {
-                log.info("Tenant " + tenant.getDomain() + " is inactive. Skipping Service Principle Password migration!");
-                continue;
-            }
-            try {
-                startTenantFlow(tenant);
-                updateSecurityPolicyPassword(tenant.getId());
-                log.info("Service Principle Passwords migrated for tenant : " + tenant.getDomain());
-            } catch (XMLStreamException e) {
-                log.error("Error while migrating Service Principle Passwords for tenant : " + tenant.getDomain(), e);
-            } finally {
-                PrivilegedCarbonContext.endTenantFlow();
-            }
-        }
+    public void migrateServicePrinciplePassword(int tenantId) throws CryptoException, RegistryException,
+            XMLStreamException {
+        updateSecurityPolicyPassword(tenantId);
     }
 
     private void updateSecurityPolicyPassword(int tenantId) throws RegistryException, CryptoException,
@@ -191,15 +117,27 @@ public class RegistryDataManager {
 
         try {
             Registry registry = MigrationServiceDataHolder.getRegistryService().getConfigSystemRegistry(tenantId);
+            MigrationMetrics metrics = MigrationMetrics.getInstance();
+            long start = System.nanoTime();
             List<String> policyPaths = getSTSPolicyPaths(registry);
+            metrics.record(ResourceType.REGISTRY, Stage.LIST, start);
             String newEncryptedPassword = null;
             for (String resourcePath : policyPaths) {
+                metrics.registryGet();
                 if (registry.resourceExists(resourcePath)) {
+                    metrics.itemScanned(ResourceType.REGISTRY);
+                    start = System.nanoTime();
+                    metrics.registryGet();
                     Resource resource = registry.get(resourcePath);
+                    MigrationInventory.getInstance().resourceScanned(resource);
+                    metrics.record(ResourceType.REGISTRY, Stage.READ, start);
+                    start = System.nanoTime();
                     resourceContent = resource.getContentStream();
-                    parser = XMLInputFactory.newInstance().createXMLStreamReader(resourceContent);
+                    parser = XmlIOService.getInstance().createXMLStreamReader(resourceContent);
                     StAXOMBuilder builder = new StAXOMBuilder(parser);
                     OMElement documentElement = builder.getDocumentElement();
+                    documentElement.build();
+                    metrics.record(ResourceType.REGISTRY, Stage.PARSE, start);
                     Iterator it = documentElement.getChildrenWithName(new QName(Constant.CARBON_SEC_CONFIG));
 
                     while (it != null && it.hasNext()) {
@@ -223,10 +161,15 @@ public class RegistryDataManager {
                         }
                     }
                     if (StringUtils.isNotEmpty(newEncryptedPassword)) {
+                        start = System.nanoTime();
                         resource.setContent(RegistryUtils.encodeString(documentElement.toString()));
+                        metrics.record(ResourceType.REGISTRY, Stage.SERIALIZE, start);
+                        start = System.nanoTime();
                         registry.beginTransaction();
+                        metrics.registryPut();
                         registry.put(resourcePath, resource);
                         registry.commitTransaction();
+                        metrics.record(ResourceType.REGISTRY, Stage.WRITE, start);
                     }
                 }
             }
@@ -256,18 +199,37 @@ public class RegistryDataManager {
             return;
         }
 
+        MigrationMetrics metrics = MigrationMetrics.getInstance();
+        metrics.registryGet();
         if (registry.resourceExists(resource)) {
+            metrics.itemScanned(ResourceType.REGISTRY);
             try {
                 registry.beginTransaction();
+                long start = System.nanoTime();
+                metrics.registryGet();
                 Resource resourceObj = registry.get(resource);
+                metrics.record(ResourceType.REGISTRY, Stage.READ, start);
+                MigrationInventory.getInstance().resourceScanned(resourceObj);
+                List<String> oldValues = new ArrayList<>(properties.size());
+                for (String encryptedPropertyName : properties) {
+                    oldValues.add(resourceObj.getProperty(encryptedPropertyName));
+                }
+                ReEncryptionBatch batch = ReEncryptionService.getInstance().submit(oldValues);
+                boolean isModified = false;
                 for (String encryptedPropertyName : properties) {
                     String oldValue = resourceObj.getProperty(encryptedPropertyName);
-                    String newValue = Utility.getNewEncryptedValue(oldValue);
+                    String newValue = batch.getNewEncryptedValue(oldValue);
                     if (StringUtils.isNotEmpty(newValue)) {
                         resourceObj.setProperty(encryptedPropertyName, newValue);
+                        isModified = true;
                     }
                 }
-                registry.put(resource, resourceObj);
+                if (isModified) {
+                    start = System.nanoTime();
+                    metrics.registryPut();
+                    registry.put(resource, resourceObj);
+                    metrics.record(ResourceType.REGISTRY, Stage.WRITE, start);
+                }
                 registry.commitTransaction();
             } catch (RegistryException e) {
                 registry.rollbackTransaction();
@@ -0,0 +1,95 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service;
+
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.service.execution.ExecutionStrategy;
+import org.wso2.carbon.ei.migration.service.execution.WorkResult;
+import org.wso2.carbon.ei.migration.service.execution.WorkTask;
+import org.wso2.carbon.user.api.Tenant;
+
+import java.util.List;
+
+/**
+ * Submits work to an {@link ExecutionStrategy} within tenant flows. Every task starts and ends its tenant flow on
+ * the thread executing it, so the thread local carbon context never leaks between tenants or pool threads.
+ */
+public class TenantFlowExecutor {
+
+    private final ExecutionStrategy strategy;
+
+    public TenantFlowExecutor(ExecutionStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Execute the task for every tenant, each within the flow of the tenant.
+     *
+     * @param tenants tenants to process
+     * @param task    task to execute per tenant
+     * @return results in the order of the given tenants
+     * @throws MigrationClientException if interrupted while waiting for the tenant tasks
+     */
+    public List<WorkResult<Tenant>> execute(List<Tenant> tenants, final WorkTask<Tenant> task)
+            throws MigrationClientException {
+
+        return strategy.execute(tenants, new WorkTask<Tenant>() {
+            @Override
+            public void execute(Tenant tenant) throws Exception {
+                startTenantFlow(tenant.getId(), tenant.getDomain());
+                try {
+                    task.execute(tenant);
+                } finally {
+                    PrivilegedCarbonContext.endTenantFlow();
+                }
+            }
+        });
+    }
+
+    /**
+     * Execute the task for every item within the flow of the given tenant.
+     *
+     * @param items        items to process
+     * @param tenantId     tenant id
+     * @param tenantDomain tenant domain
+     * @param task         task to execute per item
+     * @return results in the order of the given items
+     * @throws MigrationClientException if interrupted while waiting for the tasks
+     */
+    public <T> List<WorkResult<T>> execute(List<T> items, final int tenantId, final String tenantDomain,
+                                           final WorkTask<T> task) throws MigrationClientException {
+
+        return strategy.execute(items, new WorkTask<T>() {
+            @Override
+            public void execute(T item) throws Exception {
+                startTenantFlow(tenantId, tenantDomain);
+                try {
+                    task.execute(item);
+                } finally {
+                    PrivilegedCarbonContext.endTenantFlow();
+                }
+            }
+        });
+    }
+
+    private static void startTenantFlow(int tenantId, String tenantDomain) {
+        PrivilegedCarbonContext.startTenantFlow();
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        carbonContext.setTenantId(tenantId);
+        carbonContext.setTenantDomain(tenantDomain);
+    }
+}
@@ -0,0 +1,194 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.crypto;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.base.api.ServerConfigurationService;
+import org.wso2.carbon.core.util.CryptoException;
+import org.wso2.carbon.core.util.CryptoUtil;
+import org.wso2.carbon.core.util.KeyStoreManager;
+import org.wso2.carbon.ei.migration.internal.MigrationServiceDataHolder;
+import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.ei.migration.util.Utility;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * Crypto provider of the server. The legacy key pair is loaded once from the Security.KeyStore configuration of
+ * carbon.xml, or else from the {@link KeyStoreManager} of the super tenant, and the new encryption is delegated to a
+ * {@link CryptoUtil} resolved once. Only when neither provides the key pair are the legacy operations delegated to the
+ * {@link CryptoUtil}, which creates a cipher per value.
+ * <p>
+ * The new encryption stays with the {@link CryptoUtil}, as the layout of the self contained cipher text is owned by
+ * the kernel.
+ */
+public class CarbonCryptoProvider implements CryptoProvider {
+
+    private static final Log log = LogFactory.getLog(CarbonCryptoProvider.class);
+
+    public static final String NAME = "carbon";
+
+    private static final String KEY_STORE_LOCATION = "Security.KeyStore.Location";
+    private static final String KEY_STORE_TYPE = "Security.KeyStore.Type";
+    private static final String KEY_STORE_PASSWORD = "Security.KeyStore.Password";
+    private static final String KEY_ALIAS = "Security.KeyStore.KeyAlias";
+    private static final String KEY_PASSWORD = "Security.KeyStore.KeyPassword";
+
+    private final CryptoUtil cryptoUtil;
+    private final RawRsaCipher rsa;
+
+    public CarbonCryptoProvider() {
+        this.cryptoUtil = Utility.getDefaultCryptoUtil();
+        this.rsa = loadPrimaryKey();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int getModulusLength() {
+        return rsa != null ? rsa.getModulusLength() : 0;
+    }
+
+    @Override
+    public boolean isSelfContained(String cipherText) {
+        try {
+            return Utility.isNewlyEncrypted(cryptoUtil, cipherText);
+        } catch (CryptoException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public byte[] decryptLegacy(String cipherText) throws CryptoException {
+        if (rsa == null) {
+            return cryptoUtil.base64DecodeAndDecrypt(cipherText, Constant.RSA);
+        }
+        try {
+            return rsa.decrypt(DatatypeConverter.parseBase64Binary(cipherText));
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Error while decrypting with the legacy algorithm", e);
+        }
+    }
+
+    @Override
+    public boolean isLegacyCipherText(String cipherText, byte[] plainText) throws CryptoException {
+        if (rsa == null) {
+            return cipherText.equals(cryptoUtil.encryptAndBase64Encode(plainText, Constant.RSA, false));
+        }
+        try {
+            return Arrays.equals(DatatypeConverter.parseBase64Binary(cipherText), rsa.encrypt(plainText));
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Error while encrypting with the legacy algorithm", e);
+        }
+    }
+
+    @Override
+    public String encryptLegacy(byte[] plainText) throws CryptoException {
+        if (rsa == null) {
+            return cryptoUtil.encryptAndBase64Encode(plainText, Constant.RSA, false);
+        }
+        try {
+            return DatatypeConverter.printBase64Binary(rsa.encrypt(plainText));
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Error while encrypting with the legacy algorithm", e);
+        }
+    }
+
+    @Override
+    public String encrypt(byte[] plainText) throws CryptoException {
+        return cryptoUtil.encryptAndBase64Encode(plainText);
+    }
+
+    private static RawRsaCipher loadPrimaryKey() {
+        RawRsaCipher cipher = loadConfiguredKey();
+        if (cipher == null) {
+            cipher = loadKeyStoreManagerKey();
+        }
+        if (cipher == null) {
+            log.warn("Primary key pair is not available. Legacy values are decrypted through CryptoUtil.");
+        }
+        return cipher;
+    }
+
+    private static RawRsaCipher loadConfiguredKey() {
+        ServerConfigurationService config = MigrationServiceDataHolder.getServerConfigurationService();
+        String location = config == null ? null : config.getFirstProperty(KEY_STORE_LOCATION);
+        if (StringUtils.isEmpty(location)) {
+            log.debug("Primary key store is not configured");
+            return null;
+        }
+        InputStream inputStream = null;
+        try {
+            KeyStore keyStore = KeyStore.getInstance(config.getFirstProperty(KEY_STORE_TYPE));
+            inputStream = new FileInputStream(location);
+            keyStore.load(inputStream, config.getFirstProperty(KEY_STORE_PASSWORD).toCharArray());
+            String alias = config.getFirstProperty(KEY_ALIAS);
+            Key key = keyStore.getKey(alias, config.getFirstProperty(KEY_PASSWORD).toCharArray());
+            Certificate certificate = keyStore.getCertificate(alias);
+            if (certificate == null) {
+                log.warn("RSA key pair " + alias + " is not found in " + location);
+                return null;
+            }
+            return createCipher(key, certificate.getPublicKey());
+        } catch (GeneralSecurityException | IOException | RuntimeException e) {
+            log.warn("Unable to load the primary key store " + location, e);
+            return null;
+        } finally {
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    log.error("Error occurred while closing the key store", e);
+                }
+            }
+        }
+    }
+
+    private static RawRsaCipher loadKeyStoreManagerKey() {
+        try {
+            KeyStoreManager keyStoreManager = KeyStoreManager.getInstance(MultitenantConstants.SUPER_TENANT_ID);
+            return createCipher(keyStoreManager.getDefaultPrivateKey(), keyStoreManager.getDefaultPublicKey());
+        } catch (Exception e) {
+            log.warn("Unable to load the primary key pair from the key store manager", e);
+            return null;
+        }
+    }
+
+    private static RawRsaCipher createCipher(Key privateKey, PublicKey publicKey) {
+        if (!(privateKey instanceof PrivateKey) || !(publicKey instanceof RSAPublicKey)) {
+            log.warn("Primary key pair is not an RSA key pair");
+            return null;
+        }
+        return new RawRsaCipher((PrivateKey) privateKey, (RSAPublicKey) publicKey);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.crypto;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.core.util.CryptoException;
+import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.ei.migration.util.ReEncryptionResult;
+import org.wso2.carbon.ei.migration.util.ReEncryptionResult.Outcome;
+
+/**
+ * Re-encryption engine shared by the migrators. Values are classified structurally and only the values which may be
+ * legacy cipher texts reach the {@link CryptoProvider}. The provider is selected with -Dmigrate.cryptoProvider, which
+ * is carbon by default, or software to migrate test data without a server key store.
+ */
+public class CipherEngine {
+
+    private static final Log log = LogFactory.getLog(CipherEngine.class);
+
+    private static CipherEngine instance = new CipherEngine();
+
+    private volatile CryptoProvider provider;
+
+    private CipherEngine() {
+    }
+
+    public static CipherEngine getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return crypto provider of the engine, created on first use
+     */
+    public CryptoProvider getProvider() {
+        CryptoProvider cryptoProvider = provider;
+        if (cryptoProvider == null) {
+            synchronized (this) {
+                cryptoProvider = provider;
+                if (cryptoProvider == null) {
+                    cryptoProvider = createProvider();
+                    provider = cryptoProvider;
+                }
+            }
+        }
+        return cryptoProvider;
+    }
+
+    /**
+     * Replace the crypto provider, e.g. with a {@link SoftwareCryptoProvider} holding the keys of generated test data.
+     *
+     * @param provider crypto provider, or null to create the configured provider on next use
+     */
+    public void setProvider(CryptoProvider provider) {
+        this.provider = provider;
+    }
+
+    /**
+     * Classify a value and re-encrypt it with the new algorithm if it was encrypted with the legacy RSA algorithm.
+     * The value is decrypted once and the plain text is reused for the new encryption.
+     *
+     * @param encryptedValue value to re-encrypt
+     * @return outcome of the re-encryption
+     * @throws CryptoException if the value can not be encrypted with the new algorithm
+     */
+    public ReEncryptionResult reEncrypt(String encryptedValue) throws CryptoException {
+        CryptoProvider cryptoProvider = getProvider();
+        int modulusLength = cryptoProvider.getModulusLength();
+        switch (CipherTextClassifier.classify(encryptedValue, modulusLength)) {
+            case PLAINTEXT:
+                return new ReEncryptionResult(Outcome.PLAINTEXT, null);
+            case OVERSIZED:
+                return new ReEncryptionResult(Outcome.UNDECRYPTABLE, null);
+            case SELF_CONTAINED:
+                // A cipher text of the new format is longer than an RSA block, so with the modulus length the shape is
+                // final. Without it, a legacy cipher text with the header is only ruled out by the provider, unless
+                // the value was produced by a previous run.
+                if (modulusLength > 0 || isMigratedValue(encryptedValue)
+                        || cryptoProvider.isSelfContained(encryptedValue)) {
+                    return new ReEncryptionResult(Outcome.ALREADY_NEW, null);
+                }
+                break;
+            default:
+                if (CipherTextClassifier.hasSelfContainedHeader(encryptedValue)
+                        && cryptoProvider.isSelfContained(encryptedValue)) {
+                    return new ReEncryptionResult(Outcome.ALREADY_NEW, null);
+                }
+        }
+
+        byte[] decryptedValue;
+        try {
+            decryptedValue = cryptoProvider.decryptLegacy(encryptedValue);
+        } catch (CryptoException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Error while decrypting a value with the legacy algorithm", e);
+            }
+            return new ReEncryptionResult(Outcome.UNDECRYPTABLE, null);
+        }
+        if (!cryptoProvider.isLegacyCipherText(encryptedValue, decryptedValue)) {
+            return new ReEncryptionResult(Outcome.PLAINTEXT, null);
+        }
+        String newEncryptedValue = cryptoProvider.encrypt(decryptedValue);
+        if (modulusLength <= 0) {
+            // The filter is only consulted without the modulus length, so the values are only recorded then.
+            MigratedValueFilter.getInstance().add(newEncryptedValue);
+        }
+        return new ReEncryptionResult(Outcome.MIGRATED, newEncryptedValue);
+    }
+
+    /**
+     * A value found in the filter of migrated values is only probably a value produced by a previous run. The hit is
+     * confirmed with the envelope of the value, which a legacy RSA block does not have, so a false positive of the
+     * filter never skips a legacy value.
+     */
+    private static boolean isMigratedValue(String encryptedValue) {
+        return MigratedValueFilter.getInstance().mightContain(encryptedValue)
+                && CipherTextClassifier.hasSelfContainedEnvelope(encryptedValue);
+    }
+
+    private static CryptoProvider createProvider() {
+        String name = System.getProperty(Constant.CRYPTO_PROVIDER, CarbonCryptoProvider.NAME).trim();
+        if (SoftwareCryptoProvider.NAME.equalsIgnoreCase(name)) {
+            try {
+                log.warn(Constant.MIGRATION_LOG + "Using generated keys. Migrated values can not be decrypted by the "
+                        + "server.");
+                return new SoftwareCryptoProvider();
+            } catch (CryptoException e) {
+                log.error("Unable to create the software crypto provider. Using " + CarbonCryptoProvider.NAME, e);
+            }
+        } else if (!CarbonCryptoProvider.NAME.equalsIgnoreCase(name)) {
+            log.warn("Unknown crypto provider " + name + ". Using " + CarbonCryptoProvider.NAME);
+        }
+        return new CarbonCryptoProvider();
+    }
+}
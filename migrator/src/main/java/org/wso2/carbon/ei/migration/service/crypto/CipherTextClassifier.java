@@ -0,0 +1,165 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.crypto;
+
+import javax.xml.bind.DatatypeConverter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Structural classification of encrypted values, without decoding, decrypting or allocating. Values which can not
+ * be legacy RSA cipher texts are identified before any crypto operation:
+ * <ul>
+ * <li>a legacy cipher text is the base64 encoding of exactly one RSA block, i.e. of the key modulus length</li>
+ * <li>a self contained cipher text is the base64 encoding of a JSON object, which starts with "eyJ"</li>
+ * </ul>
+ * Only the envelope check, which confirms that a value is a cipher text of the new format, decodes the value.
+ */
+public final class CipherTextClassifier {
+
+    private static final String SELF_CONTAINED_HEADER = "eyJ";
+    private static final byte[] CIPHER_TEXT_KEY = "\"c\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRANSFORMATION_KEY = "\"t\":".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Structure of a value.
+     */
+    public enum Shape {
+        /** Not base64, or shorter than an RSA block. */
+        PLAINTEXT,
+        /** Base64 encoded JSON, i.e. a cipher text of the new format. */
+        SELF_CONTAINED,
+        /** One RSA block, or any base64 value if the modulus length is not known. */
+        LEGACY_RSA,
+        /** Base64 longer than an RSA block, which can not be decrypted. */
+        OVERSIZED
+    }
+
+    private CipherTextClassifier() {
+    }
+
+    /**
+     * Classify a value.
+     *
+     * @param value         value to classify
+     * @param modulusLength length of the RSA key modulus in bytes, or zero if it is not known
+     * @return structure of the value
+     */
+    public static Shape classify(CharSequence value, int modulusLength) {
+        int decodedLength = getDecodedLength(value);
+        if (decodedLength <= 0) {
+            return Shape.PLAINTEXT;
+        }
+        boolean hasHeader = hasSelfContainedHeader(value);
+        if (modulusLength <= 0) {
+            return hasHeader ? Shape.SELF_CONTAINED : Shape.LEGACY_RSA;
+        }
+        if (decodedLength == modulusLength) {
+            // A cipher text of the new format is longer than an RSA block, so the header is a coincidence.
+            return Shape.LEGACY_RSA;
+        }
+        if (hasHeader) {
+            return Shape.SELF_CONTAINED;
+        }
+        return decodedLength < modulusLength ? Shape.PLAINTEXT : Shape.OVERSIZED;
+    }
+
+    /**
+     * Length of the decoded value, ignoring white spaces.
+     *
+     * @param value base64 value
+     * @return number of decoded bytes, or -1 if the value is not valid base64
+     */
+    public static int getDecodedLength(CharSequence value) {
+        if (value == null) {
+            return -1;
+        }
+        int length = 0;
+        int padding = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                continue;
+            }
+            if (c == '=') {
+                if (++padding > 2) {
+                    return -1;
+                }
+            } else if (padding > 0 || !isBase64Character(c)) {
+                return -1;
+            }
+            length++;
+        }
+        if (length == 0 || length % 4 != 0) {
+            return -1;
+        }
+        return length / 4 * 3 - padding;
+    }
+
+    /**
+     * @param value base64 value
+     * @return true if the value starts with the base64 encoding of a JSON object
+     */
+    public static boolean hasSelfContainedHeader(CharSequence value) {
+        int matched = 0;
+        for (int i = 0; i < value.length() && matched < SELF_CONTAINED_HEADER.length(); i++) {
+            char c = value.charAt(i);
+            if (matched == 0 && (c == ' ' || c == '\n' || c == '\r' || c == '\t')) {
+                continue;
+            }
+            if (c != SELF_CONTAINED_HEADER.charAt(matched)) {
+                return false;
+            }
+            matched++;
+        }
+        return matched == SELF_CONTAINED_HEADER.length();
+    }
+
+    /**
+     * Check the envelope of a self contained cipher text, i.e. that the value decodes to a JSON object holding the
+     * cipher text and the transformation. Unlike {@link #classify(CharSequence, int)} the value is decoded.
+     *
+     * @param value base64 value
+     * @return true if the value decodes to the envelope of a cipher text of the new format
+     */
+    public static boolean hasSelfContainedEnvelope(String value) {
+        if (getDecodedLength(value) <= 0 || !hasSelfContainedHeader(value)) {
+            return false;
+        }
+        byte[] decoded = DatatypeConverter.parseBase64Binary(value);
+        int end = decoded.length - 1;
+        while (end > 0 && Character.isWhitespace(decoded[end])) {
+            end--;
+        }
+        return decoded[end] == '}' && indexOf(decoded, CIPHER_TEXT_KEY) > 0 && indexOf(decoded, TRANSFORMATION_KEY) > 0;
+    }
+
+    private static int indexOf(byte[] content, byte[] key) {
+        for (int i = 0; i <= content.length - key.length; i++) {
+            int j = 0;
+            while (j < key.length && content[i + j] == key[j]) {
+                j++;
+            }
+            if (j == key.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isBase64Character(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '+' || c == '/';
+    }
+}
@@ -0,0 +1,76 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.crypto;
+
+import org.wso2.carbon.core.util.CryptoException;
+
+/**
+ * Crypto operations used to migrate the encrypted values. Values are either legacy cipher texts, a base64 encoded
+ * raw RSA block, or self contained cipher texts of the new format, a base64 encoded JSON object. The provider is
+ * selected with -Dmigrate.cryptoProvider.
+ */
+public interface CryptoProvider {
+
+    /**
+     * @return name used to select the provider through system properties
+     */
+    String getName();
+
+    /**
+     * @return length of the legacy RSA key modulus in bytes, or zero if it is not known
+     */
+    int getModulusLength();
+
+    /**
+     * @param cipherText base64 value
+     * @return true if the value is a cipher text of the new format
+     */
+    boolean isSelfContained(String cipherText);
+
+    /**
+     * Decrypt a legacy cipher text.
+     *
+     * @param cipherText base64 encoded RSA block
+     * @return plain text
+     * @throws CryptoException if the value can not be decrypted
+     */
+    byte[] decryptLegacy(String cipherText) throws CryptoException;
+
+    /**
+     * Check a decrypted value, by encrypting the plain text with the public key. Legacy values are encrypted without
+     * padding, so only a legacy cipher text is given back.
+     *
+     * @param cipherText decrypted value
+     * @param plainText  plain text returned by {@link #decryptLegacy(String)}
+     * @return true if the value is a legacy cipher text of the plain text
+     * @throws CryptoException if the plain text can not be encrypted
+     */
+    boolean isLegacyCipherText(String cipherText, byte[] plainText) throws CryptoException;
+
+    /**
+     * @param plainText plain text
+     * @return base64 encoded legacy cipher text
+     * @throws CryptoException if the plain text can not be encrypted
+     */
+    String encryptLegacy(byte[] plainText) throws CryptoException;
+
+    /**
+     * @param plainText plain text
+     * @return self contained cipher text of the new format
+     * @throws CryptoException if the plain text can not be encrypted
+     */
+    String encrypt(byte[] plainText) throws CryptoException;
+}
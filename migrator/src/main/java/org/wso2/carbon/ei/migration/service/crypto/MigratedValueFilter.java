@@ -0,0 +1,233 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.crypto;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.ei.migration.util.Utility;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Bloom filter of the cipher texts produced by the migration, persisted as a memory mapped file under the migration
+ * resources directory. A value found in the filter was probably produced by a previous run, so a re-run recognises
+ * the already migrated values with a hash lookup and a check of their envelope, instead of the check of the crypto
+ * provider. A hit is never trusted on its own. A value which is not found is classified as usual.
+ * <p>
+ * The filter is sized for -Dmigrate.filterCapacity values, one million by default, with a false positive rate of
+ * about 1%, and can be disabled with -Dmigrate.filter=false. File layout:
+ * <pre>
+ * int magic, int version, int hash count, long bit count, long value count, int capacity, bits
+ * </pre>
+ */
+public class MigratedValueFilter {
+
+    private static final Log log = LogFactory.getLog(MigratedValueFilter.class);
+
+    private static final int MAGIC = 0x4d564246;
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 32;
+    private static final int HASHES_OFFSET = 8;
+    private static final int BITS_OFFSET = 12;
+    private static final int COUNT_OFFSET = 20;
+    private static final int CAPACITY_OFFSET = 28;
+    private static final int DEFAULT_CAPACITY = 1000000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final long MAX_BITS = (Integer.MAX_VALUE - HEADER_LENGTH) * 8L;
+
+    private static volatile MigratedValueFilter current = new MigratedValueFilter(null, null, 0, 0);
+
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final int hashes;
+    private final long bits;
+
+    private MigratedValueFilter(File file, MappedByteBuffer buffer, int hashes, long bits) {
+        this.file = file;
+        this.buffer = buffer;
+        this.hashes = hashes;
+        this.bits = bits;
+    }
+
+    /**
+     * @return filter of the current run. A filter which is not backed by a file is returned when no run is active.
+     */
+    public static MigratedValueFilter getInstance() {
+        return current;
+    }
+
+    /**
+     * Open the filter of a run, creating it if it does not exist. A filter which can not be opened is disabled for
+     * the run, as it is only an optimization.
+     *
+     * @param directory directory holding the filter
+     * @return opened filter
+     */
+    public static synchronized MigratedValueFilter open(String directory) {
+        if ("false".equalsIgnoreCase(System.getProperty(Constant.FILTER_ENABLED, "true").trim())) {
+            return current;
+        }
+        File file = new File(directory, Constant.FILTER_FILE);
+        RandomAccessFile randomAccessFile = null;
+        try {
+            File parent = file.getParentFile();
+            if (!parent.exists() && !parent.mkdirs()) {
+                log.warn("Unable to create the directory " + parent.getAbsolutePath() + " for the migrated values");
+                return current;
+            }
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            FileChannel channel = randomAccessFile.getChannel();
+            MigratedValueFilter filter;
+            if (channel.size() >= HEADER_LENGTH) {
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_LENGTH);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    log.warn("Ignoring the invalid filter of migrated values " + file.getAbsolutePath());
+                    return current;
+                }
+                int hashes = header.getInt(HASHES_OFFSET);
+                long bits = header.getLong(BITS_OFFSET);
+                filter = new MigratedValueFilter(file, channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        HEADER_LENGTH + (bits + 7) / 8), hashes, bits);
+                log.info(Constant.MIGRATION_LOG + "Loaded the filter of " + filter.getCount()
+                        + " values migrated by previous runs from " + file.getAbsolutePath());
+            } else {
+                int capacity = Math.max(1, Utility.getIntProperty(Constant.FILTER_CAPACITY, DEFAULT_CAPACITY));
+                double ln2 = Math.log(2);
+                long bits = Math.min(MAX_BITS, (long) Math.ceil(-capacity * Math.log(FALSE_POSITIVE_RATE)
+                        / (ln2 * ln2)));
+                int hashes = Math.max(1, (int) Math.round((double) bits / capacity * ln2));
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        HEADER_LENGTH + (bits + 7) / 8);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(HASHES_OFFSET, hashes);
+                buffer.putLong(BITS_OFFSET, bits);
+                buffer.putLong(COUNT_OFFSET, 0);
+                buffer.putInt(CAPACITY_OFFSET, capacity);
+                filter = new MigratedValueFilter(file, buffer, hashes, bits);
+            }
+            current = filter;
+            return filter;
+        } catch (IOException e) {
+            log.warn("Unable to open the filter of migrated values " + file.getAbsolutePath(), e);
+            return current;
+        } finally {
+            if (randomAccessFile != null) {
+                // The mapping stays valid after the file is closed.
+                try {
+                    randomAccessFile.close();
+                } catch (IOException e) {
+                    log.error("Error occurred while closing " + file.getAbsolutePath(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param value cipher text
+     * @return true if the value was probably produced by the migration, false if it was not
+     */
+    public boolean mightContain(String value) {
+        if (buffer == null || value == null) {
+            return false;
+        }
+        long hash1 = hash(value);
+        long hash2 = mix(hash1) | 1;
+        synchronized (this) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.abs((hash1 + i * hash2) % bits);
+                if ((buffer.get(HEADER_LENGTH + (int) (bit >>> 3)) & (1 << (bit & 7))) == 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Record a cipher text produced by the migration.
+     *
+     * @param value cipher text
+     */
+    public void add(String value) {
+        if (buffer == null || value == null) {
+            return;
+        }
+        long hash1 = hash(value);
+        long hash2 = mix(hash1) | 1;
+        synchronized (this) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.abs((hash1 + i * hash2) % bits);
+                int index = HEADER_LENGTH + (int) (bit >>> 3);
+                buffer.put(index, (byte) (buffer.get(index) | (1 << (bit & 7))));
+            }
+            buffer.putLong(COUNT_OFFSET, buffer.getLong(COUNT_OFFSET) + 1);
+        }
+    }
+
+    public synchronized long getCount() {
+        return buffer == null ? 0 : buffer.getLong(COUNT_OFFSET);
+    }
+
+    /**
+     * Flush the filter to the disk and close it.
+     */
+    public static synchronized void close() {
+        MigratedValueFilter filter = current;
+        current = new MigratedValueFilter(null, null, 0, 0);
+        if (filter.buffer == null) {
+            return;
+        }
+        synchronized (filter) {
+            filter.buffer.force();
+        }
+        int capacity = filter.buffer.getInt(CAPACITY_OFFSET);
+        if (filter.getCount() > capacity) {
+            log.warn("The filter of migrated values " + filter.file.getAbsolutePath() + " holds " + filter.getCount()
+                    + " values, more than its capacity of " + capacity + ". Delete it and set "
+                    + Constant.FILTER_CAPACITY + " to size it for the next run.");
+        }
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the characters of the value.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Finalization step of MurmurHash3, spreading the bits of the hash.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.crypto;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+
+/**
+ * Raw RSA, i.e. without padding, as used by the legacy encryption. Each thread keeps its own initialized decrypt and
+ * encrypt ciphers, as a {@link Cipher} is not thread safe.
+ */
+class RawRsaCipher {
+
+    private static final String RAW_RSA = "RSA/ECB/NoPadding";
+
+    private final PrivateKey privateKey;
+    private final RSAPublicKey publicKey;
+    private final int modulusLength;
+    private final ThreadLocal<Cipher[]> ciphers = new ThreadLocal<>();
+
+    RawRsaCipher(PrivateKey privateKey, RSAPublicKey publicKey) {
+        this.privateKey = privateKey;
+        this.publicKey = publicKey;
+        this.modulusLength = (publicKey.getModulus().bitLength() + 7) / 8;
+    }
+
+    int getModulusLength() {
+        return modulusLength;
+    }
+
+    /**
+     * Raw RSA decryption returns a block of the modulus length. The legacy plain text is the value of the block
+     * without the leading zeros.
+     */
+    byte[] decrypt(byte[] block) throws GeneralSecurityException {
+        byte[] decrypted = getCiphers()[0].doFinal(block);
+        int start = 0;
+        while (start < decrypted.length && decrypted[start] == 0) {
+            start++;
+        }
+        return start == 0 ? decrypted : Arrays.copyOfRange(decrypted, start, decrypted.length);
+    }
+
+    byte[] encrypt(byte[] plainText) throws GeneralSecurityException {
+        return getCiphers()[1].doFinal(plainText);
+    }
+
+    private Cipher[] getCiphers() throws GeneralSecurityException {
+        Cipher[] threadCiphers = ciphers.get();
+        if (threadCiphers == null) {
+            Cipher decrypt = Cipher.getInstance(RAW_RSA);
+            decrypt.init(Cipher.DECRYPT_MODE, privateKey);
+            Cipher encrypt = Cipher.getInstance(RAW_RSA);
+            encrypt.init(Cipher.ENCRYPT_MODE, publicKey);
+            threadCiphers = new Cipher[]{decrypt, encrypt};
+            ciphers.set(threadCiphers);
+        }
+        return threadCiphers;
+    }
+}
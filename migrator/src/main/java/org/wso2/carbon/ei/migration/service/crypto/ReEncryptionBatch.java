@@ -0,0 +1,88 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.crypto;
+
+import org.wso2.carbon.core.util.CryptoException;
+import org.wso2.carbon.ei.migration.util.ReEncryptionResult;
+import org.wso2.carbon.ei.migration.util.Utility;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Values of a resource submitted to the {@link ReEncryptionService}.
+ */
+public class ReEncryptionBatch {
+
+    private final List<String> values;
+    private final Future<Map<String, ReEncryptionResult>> future;
+    private Map<String, ReEncryptionResult> results;
+
+    ReEncryptionBatch(List<String> values, Future<Map<String, ReEncryptionResult>> future) {
+        this.values = values;
+        this.future = future;
+    }
+
+    /**
+     * Wait for the batch to complete. The outcome of every submitted value is recorded on the first call.
+     *
+     * @return results keyed by the submitted values. Empty in a dry run.
+     * @throws CryptoException if a value can not be encrypted with the new algorithm
+     */
+    public synchronized Map<String, ReEncryptionResult> getResults() throws CryptoException {
+        if (results != null) {
+            return results;
+        }
+        if (future == null) {
+            results = Collections.emptyMap();
+            return results;
+        }
+        try {
+            results = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CryptoException("Interrupted while waiting for the re-encryption of the values", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CryptoException) {
+                throw (CryptoException) e.getCause();
+            }
+            throw new CryptoException("Error while re-encrypting the values", e.getCause());
+        }
+        for (String value : values) {
+            Utility.recordOutcome(results.get(value));
+        }
+        return results;
+    }
+
+    /**
+     * Get the re-encrypted value, waiting for the batch to complete.
+     *
+     * @param value submitted value
+     * @return value encrypted with the new algorithm, or null if the value does not need to be migrated
+     * @throws CryptoException if a value of the batch can not be encrypted with the new algorithm
+     * @see Utility#getNewEncryptedValue(String)
+     */
+    public String getNewEncryptedValue(String value) throws CryptoException {
+        if (value == null) {
+            return null;
+        }
+        ReEncryptionResult result = getResults().get(value);
+        return result != null ? result.getValue() : null;
+    }
+}
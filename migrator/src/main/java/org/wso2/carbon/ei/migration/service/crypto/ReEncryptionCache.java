@@ -0,0 +1,157 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.crypto;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.core.util.CryptoException;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics;
+import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.ei.migration.util.ReEncryptionResult;
+import org.wso2.carbon.ei.migration.util.Utility;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of re-encryption results in front of the {@link CipherEngine}. The same legacy cipher text is often
+ * found in many tenants and resources, e.g. in cloned tenants, and a cache hit skips the RSA operations.
+ * <p>
+ * Entries are keyed by the SHA-256 digest of the legacy cipher text, evicted in least recently used order and expire
+ * after a time to live. A cache hit gives the same new cipher text for every location of a value instead of a fresh one
+ * per location, so the cache is only used when enabled with -Dmigrate.cache=true. The size and time to live are set
+ * with -Dmigrate.cacheSize and -Dmigrate.cacheTtlSeconds. Hits and misses are counted in the migration metrics.
+ */
+public class ReEncryptionCache {
+
+    private static final Log log = LogFactory.getLog(ReEncryptionCache.class);
+
+    private static final int DEFAULT_SIZE = 10000;
+    private static final int DEFAULT_TTL_SECONDS = 3600;
+
+    private static ReEncryptionCache instance = new ReEncryptionCache();
+
+    private final ThreadLocal<MessageDigest> digests = new ThreadLocal<>();
+    private final Map<ByteBuffer, Entry> entries = new LinkedHashMap<ByteBuffer, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, ReEncryptionCache.Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+    private volatile boolean isEnabled;
+    private int maxSize;
+    private long ttlNanos;
+
+    private ReEncryptionCache() {
+        configure();
+    }
+
+    public static ReEncryptionCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Clear the cache and read the configuration again, at the start of a run.
+     */
+    public synchronized void reset() {
+        entries.clear();
+        configure();
+        if (isEnabled) {
+            log.info(Constant.MIGRATION_LOG + "Re-encryption cache of " + maxSize + " entries with a time to live of "
+                    + TimeUnit.NANOSECONDS.toSeconds(ttlNanos) + " s is enabled");
+        }
+    }
+
+    /**
+     * Re-encrypt a value, using the cached result of an identical value if available.
+     *
+     * @param encryptedValue value to re-encrypt
+     * @return outcome of the re-encryption
+     * @throws CryptoException if the value can not be encrypted with the new algorithm
+     * @see CipherEngine#reEncrypt(String)
+     */
+    public ReEncryptionResult reEncrypt(String encryptedValue) throws CryptoException {
+        if (!isEnabled) {
+            return CipherEngine.getInstance().reEncrypt(encryptedValue);
+        }
+        ByteBuffer key = getKey(encryptedValue);
+        ReEncryptionResult result = get(key);
+        if (result != null) {
+            MigrationMetrics.getInstance().cacheHit();
+            return result;
+        }
+        MigrationMetrics.getInstance().cacheMiss();
+        result = CipherEngine.getInstance().reEncrypt(encryptedValue);
+        put(key, result);
+        return result;
+    }
+
+    private synchronized ReEncryptionResult get(ByteBuffer key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.created > ttlNanos) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.result;
+    }
+
+    private synchronized void put(ByteBuffer key, ReEncryptionResult result) {
+        entries.put(key, new Entry(result));
+    }
+
+    private ByteBuffer getKey(String encryptedValue) throws CryptoException {
+        MessageDigest digest = digests.get();
+        if (digest == null) {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new CryptoException("SHA-256 is not available for the re-encryption cache", e);
+            }
+            digests.set(digest);
+        }
+        return ByteBuffer.wrap(digest.digest(encryptedValue.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private synchronized void configure() {
+        isEnabled = "true".equalsIgnoreCase(System.getProperty(Constant.CACHE_ENABLED, "false").trim());
+        maxSize = Utility.getIntProperty(Constant.CACHE_SIZE, DEFAULT_SIZE);
+        ttlNanos = TimeUnit.SECONDS.toNanos(Utility.getIntProperty(Constant.CACHE_TTL_SECONDS, DEFAULT_TTL_SECONDS));
+        if (maxSize <= 0) {
+            isEnabled = false;
+        }
+    }
+
+    /**
+     * Cached result with its creation time.
+     */
+    private static class Entry {
+
+        private final ReEncryptionResult result;
+        private final long created = System.nanoTime();
+
+        private Entry(ReEncryptionResult result) {
+            this.result = result;
+        }
+    }
+}
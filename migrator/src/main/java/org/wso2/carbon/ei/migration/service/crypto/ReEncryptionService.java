@@ -0,0 +1,160 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.crypto;
+
+import org.apache.commons.lang.StringUtils;
+import org.wso2.carbon.ei.migration.service.MigrationContext;
+import org.wso2.carbon.ei.migration.service.MigrationInventory;
+import org.wso2.carbon.ei.migration.service.execution.ExecutionStrategy;
+import org.wso2.carbon.ei.migration.service.execution.ExecutionStrategyFactory;
+import org.wso2.carbon.ei.migration.service.execution.ExecutionStrategyFactory.Workload;
+import org.wso2.carbon.ei.migration.service.execution.SerialExecutionStrategy;
+import org.wso2.carbon.ei.migration.service.execution.WorkResult;
+import org.wso2.carbon.ei.migration.service.execution.WorkTask;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.ResourceType;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.Stage;
+import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.ei.migration.util.ReEncryptionResult;
+import org.wso2.carbon.ei.migration.util.Utility;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Re-encrypts the values found in a resource as a batch. The RSA operations of a batch are spread over the CPU
+ * execution strategy, configured with -Dmigrate.cpuStrategy and -Dmigrate.cpuThreads, so the thread reading and
+ * writing the resource does not block on the crypto work until it needs the results.
+ * <p>
+ * A batch of at most -Dmigrate.inlineBatchSize distinct values, two by default, is re-encrypted on the submitting
+ * thread instead. The resources read by the migrators mostly hold one or two values and their results are needed right
+ * away, so handing such a batch over to other threads only adds the hand-off to the wait.
+ * <p>
+ * The outcome of the values is recorded in the migration metrics and report when the results are taken from the
+ * batch, on the thread of the migrator. In a dry run the values are only classified.
+ */
+public class ReEncryptionService {
+
+    private static final int DEFAULT_INLINE_BATCH_SIZE = 2;
+    private static final ExecutionStrategy SERIAL = new SerialExecutionStrategy();
+
+    private static ReEncryptionService instance = new ReEncryptionService();
+
+    private final ExecutorService dispatcher = Executors.newCachedThreadPool(new ThreadFactory() {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "migration-crypto-batch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private ReEncryptionService() {
+    }
+
+    public static ReEncryptionService getInstance() {
+        return instance;
+    }
+
+    /**
+     * Submit the values of a resource for re-encryption. Empty values are ignored and a value repeated in the
+     * resource is decrypted once.
+     *
+     * @param values values to re-encrypt
+     * @return batch to take the results from
+     */
+    public ReEncryptionBatch submit(Collection<String> values) {
+        List<String> submitted = new ArrayList<>(values.size());
+        for (String value : values) {
+            if (StringUtils.isNotEmpty(value)) {
+                submitted.add(value);
+            }
+        }
+        MigrationInventory inventory = MigrationInventory.getInstance();
+        if (inventory.isEnabled()) {
+            for (String value : submitted) {
+                inventory.valueScanned(value);
+            }
+            return new ReEncryptionBatch(submitted, null);
+        }
+        if (submitted.isEmpty()) {
+            return new ReEncryptionBatch(submitted, null);
+        }
+
+        final List<String> distinct = new ArrayList<>(new LinkedHashSet<>(submitted));
+        final ResourceType type = MigrationMetrics.getInstance().getResourceType();
+        final String migrator = MigrationContext.getMigrator();
+        final boolean isInline = distinct.size() <= Utility.getIntProperty(Constant.INLINE_BATCH_SIZE,
+                DEFAULT_INLINE_BATCH_SIZE);
+        FutureTask<Map<String, ReEncryptionResult>> future = new FutureTask<>(
+                new Callable<Map<String, ReEncryptionResult>>() {
+                    @Override
+                    public Map<String, ReEncryptionResult> call() throws Exception {
+                        return reEncrypt(distinct, type, migrator,
+                                isInline ? SERIAL : ExecutionStrategyFactory.getStrategy(Workload.CPU));
+                    }
+                });
+        if (isInline) {
+            future.run();
+        } else {
+            dispatcher.execute(future);
+        }
+        return new ReEncryptionBatch(submitted, future);
+    }
+
+    private static Map<String, ReEncryptionResult> reEncrypt(List<String> values, final ResourceType type,
+                                                             final String migrator, ExecutionStrategy strategy)
+            throws Exception {
+        final Map<String, ReEncryptionResult> results = new ConcurrentHashMap<>();
+        final MigrationMetrics metrics = MigrationMetrics.getInstance();
+        List<WorkResult<String>> workResults = strategy.execute(values,
+                new WorkTask<String>() {
+                    @Override
+                    public void execute(String value) throws Exception {
+                        String previous = MigrationContext.setMigrator(migrator);
+                        long start = System.nanoTime();
+                        try {
+                            results.put(value, ReEncryptionCache.getInstance().reEncrypt(value));
+                        } finally {
+                            metrics.record(type, Stage.CRYPTO, start);
+                            MigrationContext.setMigrator(previous);
+                        }
+                    }
+                });
+        for (WorkResult<String> workResult : workResults) {
+            Throwable error = workResult.getError();
+            if (error instanceof Exception) {
+                throw (Exception) error;
+            } else if (error != null) {
+                throw new IllegalStateException("Error while re-encrypting a value", error);
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.crypto;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.wso2.carbon.core.util.CryptoException;
+import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.ei.migration.util.Utility;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * Crypto provider with keys generated in memory, to measure the migration without a server key store. Legacy cipher
+ * texts are raw RSA blocks, like the values of the server, and the new cipher texts are AES-GCM encrypted, base64
+ * encoded JSON objects with the same structure and cost profile as the self contained cipher texts of the server.
+ * The RSA key size is set with -Dmigrate.cryptoKeySize, 2048 bits by default.
+ * <p>
+ * The values encrypted by this provider can not be decrypted by the server. It must only be used on test data.
+ */
+public class SoftwareCryptoProvider implements CryptoProvider {
+
+    public static final String NAME = "software";
+
+    private static final int DEFAULT_KEY_SIZE = 2048;
+    private static final int AES_KEY_SIZE = 256;
+    private static final String AES_GCM = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH = 128;
+    private static final String CIPHER_TEXT = "c";
+    private static final String TRANSFORMATION = "t";
+    private static final String IV = "iv";
+
+    private final RawRsaCipher rsa;
+    private final SecretKey secretKey;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<Cipher> aesCiphers = new ThreadLocal<>();
+
+    public SoftwareCryptoProvider() throws CryptoException {
+        this(Utility.getIntProperty(Constant.CRYPTO_KEY_SIZE, DEFAULT_KEY_SIZE));
+    }
+
+    public SoftwareCryptoProvider(int keySize) throws CryptoException {
+        try {
+            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+            keyPairGenerator.initialize(keySize, random);
+            KeyPair keyPair = keyPairGenerator.generateKeyPair();
+            this.rsa = new RawRsaCipher(keyPair.getPrivate(), (RSAPublicKey) keyPair.getPublic());
+            KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+            keyGenerator.init(AES_KEY_SIZE, random);
+            this.secretKey = keyGenerator.generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Error while generating the keys of the software crypto provider", e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int getModulusLength() {
+        return rsa.getModulusLength();
+    }
+
+    @Override
+    public boolean isSelfContained(String cipherText) {
+        try {
+            JSONObject json = new JSONObject(new String(DatatypeConverter.parseBase64Binary(cipherText),
+                    StandardCharsets.UTF_8));
+            return json.has(CIPHER_TEXT) && json.has(TRANSFORMATION);
+        } catch (JSONException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public byte[] decryptLegacy(String cipherText) throws CryptoException {
+        try {
+            return rsa.decrypt(DatatypeConverter.parseBase64Binary(cipherText));
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Error while decrypting with the legacy algorithm", e);
+        }
+    }
+
+    @Override
+    public boolean isLegacyCipherText(String cipherText, byte[] plainText) throws CryptoException {
+        try {
+            return Arrays.equals(DatatypeConverter.parseBase64Binary(cipherText), rsa.encrypt(plainText));
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Error while encrypting with the legacy algorithm", e);
+        }
+    }
+
+    @Override
+    public String encryptLegacy(byte[] plainText) throws CryptoException {
+        try {
+            return DatatypeConverter.printBase64Binary(rsa.encrypt(plainText));
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Error while encrypting with the legacy algorithm", e);
+        }
+    }
+
+    @Override
+    public String encrypt(byte[] plainText) throws CryptoException {
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        try {
+            Cipher cipher = getAesCipher();
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH, iv));
+            JSONObject json = new JSONObject()
+                    .put(CIPHER_TEXT, DatatypeConverter.printBase64Binary(cipher.doFinal(plainText)))
+                    .put(TRANSFORMATION, AES_GCM)
+                    .put(IV, DatatypeConverter.printBase64Binary(iv));
+            return DatatypeConverter.printBase64Binary(json.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new CryptoException("Error while encrypting with the new algorithm", e);
+        }
+    }
+
+    /**
+     * Decrypt a cipher text of the new format produced by this provider.
+     *
+     * @param cipherText self contained cipher text
+     * @return plain text
+     * @throws CryptoException if the value can not be decrypted
+     */
+    public byte[] decrypt(String cipherText) throws CryptoException {
+        try {
+            JSONObject json = new JSONObject(new String(DatatypeConverter.parseBase64Binary(cipherText),
+                    StandardCharsets.UTF_8));
+            Cipher cipher = getAesCipher();
+            cipher.init(Cipher.DECRYPT_MODE, secretKey,
+                    new GCMParameterSpec(TAG_LENGTH, DatatypeConverter.parseBase64Binary(json.getString(IV))));
+            return cipher.doFinal(DatatypeConverter.parseBase64Binary(json.getString(CIPHER_TEXT)));
+        } catch (GeneralSecurityException | JSONException | IllegalArgumentException e) {
+            throw new CryptoException("Error while decrypting with the new algorithm", e);
+        }
+    }
+
+    private Cipher getAesCipher() throws GeneralSecurityException {
+        Cipher cipher = aesCiphers.get();
+        if (cipher == null) {
+            cipher = Cipher.getInstance(AES_GCM);
+            aesCiphers.set(cipher);
+        }
+        return cipher;
+    }
+}
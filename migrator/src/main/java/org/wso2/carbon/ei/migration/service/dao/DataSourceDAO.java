@@ -24,6 +24,10 @@ import org.w3c.dom.NodeList;
 import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.ei.migration.MigrationClient;
 import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.internal.MigrationServiceDataHolder;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.ResourceType;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.Stage;
 import org.wso2.carbon.ei.migration.service.migrator.DatasourceMigrator;
 import org.wso2.carbon.ei.migration.util.Utility;
 import org.wso2.carbon.ndatasource.common.DataSourceConstants;
@@ -37,8 +41,6 @@ import javax.xml.stream.XMLStreamException;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.wso2.carbon.ndatasource.core.utils.DataSourceUtils;
-
 public class DataSourceDAO {
     private static final Log log = LogFactory.getLog(DataSourceDAO.class);
 
@@ -67,17 +69,24 @@ public class DataSourceDAO {
         } catch (DataSourceException e) {
             throw new MigrationClientException("Error in getting the registry configuration: " + e.getMessage());
         }
+        MigrationMetrics metrics = MigrationMetrics.getInstance();
+        long start = System.nanoTime();
         Collection dsCollection = null;
         try {
+            metrics.registryGet();
             dsCollection = (Collection) registry.get(DataSourceConstants.DATASOURCES_REPOSITORY_BASE_PATH);
         } catch (RegistryException e) {
             //Ignore
         }
+        metrics.record(ResourceType.REGISTRY, Stage.LIST, start);
         try {
             if (dsCollection != null) {
                 String[] dataSourceNames = dsCollection.getChildren();
                 for (String dataSourcePath : dataSourceNames) {
+                    start = System.nanoTime();
+                    metrics.registryGet();
                     Resource resource = registry.get(dataSourcePath);
+                    metrics.record(ResourceType.REGISTRY, Stage.READ, start);
                     dataSources.add(resource);
                 }
             }
@@ -89,9 +98,14 @@ public class DataSourceDAO {
 
     private static Registry getRegistry(int tenantId) throws DataSourceException {
 
-        Registry registry = DataSourceUtils.getConfRegistryForTenant(tenantId);
+        Registry registry;
+        try {
+            registry = MigrationServiceDataHolder.getRegistryService().getConfigSystemRegistry(tenantId);
+        } catch (RegistryException e) {
+            throw new DataSourceException("Error while retrieving the config registry of tenant: " + tenantId, e);
+        }
         if (log.isDebugEnabled()) {
-            log.debug("Retrieving the governance registry for tenant: " + tenantId);
+            log.debug("Retrieving the config registry for tenant: " + tenantId);
         }
 
         return registry;
@@ -99,9 +113,13 @@ public class DataSourceDAO {
 
     public static void saveDataSource(int tenantId, Resource resource) throws DataSourceException {
         try {
+            MigrationMetrics metrics = MigrationMetrics.getInstance();
+            long start = System.nanoTime();
+            metrics.registryPut();
             getRegistry(tenantId).put(resource.getPath(), resource);
+            metrics.record(ResourceType.REGISTRY, Stage.WRITE, start);
         } catch (RegistryException e) {
-            new DataSourceException("Error while saving the datasource into the registry.", e);
+            throw new DataSourceException("Error while saving the datasource into the registry.", e);
         }
     }
 }
@@ -15,11 +15,16 @@
 */
 package org.wso2.carbon.ei.migration.service.dao;
 
+import org.apache.axiom.om.OMElement;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.xml.serialize.OutputFormat;
 import org.apache.xml.serialize.XMLSerializer;
 import org.w3c.dom.Document;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.ResourceType;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.Stage;
 import org.wso2.carbon.ei.migration.util.Utility;
+import org.wso2.carbon.ei.migration.util.XmlIOService;
 import org.wso2.carbon.event.sink.EventSink;
 import org.wso2.carbon.event.sink.EventSinkException;
 import org.wso2.carbon.event.sink.config.EventSinkConfigBuilder;
@@ -29,12 +34,10 @@ import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.stream.XMLStreamException;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
@@ -67,7 +70,9 @@ public class EventSinkDAO {
 
         List<EventSink> eventSinks = new ArrayList<>();
         String filePath = EventSinkXmlReader.getTenantDeployementDirectoryPath();
+        long start = System.nanoTime();
         File[] files = new File(filePath).listFiles();
+        MigrationMetrics.getInstance().record(ResourceType.FILE, Stage.LIST, start);
         if (files != null) {
             for (File file : files) {
                 if (file.isFile() && file.getName().toLowerCase().endsWith(".xml")) {
@@ -86,26 +91,17 @@ public class EventSinkDAO {
         File eventSinkFile = new File(filePath + name);
         if (eventSinkFile.exists()) {
             eventSink.setName(eventSinkFile.getName());
-            FileInputStream fileInputStream = null;
 
             try {
-                fileInputStream = new FileInputStream(eventSinkFile);
-                eventSink = eventSinkConfigBuilder.createEventSinkConfig(Utility.toOM(fileInputStream), FilenameUtils.removeExtension(eventSink.getName()));
-            } catch (FileNotFoundException e) {
-                throw new EventSinkException("File not found. File: " + eventSinkFile.getName() + ", Error : " + e);
+                OMElement documentElement = Utility.toOM(Utility.readFile(eventSinkFile, ResourceType.FILE),
+                        ResourceType.FILE);
+                eventSink = eventSinkConfigBuilder.createEventSinkConfig(documentElement, FilenameUtils.removeExtension(eventSink.getName()));
+            } catch (IOException e) {
+                throw new EventSinkException("Unable to read the file. File: " + eventSinkFile.getName() + ", Error : " + e);
             } catch (EventSinkException e) {
                 throw new EventSinkException("Error occured in Obtaining Event Sink. With name : " + eventSink.getName() + ", Error: " + e);
             } catch (XMLStreamException e) {
                 throw new EventSinkException("Error creating a OMElement from an input stream : " + e);
-            } finally {
-                try {
-                    if (fileInputStream != null) {
-                        fileInputStream.close();
-                    }
-                } catch (IOException var19) {
-                    throw new EventSinkException("Error Occured while closing FileInputStream , Error : " + var19);
-                }
-
             }
         }
 
@@ -123,15 +119,16 @@ public class EventSinkDAO {
         this.createEventSinkDirectory(filePath);
         EventSinkConfigXml eventSinkConfigXml = new EventSinkConfigXml();
         BufferedWriter bufferedWriter = null;
+        MigrationMetrics metrics = MigrationMetrics.getInstance();
         try {
             bufferedWriter =
                     new BufferedWriter(new FileWriter(new File(filePath, eventSink.getName() + ".xml")));
+            long start = System.nanoTime();
             String unFormattedXml = eventSinkConfigXml.buildEventSink(eventSink.getUsername(), eventSink.getPassword(),
                     eventSink.getReceiverUrlSet(), eventSink.getAuthenticationUrlSet()).toString();
 
             ///formatting xml
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            DocumentBuilder db = dbf.newDocumentBuilder();
+            DocumentBuilder db = XmlIOService.getInstance().getDocumentBuilder();
             InputSource is = new InputSource(new StringReader(unFormattedXml));
             final Document document = db.parse(is);
             OutputFormat format = new OutputFormat(document);
@@ -141,7 +138,13 @@ public class EventSinkDAO {
             Writer out = new StringWriter();
             XMLSerializer serializer = new XMLSerializer(out, format);
             serializer.serialize(document);
-            bufferedWriter.write(out.toString());
+            metrics.record(ResourceType.FILE, Stage.SERIALIZE, start);
+            start = System.nanoTime();
+            String formattedXml = out.toString();
+            bufferedWriter.write(formattedXml);
+            bufferedWriter.flush();
+            metrics.record(ResourceType.FILE, Stage.WRITE, start);
+            metrics.bytesWritten(formattedXml.length());
 
         } catch (FileNotFoundException e) {
             throw new EventSinkException("Failed to open file to write event sink. File: " + filePath + ", " +
@@ -1,27 +1,28 @@
 package org.wso2.carbon.ei.migration.service.dao;
 
-import org.apache.axiom.om.OMElement;
-import org.apache.axiom.om.impl.builder.StAXOMBuilder;
-import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.core.util.CryptoException;
 import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.ResourceType;
 import org.wso2.carbon.ei.migration.service.migrator.ServerProfileMigrator;
 import org.wso2.carbon.ei.migration.util.Constant;
-import org.wso2.carbon.ei.migration.util.Utility;
+import org.wso2.carbon.ei.migration.util.StreamingXmlRewriter;
+import org.wso2.carbon.ei.migration.util.TargetRule;
 
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamReader;
 import java.io.*;
-import java.util.Iterator;
 
 public class ServerProfileDAO {
-    public boolean isModified = false;
     private static final Log log = LogFactory.getLog(ServerProfileDAO.class);
     private static ServerProfileDAO instance = new ServerProfileDAO();
 
+    /**
+     * Selects the password attribute of the secure properties of a server profile.
+     */
+    private static final StreamingXmlRewriter REWRITER = new StreamingXmlRewriter(
+            TargetRule.parse("/*/*[@securePassword='true']/@password"));
+
     private ServerProfileDAO() {
 
     }
@@ -30,67 +31,44 @@ public class ServerProfileDAO {
 
         return instance;
     }
-    public void modifyInsideExtractedFolder(String path) throws MigrationClientException {
-        isModified = false;
+
+    /**
+     * Migrate the server profiles of an extracted BPEL archive.
+     *
+     * @param path extracted folder
+     * @return true if any of the server profiles was modified
+     * @throws MigrationClientException migration client exception
+     */
+    public boolean modifyInsideExtractedFolder(String path) throws MigrationClientException {
+        boolean isModified = false;
         File[] files = new File(path).listFiles();
         if (files != null) {
             for (File file : files) {
                 if (file.isFile() && file.getName().toLowerCase().endsWith(".xml")) {
-                    transformSPPassword(file.getAbsolutePath());
+                    isModified |= transformSPPassword(file.getAbsolutePath());
                 }
             }
         }
+        return isModified;
     }
 
-    public void transformSPPassword(String filePath) throws MigrationClientException {
-        XMLStreamReader parser = null;
-        FileInputStream stream = null;
+    /**
+     * Migrate the secure passwords of a server profile.
+     *
+     * @param filePath server profile file
+     * @return true if the file was modified
+     * @throws MigrationClientException migration client exception
+     */
+    public boolean transformSPPassword(String filePath) throws MigrationClientException {
+        boolean isModified = false;
         try {
             log.info("Migrating password in: " + filePath);
-            stream = new FileInputStream(filePath);
-            parser = XMLInputFactory.newInstance().createXMLStreamReader(stream);
-            StAXOMBuilder builder = new StAXOMBuilder(parser);
-            OMElement documentElement = builder.getDocumentElement();
-
-            Iterator it = documentElement.getChildElements();
-            String newEncryptedPassword = null;
-            while (it.hasNext()) {
-                OMElement element = (OMElement) it.next();
-                if ("true".equals(element.getAttributeValue(Constant.SECURE_PASSWORD_Q))) {
-                    String password = element.getAttributeValue(Constant.PASSWORD_Q);
-                    newEncryptedPassword = Utility.getNewEncryptedValue(password);
-                    if (StringUtils.isNotEmpty(newEncryptedPassword)) {
-                        element.getAttribute(Constant.PASSWORD_Q).setAttributeValue(newEncryptedPassword);
-                    }
-                }
-            }
-
-            if (newEncryptedPassword != null) {
-                OutputStream outputStream = new FileOutputStream(new File(filePath));
-                documentElement.serialize(outputStream);
-                isModified = true;
-            }
-        } catch (XMLStreamException | FileNotFoundException e) {
-            new MigrationClientException("Error while writing the file: " + e);
+            isModified = REWRITER.rewrite(new File(filePath), ResourceType.FILE);
+        } catch (XMLStreamException | IOException e) {
+            throw new MigrationClientException("Error while writing the file: " + e);
         } catch (CryptoException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                if (parser != null) {
-                    parser.close();
-                }
-                if (stream != null) {
-                    try {
-                        if (stream != null) {
-                            stream.close();
-                        }
-                    } catch (IOException e) {
-                        log.error("Error occurred while closing Input stream", e);
-                    }
-                }
-            } catch (XMLStreamException ex) {
-                log.error("Error while closing XML stream", ex);
-            }
+            throw new MigrationClientException("Error while re-encrypting the passwords in: " + filePath, e);
         }
+        return isModified;
     }
 }
@@ -0,0 +1,102 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.execution;
+
+import org.wso2.carbon.ei.migration.MigrationClientException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class of the execution strategies.
+ */
+public abstract class AbstractExecutionStrategy implements ExecutionStrategy {
+
+    private final int parallelism;
+
+    protected AbstractExecutionStrategy(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    /**
+     * Execute the task for a single item and capture the outcome.
+     */
+    protected static <T> WorkResult<T> run(T item, WorkTask<T> task) {
+        long start = System.currentTimeMillis();
+        Throwable error = null;
+        try {
+            task.execute(item);
+        } catch (Exception e) {
+            error = e;
+        }
+        return new WorkResult<>(item, error, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Wait for the submitted items in submission order.
+     */
+    protected static <T> List<WorkResult<T>> collect(List<Future<WorkResult<T>>> futures)
+            throws MigrationClientException {
+        List<WorkResult<T>> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<WorkResult<T>> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationClientException("Interrupted while waiting for the migration tasks", e);
+        } catch (ExecutionException e) {
+            throw new MigrationClientException("Unexpected error in migration task", e.getCause());
+        } finally {
+            for (Future<WorkResult<T>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Thread factory creating named daemon threads.
+     */
+    protected static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        public NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
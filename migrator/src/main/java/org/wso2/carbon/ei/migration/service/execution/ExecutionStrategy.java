@@ -0,0 +1,49 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.execution;
+
+import org.wso2.carbon.ei.migration.MigrationClientException;
+
+import java.util.List;
+
+/**
+ * Execution model used by migrators to process their units of work, i.e. tenants, files and registry resources.
+ * Implementations decide how many units are processed concurrently and on which threads.
+ */
+public interface ExecutionStrategy {
+
+    /**
+     * @return name used to select the strategy through system properties
+     */
+    String getName();
+
+    /**
+     * Execute the task for every item and wait until all of them are completed. A failure of a single item does not
+     * stop the remaining items, it is reported in the corresponding result.
+     *
+     * @param items items to process
+     * @param task  task to execute per item
+     * @param <T>   item type
+     * @return results in the order of the given items
+     * @throws MigrationClientException if interrupted while waiting for the items
+     */
+    <T> List<WorkResult<T>> execute(List<T> items, WorkTask<T> task) throws MigrationClientException;
+
+    /**
+     * Release the threads held by the strategy.
+     */
+    void shutdown();
+}
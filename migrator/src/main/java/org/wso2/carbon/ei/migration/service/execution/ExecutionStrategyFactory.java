@@ -0,0 +1,100 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.execution;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.ei.migration.util.Utility;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Creates the execution strategies configured through system properties. Registry and file system bound work is
+ * configured with -Dmigrate.ioStrategy and -Dmigrate.ioThreads, CPU bound work with -Dmigrate.cpuStrategy and
+ * -Dmigrate.cpuThreads. The strategy is one of serial, fixed, forkjoin or virtual.
+ */
+public class ExecutionStrategyFactory {
+
+    private static final Log log = LogFactory.getLog(ExecutionStrategyFactory.class);
+
+    /**
+     * Nature of the work executed through a strategy.
+     */
+    public enum Workload {
+        IO, CPU
+    }
+
+    private static final Map<Workload, ExecutionStrategy> strategies = new EnumMap<>(Workload.class);
+
+    private ExecutionStrategyFactory() {
+    }
+
+    /**
+     * Get the strategy configured for the given workload. The same instance is returned until {@link #shutdown()}.
+     *
+     * @param workload nature of the work
+     * @return execution strategy
+     */
+    public static synchronized ExecutionStrategy getStrategy(Workload workload) {
+        ExecutionStrategy strategy = strategies.get(workload);
+        if (strategy == null) {
+            strategy = createStrategy(workload);
+            strategies.put(workload, strategy);
+            log.info(Constant.MIGRATION_LOG + "Using " + strategy.getName() + " execution strategy for "
+                    + workload + " bound work");
+        }
+        return strategy;
+    }
+
+    /**
+     * Shutdown the created strategies. Subsequent calls to {@link #getStrategy(Workload)} read the configuration
+     * again.
+     */
+    public static synchronized void shutdown() {
+        for (ExecutionStrategy strategy : strategies.values()) {
+            strategy.shutdown();
+        }
+        strategies.clear();
+    }
+
+    private static ExecutionStrategy createStrategy(Workload workload) {
+        String name;
+        int parallelism;
+        if (workload == Workload.CPU) {
+            name = System.getProperty(Constant.CPU_STRATEGY, ForkJoinExecutionStrategy.NAME);
+            parallelism = Utility.getIntProperty(Constant.CPU_THREADS, Runtime.getRuntime().availableProcessors());
+        } else {
+            name = System.getProperty(Constant.IO_STRATEGY, FixedThreadPoolExecutionStrategy.NAME);
+            parallelism = Utility.getIntProperty(Constant.IO_THREADS, 1);
+        }
+        return createStrategy(name.trim(), parallelism);
+    }
+
+    public static ExecutionStrategy createStrategy(String name, int parallelism) {
+        if (SerialExecutionStrategy.NAME.equalsIgnoreCase(name)) {
+            return new SerialExecutionStrategy();
+        } else if (ForkJoinExecutionStrategy.NAME.equalsIgnoreCase(name)) {
+            return new ForkJoinExecutionStrategy(parallelism);
+        } else if (VirtualThreadExecutionStrategy.NAME.equalsIgnoreCase(name)) {
+            return new VirtualThreadExecutionStrategy(parallelism);
+        } else if (!FixedThreadPoolExecutionStrategy.NAME.equalsIgnoreCase(name)) {
+            log.warn("Unknown execution strategy " + name + ". Using " + FixedThreadPoolExecutionStrategy.NAME);
+        }
+        return new FixedThreadPoolExecutionStrategy(parallelism);
+    }
+}
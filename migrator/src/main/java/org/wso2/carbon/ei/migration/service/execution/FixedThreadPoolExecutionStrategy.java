@@ -0,0 +1,109 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.execution;
+
+import org.wso2.carbon.ei.migration.MigrationClientException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes the items on a fixed size pool shared by all the invocations, so the number of workers stays bounded
+ * when migrators run concurrently. Nested invocations from a worker of the pool, e.g. the files of a tenant processed
+ * by a worker, are executed on the calling worker, so they never wait for threads held by the outer invocation.
+ * Suited for registry and file system bound work.
+ */
+public class FixedThreadPoolExecutionStrategy extends AbstractExecutionStrategy {
+
+    public static final String NAME = "fixed";
+
+    private final ExecutorService executor;
+
+    public FixedThreadPoolExecutionStrategy(int parallelism) {
+        super(parallelism);
+        this.executor = Executors.newFixedThreadPool(getParallelism(), new WorkerThreadFactory());
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public <T> List<WorkResult<T>> execute(List<T> items, final WorkTask<T> task) throws MigrationClientException {
+
+        if (getParallelism() == 1 || items.size() <= 1 || isWorker()) {
+            List<WorkResult<T>> results = new ArrayList<>(items.size());
+            for (T item : items) {
+                results.add(run(item, task));
+            }
+            return results;
+        }
+
+        List<Future<WorkResult<T>>> futures = new ArrayList<>(items.size());
+        for (final T item : items) {
+            futures.add(executor.submit(new Callable<WorkResult<T>>() {
+                @Override
+                public WorkResult<T> call() {
+                    return run(item, task);
+                }
+            }));
+        }
+        return collect(futures);
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private boolean isWorker() {
+        Thread thread = Thread.currentThread();
+        return thread instanceof WorkerThread && ((WorkerThread) thread).strategy == this;
+    }
+
+    private class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new WorkerThread(FixedThreadPoolExecutionStrategy.this, runnable,
+                    "migration-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Worker of the pool, which knows the strategy owning it.
+     */
+    private static class WorkerThread extends Thread {
+
+        private final FixedThreadPoolExecutionStrategy strategy;
+
+        WorkerThread(FixedThreadPoolExecutionStrategy strategy, Runnable runnable, String name) {
+            super(runnable, name);
+            this.strategy = strategy;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Splits the items recursively over a work stealing pool. Suited for CPU bound work such as the RSA decryption.
+ * Nested invocations from a pool thread are executed within the current pool.
+ */
+public class ForkJoinExecutionStrategy extends AbstractExecutionStrategy {
+
+    public static final String NAME = "forkjoin";
+
+    private final ForkJoinPool pool;
+
+    public ForkJoinExecutionStrategy(int parallelism) {
+        super(parallelism);
+        this.pool = new ForkJoinPool(getParallelism());
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public <T> List<WorkResult<T>> execute(List<T> items, WorkTask<T> task) {
+
+        AtomicReferenceArray<WorkResult<T>> results = new AtomicReferenceArray<>(items.size());
+        WorkAction<T> action = new WorkAction<>(items, task, results, 0, items.size());
+        if (ForkJoinTask.inForkJoinPool()) {
+            action.invoke();
+        } else {
+            pool.invoke(action);
+        }
+
+        List<WorkResult<T>> resultList = new ArrayList<>(items.size());
+        for (int i = 0; i < results.length(); i++) {
+            resultList.add(results.get(i));
+        }
+        return resultList;
+    }
+
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static class WorkAction<T> extends RecursiveAction {
+
+        private final List<T> items;
+        private final WorkTask<T> task;
+        private final AtomicReferenceArray<WorkResult<T>> results;
+        private final int from;
+        private final int to;
+
+        WorkAction(List<T> items, WorkTask<T> task, AtomicReferenceArray<WorkResult<T>> results, int from, int to) {
+            this.items = items;
+            this.task = task;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int i = from; i < to; i++) {
+                    results.set(i, run(items.get(i), task));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new WorkAction<>(items, task, results, from, middle),
+                    new WorkAction<>(items, task, results, middle, to));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Processes the items one after another on the calling thread.
+ */
+public class SerialExecutionStrategy extends AbstractExecutionStrategy {
+
+    public static final String NAME = "serial";
+
+    public SerialExecutionStrategy() {
+        super(1);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public <T> List<WorkResult<T>> execute(List<T> items, WorkTask<T> task) {
+        List<WorkResult<T>> results = new ArrayList<>(items.size());
+        for (T item : items) {
+            results.add(run(item, task));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.execution;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.ei.migration.MigrationClientException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs every item on its own virtual thread, bounded by the configured parallelism across all the invocations.
+ * Blocked registry and file system calls park the virtual thread instead of holding a platform thread. Virtual
+ * threads are available from Java 21 onwards; the executor is looked up at runtime, so on older runtimes this
+ * strategy falls back to a fixed thread pool. Nested invocations from a virtual worker are executed on the calling
+ * worker, so they never wait for permits held by the outer invocation.
+ */
+public class VirtualThreadExecutionStrategy extends AbstractExecutionStrategy {
+
+    private static final Log log = LogFactory.getLog(VirtualThreadExecutionStrategy.class);
+
+    public static final String NAME = "virtual";
+
+    private final ExecutorService executor;
+    private final ExecutionStrategy fallback;
+    private final Semaphore permits;
+    private final ThreadLocal<Boolean> worker = new ThreadLocal<>();
+
+    public VirtualThreadExecutionStrategy(int parallelism) {
+        super(parallelism);
+        this.executor = newVirtualThreadPerTaskExecutor();
+        if (executor == null) {
+            log.warn("Virtual threads are not supported by this Java runtime. Falling back to a fixed thread pool.");
+            this.fallback = new FixedThreadPoolExecutionStrategy(parallelism);
+        } else {
+            this.fallback = null;
+        }
+        this.permits = new Semaphore(getParallelism());
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Check whether the items are executed on virtual threads or on the fixed thread pool fallback.
+     *
+     * @return true if the runtime supports virtual threads
+     */
+    public boolean isVirtual() {
+        return executor != null;
+    }
+
+    @Override
+    public <T> List<WorkResult<T>> execute(List<T> items, final WorkTask<T> task) throws MigrationClientException {
+
+        if (fallback != null) {
+            return fallback.execute(items, task);
+        }
+        if (getParallelism() == 1 || items.size() <= 1 || worker.get() != null) {
+            List<WorkResult<T>> results = new ArrayList<>(items.size());
+            for (T item : items) {
+                results.add(run(item, task));
+            }
+            return results;
+        }
+
+        List<Future<WorkResult<T>>> futures = new ArrayList<>(items.size());
+        for (final T item : items) {
+            futures.add(executor.submit(new Callable<WorkResult<T>>() {
+                @Override
+                public WorkResult<T> call() throws InterruptedException {
+                    permits.acquire();
+                    worker.set(Boolean.TRUE);
+                    try {
+                        return run(item, task);
+                    } finally {
+                        worker.remove();
+                        permits.release();
+                    }
+                }
+            }));
+        }
+        return collect(futures);
+    }
+
+    @Override
+    public void shutdown() {
+        if (fallback != null) {
+            fallback.shutdown();
+        } else {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Create the executor of Executors#newVirtualThreadPerTaskExecutor through reflection, as the bundle is compiled
+     * for runtimes without virtual threads.
+     *
+     * @return the executor, or null if the runtime does not support virtual threads
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            log.warn("Error while creating the virtual thread executor", e);
+            return null;
+        }
+    }
+}
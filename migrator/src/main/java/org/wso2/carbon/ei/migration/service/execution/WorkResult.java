@@ -0,0 +1,53 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.execution;
+
+/**
+ * Outcome of a {@link WorkTask} executed for a single item.
+ *
+ * @param <T> item type
+ */
+public class WorkResult<T> {
+
+    private final T item;
+    private final Throwable error;
+    private final long duration;
+
+    public WorkResult(T item, Throwable error, long duration) {
+        this.item = item;
+        this.error = error;
+        this.duration = duration;
+    }
+
+    public T getItem() {
+        return item;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return time taken for the item in milliseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+}
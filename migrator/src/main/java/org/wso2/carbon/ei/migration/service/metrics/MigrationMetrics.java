@@ -0,0 +1,282 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.metrics;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONObject;
+import org.wso2.carbon.ei.migration.service.MigrationContext;
+import org.wso2.carbon.ei.migration.util.Constant;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput counters per migrator and latency histograms per resource type and stage. Latencies are recorded as
+ * <pre>
+ * long start = System.nanoTime();
+ * ...
+ * MigrationMetrics.getInstance().record(ResourceType.FILE, Stage.PARSE, start);
+ * </pre>
+ * The counters are attributed to the migrator of the current thread. A summary is exported as JSON at the end of the
+ * run.
+ */
+public class MigrationMetrics {
+
+    private static final Log log = LogFactory.getLog(MigrationMetrics.class);
+
+    private static final String UNKNOWN = "unknown";
+
+    private static MigrationMetrics instance = new MigrationMetrics();
+
+    /**
+     * Kind of the migrated resource.
+     */
+    public enum ResourceType {
+        REGISTRY, FILE, ARCHIVE
+    }
+
+    /**
+     * Stage of the processing of a resource.
+     */
+    public enum Stage {
+        LIST, READ, PARSE, CRYPTO, SERIALIZE, WRITE
+    }
+
+    private final LatencyHistogram[][] histograms =
+            new LatencyHistogram[ResourceType.values().length][Stage.values().length];
+    private final ConcurrentMap<String, Counters> counters = new ConcurrentHashMap<>();
+    // Type of the resource processed by the current thread, used for the crypto stage
+    private final ThreadLocal<ResourceType> resourceType = new ThreadLocal<>();
+
+    private MigrationMetrics() {
+        reset();
+    }
+
+    public static MigrationMetrics getInstance() {
+        return instance;
+    }
+
+    /**
+     * Clear the recorded metrics.
+     */
+    public synchronized void reset() {
+        for (LatencyHistogram[] stages : histograms) {
+            for (int i = 0; i < stages.length; i++) {
+                stages[i] = new LatencyHistogram();
+            }
+        }
+        counters.clear();
+    }
+
+    /**
+     * Record the latency of a stage which started at the given time.
+     *
+     * @param type       resource type
+     * @param stage      processing stage
+     * @param startNanos {@link System#nanoTime()} at the start of the stage
+     */
+    public void record(ResourceType type, Stage stage, long startNanos) {
+        histograms[type.ordinal()][stage.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Record the latency of a crypto operation on a value of the resource processed by the current thread.
+     *
+     * @param startNanos {@link System#nanoTime()} at the start of the operation
+     */
+    public void recordCrypto(long startNanos) {
+        record(getResourceType(), Stage.CRYPTO, startNanos);
+    }
+
+    /**
+     * @return type of the resource the current thread is processing
+     */
+    public ResourceType getResourceType() {
+        ResourceType type = resourceType.get();
+        return type != null ? type : ResourceType.REGISTRY;
+    }
+
+    /**
+     * Record that the current thread started processing a resource of the current migrator.
+     *
+     * @param type resource type
+     */
+    public void itemScanned(ResourceType type) {
+        resourceType.set(type);
+        getCounters().itemsScanned.incrementAndGet();
+    }
+
+    /**
+     * Record that a resource of the current migrator was skipped by a prefilter without being parsed.
+     */
+    public void itemSkipped() {
+        getCounters().itemsSkipped.incrementAndGet();
+    }
+
+    public void valueReEncrypted() {
+        getCounters().valuesReEncrypted.incrementAndGet();
+    }
+
+    public void valueUndecryptable() {
+        getCounters().valuesUndecryptable.incrementAndGet();
+    }
+
+    public void valuePlaintext() {
+        getCounters().valuesPlaintext.incrementAndGet();
+    }
+
+    public void cacheHit() {
+        getCounters().cacheHits.incrementAndGet();
+    }
+
+    public void cacheMiss() {
+        getCounters().cacheMisses.incrementAndGet();
+    }
+
+    public void bytesRead(long bytes) {
+        getCounters().bytesRead.addAndGet(bytes);
+    }
+
+    public void bytesWritten(long bytes) {
+        getCounters().bytesWritten.addAndGet(bytes);
+    }
+
+    public void registryGet() {
+        getCounters().registryGets.incrementAndGet();
+    }
+
+    public void registryPut() {
+        getCounters().registryPuts.incrementAndGet();
+    }
+
+    /**
+     * @return summary of the recorded metrics
+     */
+    public JSONObject toJSON() {
+        JSONObject migrators = new JSONObject();
+        for (Map.Entry<String, Counters> entry : new TreeMap<>(counters).entrySet()) {
+            Counters value = entry.getValue();
+            migrators.put(entry.getKey(), new JSONObject()
+                    .put("itemsScanned", value.itemsScanned.get())
+                    .put("itemsSkipped", value.itemsSkipped.get())
+                    .put("valuesReEncrypted", value.valuesReEncrypted.get())
+                    .put("valuesUndecryptable", value.valuesUndecryptable.get())
+                    .put("valuesPlaintext", value.valuesPlaintext.get())
+                    .put("cacheHits", value.cacheHits.get())
+                    .put("cacheMisses", value.cacheMisses.get())
+                    .put("bytesRead", value.bytesRead.get())
+                    .put("bytesWritten", value.bytesWritten.get())
+                    .put("registryGets", value.registryGets.get())
+                    .put("registryPuts", value.registryPuts.get()));
+        }
+
+        JSONObject latencies = new JSONObject();
+        for (ResourceType type : ResourceType.values()) {
+            JSONObject stages = new JSONObject();
+            boolean isRecorded = false;
+            for (Stage stage : Stage.values()) {
+                LatencyHistogram histogram = histograms[type.ordinal()][stage.ordinal()];
+                if (histogram.getCount() > 0) {
+                    isRecorded = true;
+                    stages.put(stage.name(), new JSONObject()
+                            .put("count", histogram.getCount())
+                            .put("totalMillis", histogram.getTotal(TimeUnit.MILLISECONDS))
+                            .put("p50Micros", histogram.getPercentile(50, TimeUnit.MICROSECONDS))
+                            .put("p99Micros", histogram.getPercentile(99, TimeUnit.MICROSECONDS))
+                            .put("maxMicros", histogram.getMax(TimeUnit.MICROSECONDS)));
+                }
+            }
+            if (isRecorded) {
+                latencies.put(type.name(), stages);
+            }
+        }
+        return new JSONObject().put("migrators", migrators).put("latencies", latencies);
+    }
+
+    /**
+     * Write the summary to the given directory and log it.
+     *
+     * @param directory directory to write the summary to
+     */
+    public void export(String directory) {
+        String summary = toJSON().toString(2);
+        log.info(Constant.MIGRATION_LOG + "Migration metrics: " + summary);
+        File file = new File(directory, Constant.METRICS_FILE);
+        OutputStream outputStream = null;
+        try {
+            if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+                log.warn("Unable to create the directory " + file.getParent() + " for the migration metrics");
+                return;
+            }
+            outputStream = new FileOutputStream(file);
+            outputStream.write(summary.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.error("Error while writing the migration metrics to " + file.getAbsolutePath(), e);
+        } finally {
+            if (outputStream != null) {
+                try {
+                    outputStream.close();
+                } catch (IOException e) {
+                    log.error("Error occurred while closing the output stream", e);
+                }
+            }
+        }
+    }
+
+    private Counters getCounters() {
+        String migrator = MigrationContext.getMigrator();
+        if (migrator == null) {
+            migrator = UNKNOWN;
+        }
+        Counters value = counters.get(migrator);
+        if (value == null) {
+            Counters created = new Counters();
+            value = counters.putIfAbsent(migrator, created);
+            if (value == null) {
+                value = created;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Throughput counters of a migrator.
+     */
+    private static class Counters {
+
+        private final AtomicLong itemsScanned = new AtomicLong();
+        private final AtomicLong itemsSkipped = new AtomicLong();
+        private final AtomicLong valuesReEncrypted = new AtomicLong();
+        private final AtomicLong valuesUndecryptable = new AtomicLong();
+        private final AtomicLong valuesPlaintext = new AtomicLong();
+        private final AtomicLong cacheHits = new AtomicLong();
+        private final AtomicLong cacheMisses = new AtomicLong();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final AtomicLong bytesWritten = new AtomicLong();
+        private final AtomicLong registryGets = new AtomicLong();
+        private final AtomicLong registryPuts = new AtomicLong();
+    }
+}
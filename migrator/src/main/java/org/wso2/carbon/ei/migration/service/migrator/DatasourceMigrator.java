@@ -21,11 +21,18 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.core.util.CryptoException;
 import org.wso2.carbon.ei.migration.MigrationClientException;
-import org.wso2.carbon.ei.migration.internal.MigrationServiceDataHolder;
+import org.wso2.carbon.ei.migration.service.MigrationInventory;
+import org.wso2.carbon.ei.migration.service.MigrationResource;
 import org.wso2.carbon.ei.migration.service.Migrator;
 import org.wso2.carbon.ei.migration.service.dao.DataSourceDAO;
+import org.wso2.carbon.ei.migration.service.execution.WorkResult;
+import org.wso2.carbon.ei.migration.service.execution.WorkTask;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.ResourceType;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.Stage;
 import org.wso2.carbon.ei.migration.util.Constant;
 import org.wso2.carbon.ei.migration.util.Utility;
+import org.wso2.carbon.ndatasource.common.DataSourceConstants;
 import org.wso2.carbon.ndatasource.common.DataSourceException;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
@@ -33,6 +40,7 @@ import org.wso2.carbon.user.api.Tenant;
 
 import javax.xml.stream.XMLStreamException;
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -43,7 +51,13 @@ public class DatasourceMigrator extends Migrator {
     private static final Log log = LogFactory.getLog(DatasourceMigrator.class);
 
     @Override
-    public void migrate() {
+    public List<MigrationResource> getResources() {
+        return Collections.singletonList(MigrationResource.registry(Constant.CONFIG_REGISTRY_ROOT,
+                DataSourceConstants.DATASOURCES_REPOSITORY_BASE_PATH));
+    }
+
+    @Override
+    public void migrate() throws MigrationClientException {
         transformPasswordInRegistryDatasources();
     }
 
@@ -51,27 +65,17 @@ public class DatasourceMigrator extends Migrator {
      * This method will transform the data source password encrypted with old encryption algorithm to new encryption
      * algorithm.
      */
-    private void transformPasswordInRegistryDatasources() {
+    private void transformPasswordInRegistryDatasources() throws MigrationClientException {
         log.info(Constant.MIGRATION_LOG + "Password transformation starting on DataSource.");
-        //In tenants
-        Tenant[] tenants;
-        try {
-            tenants = MigrationServiceDataHolder.getRealmService().getTenantManager().getAllTenants();
-            for (Tenant tenant : tenants) {
+        List<WorkResult<Tenant>> results = forEachTenant(getTenants(false), new WorkTask<Tenant>() {
+            @Override
+            public void execute(Tenant tenant) throws Exception {
                 int tenantId = tenant.getId();
                 List<Resource> dataSources = DataSourceDAO.getInstance().getAllDataSources(tenantId);
-                this.updatePasswordInRegistryDataSources(tenantId, dataSources);
+                updatePasswordInRegistryDataSources(tenantId, dataSources);
             }
-        } catch (Exception e) {
-            log.error("Error while updating secondary data source password for tenant", e);
-        }
-        //In super tenant
-        try {
-            List<Resource> dataSources = DataSourceDAO.getInstance().getAllDataSources(Constant.SUPER_TENANT_ID);
-            this.updatePasswordInRegistryDataSources(Constant.SUPER_TENANT_ID, dataSources);
-        } catch (Exception e) {
-            log.error("Error while updating secondary data source password for super tenant", e);
-        }
+        });
+        logResults(results, "Data source passwords");
     }
 
     private void updatePasswordInRegistryDataSources(int tenantId, List<Resource> dataSources)
@@ -79,10 +83,17 @@ public class DatasourceMigrator extends Migrator {
 
         for (Resource dataSource : dataSources) {
             try {
+                MigrationInventory.getInstance().resourceScanned(dataSource);
+                MigrationMetrics metrics = MigrationMetrics.getInstance();
+                metrics.itemScanned(ResourceType.REGISTRY);
+                long start = System.nanoTime();
                 InputStream contentStream = dataSource.getContentStream();
                 OMElement omElement = Utility.toOM(contentStream);
+                omElement.build();
+                metrics.record(ResourceType.REGISTRY, Stage.PARSE, start);
                 Iterator pit = ((OMElement) ((OMElement) omElement.getChildrenWithName(Constant.DEFINITION_Q).next())
                         .getChildrenWithName(Constant.CONFIGURATION_Q).next()).getChildrenWithName(Constant.PASSWORD_Q);
+                boolean isUpdated = false;
                 while (pit.hasNext()) {
                     OMElement passwordElement = (OMElement) pit.next();
                     if ("true".equals(passwordElement.getAttributeValue(Constant.ENCRYPTED_Q))) {
@@ -90,13 +101,19 @@ public class DatasourceMigrator extends Migrator {
                         String newEncryptedPassword = Utility.getNewEncryptedValue(password);
                         if (StringUtils.isNotEmpty(newEncryptedPassword)) {
                             passwordElement.setText(newEncryptedPassword);
-                            dataSource.setContent(omElement.toString().getBytes());
-                            DataSourceDAO.saveDataSource(tenantId, dataSource);
+                            isUpdated = true;
                         }
                     }
                 }
+                // The data source is saved once, after all of its passwords are re-encrypted.
+                if (isUpdated) {
+                    start = System.nanoTime();
+                    dataSource.setContent(omElement.toString().getBytes());
+                    metrics.record(ResourceType.REGISTRY, Stage.SERIALIZE, start);
+                    DataSourceDAO.saveDataSource(tenantId, dataSource);
+                }
             } catch (XMLStreamException | CryptoException | RegistryException | DataSourceException e) {
-                throw new MigrationClientException(e.getMessage());
+                throw new MigrationClientException(e.getMessage(), e);
             }
         }
     }
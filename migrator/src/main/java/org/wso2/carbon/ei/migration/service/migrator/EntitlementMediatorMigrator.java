@@ -15,32 +15,29 @@
 */
 package org.wso2.carbon.ei.migration.service.migrator;
 
-import org.apache.axiom.om.OMElement;
-import org.apache.axiom.om.impl.builder.StAXOMBuilder;
-import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.core.util.CryptoException;
 import org.wso2.carbon.ei.migration.MigrationClientException;
-import org.wso2.carbon.ei.migration.internal.MigrationServiceDataHolder;
+import org.wso2.carbon.ei.migration.service.MigrationResource;
 import org.wso2.carbon.ei.migration.service.Migrator;
 import org.wso2.carbon.ei.migration.service.dao.EntitlementMediatorDAO;
+import org.wso2.carbon.ei.migration.service.execution.WorkResult;
+import org.wso2.carbon.ei.migration.service.execution.WorkTask;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.ResourceType;
 import org.wso2.carbon.ei.migration.util.Constant;
-import org.wso2.carbon.ei.migration.util.Utility;
+import org.wso2.carbon.ei.migration.util.StreamingXmlRewriter;
+import org.wso2.carbon.ei.migration.util.TargetRule;
 import org.wso2.carbon.user.api.Tenant;
-import org.wso2.carbon.user.api.UserStoreException;
 
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -48,10 +45,23 @@ import java.util.Map;
  */
 public class EntitlementMediatorMigrator extends Migrator {
     private static final Log log = LogFactory.getLog(EntitlementMediatorMigrator.class);
-    private boolean isModified = false;
+
+    /**
+     * Selects the encrypted remote service password of the entitlement mediators at any depth of a synapse
+     * configuration. Package private, so it can be benchmarked on its own.
+     */
+    static final StreamingXmlRewriter REWRITER = new StreamingXmlRewriter(
+            TargetRule.parse("/*//*/@remoteServicePassword", Constant.EM_ENCRYPTED_PASSWORD_PREFIX));
 
     @Override
-    public void migrate() {
+    public List<MigrationResource> getResources() {
+        return Arrays.asList(
+                MigrationResource.fileSystem(Constant.SUPER_TENANT_DEPLOYMENT_PATH, "synapse-configs"),
+                MigrationResource.fileSystem(Constant.TENANTS_PATH, "synapse-configs"));
+    }
+
+    @Override
+    public void migrate() throws MigrationClientException {
         transformPasswordInAllEntitlementMediators();
     }
 
@@ -61,115 +71,47 @@ public class EntitlementMediatorMigrator extends Migrator {
      *
      * @throws MigrationClientException migration client exception
      */
-    private void transformPasswordInAllEntitlementMediators() {
+    private void transformPasswordInAllEntitlementMediators() throws MigrationClientException {
         log.info(Constant.MIGRATION_LOG + "Migration starting on Entitlement Mediators.");
-        updateSuperTenantConfigs();
-        updateTenantConfigs();
-    }
-
-    private void updateSuperTenantConfigs() {
-        try {
-            HashMap<String, File[]> filesMap = EntitlementMediatorDAO.getInstance().getEMConfigFiles(Constant.SUPER_TENANT_ID);
-            for (Map.Entry entry : filesMap.entrySet()) {
-                File[] emConfigs = (File[]) entry.getValue();
-                if (emConfigs != null) {
-                    for (File file : emConfigs) {
-                        if (file.isFile() && file.getName().toLowerCase().endsWith(".xml")) {
-                            transformEMPassword(file.getAbsolutePath());
-                        }
+        List<WorkResult<Tenant>> results = forEachTenantResource(getTenants(isIgnoreInactiveTenants()),
+                new ResourceLister<File>() {
+                    @Override
+                    public List<File> list(Tenant tenant) throws Exception {
+                        return getEMConfigFiles(tenant.getId());
                     }
-                }
-            }
-        } catch (MigrationClientException | FileNotFoundException e) {
-            log.error("Error while updating mediator password for super tenant", e);
-        }
+                }, new WorkTask<File>() {
+                    @Override
+                    public void execute(File file) throws Exception {
+                        transformEMPassword(file.getAbsolutePath());
+                    }
+                }, "Entitlement mediator password");
+        logResults(results, "Entitlement mediator password");
     }
 
-    private void updateTenantConfigs() {
-        Tenant[] tenants;
-        try {
-            tenants = MigrationServiceDataHolder.getRealmService().getTenantManager().getAllTenants();
-            boolean isIgnoreForInactiveTenants = Boolean.parseBoolean(System.getProperty(Constant.IGNORE_INACTIVE_TENANTS));
-            for (Tenant tenant : tenants) {
-                if (isIgnoreForInactiveTenants && !tenant.isActive()) {
-                    log.info("Tenant " + tenant.getDomain() + " is inactive. Skipping secondary userstore migration!");
-                    continue;
-                }
-
-                HashMap<String, File[]> filesMap = EntitlementMediatorDAO.getInstance().getEMConfigFiles(tenant.getId());
-                for (Map.Entry entry : filesMap.entrySet()) {
-                    File[] emConfigs = (File[]) entry.getValue();
-                    if (emConfigs != null) {
-                        for (File file : emConfigs) {
-                            if (file.isFile() && file.getName().toLowerCase().endsWith(".xml")) {
-                                transformEMPassword(file.getAbsolutePath());
-                            }
-                        }
+    private List<File> getEMConfigFiles(int tenantId) throws FileNotFoundException {
+        List<File> configFiles = new ArrayList<>();
+        HashMap<String, File[]> filesMap = EntitlementMediatorDAO.getInstance().getEMConfigFiles(tenantId);
+        for (Map.Entry entry : filesMap.entrySet()) {
+            File[] emConfigs = (File[]) entry.getValue();
+            if (emConfigs != null) {
+                for (File file : emConfigs) {
+                    if (file.isFile() && file.getName().toLowerCase().endsWith(".xml")) {
+                        configFiles.add(file);
                     }
                 }
             }
-        } catch (MigrationClientException | FileNotFoundException | UserStoreException e) {
-            log.error("Error while updating entitlement mediator password for tenant", e);
         }
+        return configFiles;
     }
 
     private void transformEMPassword(String filePath) throws MigrationClientException {
-        isModified = false;
-        XMLStreamReader parser = null;
-        FileInputStream stream = null;
         try {
             log.info("Migrating password in: " + filePath);
-            stream = new FileInputStream(filePath);
-            parser = XMLInputFactory.newInstance().createXMLStreamReader(stream);
-            StAXOMBuilder builder = new StAXOMBuilder(parser);
-            OMElement documentElement = builder.getDocumentElement();
-            loopAndEncrypt(documentElement.getChildElements());
-            if (isModified) {
-                OutputStream outputStream = new FileOutputStream(filePath);
-                documentElement.serialize(outputStream);
-            }
-        } catch (XMLStreamException | FileNotFoundException e) {
+            REWRITER.rewrite(new File(filePath), ResourceType.FILE);
+        } catch (XMLStreamException | IOException e) {
             throw new MigrationClientException("Error while writing the file: " + e);
-        } finally {
-            try {
-                if (parser != null) {
-                    parser.close();
-                }
-                if (stream != null) {
-                    try {
-                            stream.close();
-                    } catch (IOException e) {
-                        log.error("Error occurred while closing Input stream", e);
-                    }
-                }
-            } catch (XMLStreamException ex) {
-                log.error("Error while closing XML stream", ex);
-            }
-        }
-    }
-
-    private void loopAndEncrypt(Iterator it) throws MigrationClientException {
-        while (it.hasNext()) {
-            OMElement element = (OMElement) it.next();
-            if (element.getAttributeValue(Constant.REMOTE_SERVICE_PASSWORD_Q) != null
-                    && element.getAttributeValue(Constant.REMOTE_SERVICE_PASSWORD_Q)
-                    .startsWith(Constant.EM_ENCRYPTED_PASSWORD_PREFIX)) {
-                String remoteServicePassword = element.getAttributeValue(Constant.REMOTE_SERVICE_PASSWORD_Q);
-                String newEncryptedPassword;
-                try {
-                    newEncryptedPassword = Utility.getNewEncryptedValue(
-                            remoteServicePassword.replace(Constant.EM_ENCRYPTED_PASSWORD_PREFIX, ""));
-                    if (StringUtils.isNotEmpty(newEncryptedPassword)) {
-                        element.getAttribute(Constant.REMOTE_SERVICE_PASSWORD_Q)
-                                .setAttributeValue(Constant.EM_ENCRYPTED_PASSWORD_PREFIX + newEncryptedPassword);
-                        isModified = true;
-                    }
-                } catch (CryptoException e) {
-                    throw new MigrationClientException(e.getMessage());
-                }
-            } else if (element.getChildElements().hasNext()) {
-                loopAndEncrypt(element.getChildElements());
-            }
+        } catch (CryptoException e) {
+            throw new MigrationClientException(e.getMessage());
         }
     }
 }
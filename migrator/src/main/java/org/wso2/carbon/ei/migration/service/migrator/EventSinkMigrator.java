@@ -19,15 +19,21 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.service.MigrationResource;
 import org.wso2.carbon.ei.migration.service.Migrator;
 import org.wso2.carbon.ei.migration.service.dao.EventSinkDAO;
+import org.wso2.carbon.ei.migration.service.execution.WorkResult;
+import org.wso2.carbon.ei.migration.service.execution.WorkTask;
 import org.wso2.carbon.ei.migration.util.Constant;
 import org.wso2.carbon.ei.migration.util.Utility;
 import org.wso2.carbon.event.sink.EventSink;
 import org.wso2.carbon.event.sink.EventSinkException;
 
+import java.util.Arrays;
 import java.util.List;
 
+import static org.wso2.carbon.base.MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+
 /**
  * Password transformation class for Event Sink.
  */
@@ -35,7 +41,19 @@ public class EventSinkMigrator extends Migrator {
     private static final Log log = LogFactory.getLog(EventSinkMigrator.class);
 
     @Override
-    public void migrate() {
+    public List<MigrationResource> getResources() {
+        return Arrays.asList(
+                MigrationResource.fileSystem(Constant.SUPER_TENANT_DEPLOYMENT_PATH, "event-sinks"),
+                MigrationResource.fileSystem(Constant.TENANTS_PATH, "event-sinks"));
+    }
+
+    @Override
+    public void migrate() throws MigrationClientException {
+        // Event sinks are read from the deployment directory of the super tenant.
+        if (!isTenantSelected(Constant.SUPER_TENANT_ID, SUPER_TENANT_DOMAIN_NAME)) {
+            log.info(Constant.MIGRATION_LOG + "Super tenant is not selected. Skipping event sink migration.");
+            return;
+        }
         transformPasswordInAllEventSinks();
     }
 
@@ -43,35 +61,45 @@ public class EventSinkMigrator extends Migrator {
      * This method will transform the event sink password encrypted with old encryption algorithm to new encryption
      * algorithm.
      */
-    private void transformPasswordInAllEventSinks() {
+    private void transformPasswordInAllEventSinks() throws MigrationClientException {
 
         log.info(Constant.MIGRATION_LOG + "Password transformation starting on Event Sink.");
 
         List<EventSink> eventSinksList;
         try {
             eventSinksList = EventSinkDAO.getInstance().getAllEventSinks();
-            if (eventSinksList.size() > 0) {
-                this.transformPasswordFromOldToNewEncryption(eventSinksList);
-            }
-        } catch (EventSinkException | MigrationClientException e) {
+        } catch (EventSinkException e) {
             log.error("Password transformation failed with ERROR: " + e);
+            return;
         }
+        List<WorkResult<EventSink>> results = forEach(eventSinksList, new WorkTask<EventSink>() {
+            @Override
+            public void execute(EventSink eventSink) throws Exception {
+                transformPasswordFromOldToNewEncryption(eventSink);
+            }
+        });
+        logResults(results, "Event sink password");
+    }
+
+    @Override
+    protected String describe(Object item) {
+        if (item instanceof EventSink) {
+            return "event sink " + ((EventSink) item).getName();
+        }
+        return super.describe(item);
     }
 
-    private void transformPasswordFromOldToNewEncryption(List<EventSink> eventSinksList)
-            throws MigrationClientException {
+    private void transformPasswordFromOldToNewEncryption(EventSink eventSink) throws MigrationClientException {
 
-        for (EventSink eventSink : eventSinksList) {
-            try {
-                String newEncryptedPassword = Utility.getNewEncryptedValue(eventSink.getPassword());
-                if (StringUtils.isNotEmpty(newEncryptedPassword)) {
-                    EventSink updatedEventSink = new EventSink(eventSink.getName(), eventSink.getUsername(),
-                            newEncryptedPassword, eventSink.getReceiverUrlSet(), eventSink.getAuthenticationUrlSet());
-                    EventSinkDAO.getInstance().writeEventSink(updatedEventSink);
-                }
-            } catch (Exception e) {
-                throw new MigrationClientException(e.getMessage());
+        try {
+            String newEncryptedPassword = Utility.getNewEncryptedValue(eventSink.getPassword());
+            if (StringUtils.isNotEmpty(newEncryptedPassword)) {
+                EventSink updatedEventSink = new EventSink(eventSink.getName(), eventSink.getUsername(),
+                        newEncryptedPassword, eventSink.getReceiverUrlSet(), eventSink.getAuthenticationUrlSet());
+                EventSinkDAO.getInstance().writeEventSink(updatedEventSink);
             }
+        } catch (Exception e) {
+            throw new MigrationClientException(e.getMessage());
         }
     }
 }
@@ -1,38 +1,58 @@
 package org.wso2.carbon.ei.migration.service.migrator;
 
-import org.apache.axiom.om.OMElement;
-import org.apache.axiom.om.impl.builder.StAXOMBuilder;
-import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.core.util.CryptoException;
 import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.service.MigrationResource;
 import org.wso2.carbon.ei.migration.service.Migrator;
+import org.wso2.carbon.ei.migration.service.execution.WorkResult;
+import org.wso2.carbon.ei.migration.service.execution.WorkTask;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.ResourceType;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.Stage;
 import org.wso2.carbon.ei.migration.util.Constant;
-import org.wso2.carbon.ei.migration.util.Utility;
+import org.wso2.carbon.ei.migration.util.StreamingXmlRewriter;
+import org.wso2.carbon.ei.migration.util.TargetRule;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.wso2.carbon.base.MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
 
 public class InputOutputDataMigration extends Migrator {
     private static final Log log = LogFactory.getLog(InputOutputDataMigration.class);
 
     private static InputOutputDataMigration instance = new InputOutputDataMigration();
 
+    /**
+     * Selects the text of the encrypted properties of the output adapter of a publisher.
+     */
+    private static final StreamingXmlRewriter REWRITER = new StreamingXmlRewriter(
+            TargetRule.parse("/*/to/*[@encrypted='true']/text()"));
+
     public static InputOutputDataMigration getInstance() {
         return instance;
     }
 
     @Override
-    public void migrate() {
+    public List<MigrationResource> getResources() {
+        return Arrays.asList(
+                MigrationResource.fileSystem(Constant.EVENT_PUBLISHER_PATH),
+                MigrationResource.fileSystem(Constant.EVENT_RECIEVER_PATH));
+    }
+
+    @Override
+    public void migrate() throws MigrationClientException {
+        if (!isTenantSelected(Constant.SUPER_TENANT_ID, SUPER_TENANT_DOMAIN_NAME)) {
+            log.info(Constant.MIGRATION_LOG + "Super tenant is not selected. Skipping event publisher and receiver "
+                    + "migration.");
+            return;
+        }
         log.info(Constant.MIGRATION_LOG + "Password transformation starting on Event Publisher and Receiver.");
 
         String carbonPath = System.getProperty(Constant.CARBON_HOME);
@@ -44,60 +64,43 @@ public class InputOutputDataMigration extends Migrator {
         return new File(path);
     }
 
-    private static void migratePublishers(String carbonHome) {
+    private void migratePublishers(String carbonHome) throws MigrationClientException {
         File publisherPath = readFiles(carbonHome + Constant.EVENT_PUBLISHER_PATH);
-        try {
-            migrateData(publisherPath);
+        if (logResults(migrateData(publisherPath), "Event publisher password") == 0) {
             log.info("Migrating publishers was successful");
-        } catch (MigrationClientException e) {
-            log.error("Error while migrating publishers: " + e.getMessage());
         }
     }
 
-    private static void migrateReceivers(String carbonHome) {
+    private void migrateReceivers(String carbonHome) throws MigrationClientException {
         File receiverPath = readFiles(carbonHome + Constant.EVENT_RECIEVER_PATH);
-        try {
-            migrateData(receiverPath);
+        if (logResults(migrateData(receiverPath), "Event receiver password") == 0) {
             log.info("Migrating receivers was successful");
-        } catch (MigrationClientException e) {
-            log.error("Error while migrating receivers : " + e);
         }
     }
 
-    private static void migrateData(File folder) throws MigrationClientException {
-        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-        documentBuilderFactory.setNamespaceAware(true);
-        XMLStreamReader parser;
-        FileInputStream stream;
-        try {
-            File[] configs = folder.listFiles();
-            if (configs != null) {
-                for (File fileEntry : configs) {
-                    if (fileEntry.isFile() && fileEntry.getName().toLowerCase().endsWith(".xml")) {
-                        stream = new FileInputStream(fileEntry);
-                        parser = XMLInputFactory.newInstance().createXMLStreamReader(stream);
-                        StAXOMBuilder builder = new StAXOMBuilder(parser);
-                        OMElement documentElement = builder.getDocumentElement();
-                        Iterator it = ((OMElement) documentElement.getChildrenWithName(Constant.TO_Q).next()).getChildElements();
-                        String newEncryptedPassword = null;
-                        while (it.hasNext()) {
-                            OMElement element = (OMElement) it.next();
-                            if ("true".equals(element.getAttributeValue(Constant.ENCRYPTED_Q))) {
-                                String password = element.getText();
-                                newEncryptedPassword = Utility.getNewEncryptedValue(password);
-                                if (StringUtils.isNotEmpty(newEncryptedPassword)) {
-                                    element.setText(newEncryptedPassword);
-                                }
-                            }
-                        }
-
-                        if (newEncryptedPassword != null) {
-                            OutputStream outputStream = new FileOutputStream(new File(fileEntry.getAbsolutePath()).getPath());
-                            documentElement.serialize(outputStream);
-                        }
-                    }
+    private List<WorkResult<File>> migrateData(File folder) throws MigrationClientException {
+        long start = System.nanoTime();
+        List<File> configFiles = new ArrayList<>();
+        File[] configs = folder.listFiles();
+        if (configs != null) {
+            for (File fileEntry : configs) {
+                if (fileEntry.isFile() && fileEntry.getName().toLowerCase().endsWith(".xml")) {
+                    configFiles.add(fileEntry);
                 }
             }
+        }
+        MigrationMetrics.getInstance().record(ResourceType.FILE, Stage.LIST, start);
+        return forEach(configFiles, new WorkTask<File>() {
+            @Override
+            public void execute(File fileEntry) throws Exception {
+                migrateFile(fileEntry);
+            }
+        });
+    }
+
+    private static void migrateFile(File fileEntry) throws MigrationClientException {
+        try {
+            REWRITER.rewrite(fileEntry, ResourceType.FILE);
         } catch (IOException | CryptoException | XMLStreamException e) {
             throw new MigrationClientException(e.getMessage());
         }
@@ -20,24 +20,43 @@ package org.wso2.carbon.ei.migration.service.migrator;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.service.MigrationResource;
 import org.wso2.carbon.ei.migration.service.Migrator;
 import org.wso2.carbon.ei.migration.service.RegistryDataManager;
+import org.wso2.carbon.ei.migration.service.execution.WorkResult;
+import org.wso2.carbon.ei.migration.service.execution.WorkTask;
 import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.user.api.Tenant;
+
+import java.util.Collections;
+import java.util.List;
 
 public class KeyStorePasswordMigrator extends Migrator {
 
     private static final Log log = LogFactory.getLog(KeyStorePasswordMigrator.class);
 
     @Override
-    public void migrate() {
-            migrateKeystorePasswords();
+    public List<MigrationResource> getResources() {
+        return Collections.singletonList(
+                MigrationResource.registry(Constant.GOVERNANCE_REGISTRY_ROOT, Constant.KEYSTORE_RESOURCE_PATH));
+    }
+
+    @Override
+    public void migrate() throws MigrationClientException {
+        migrateKeystorePasswords();
     }
 
-    private void migrateKeystorePasswords() {
+    private void migrateKeystorePasswords() throws MigrationClientException {
 
         log.info(Constant.MIGRATION_LOG + "Migration starting on Key Stores");
-        boolean isIgnoreForInactiveTenants = Boolean.parseBoolean(System.getProperty(Constant.IGNORE_INACTIVE_TENANTS));
-        RegistryDataManager registryDataManager = RegistryDataManager.getInstance();
-        registryDataManager.migrateKeyStorePassword(isIgnoreForInactiveTenants);
+        final RegistryDataManager registryDataManager = RegistryDataManager.getInstance();
+        List<WorkResult<Tenant>> results = forEachTenant(getTenants(isIgnoreInactiveTenants()),
+                new WorkTask<Tenant>() {
+                    @Override
+                    public void execute(Tenant tenant) throws Exception {
+                        registryDataManager.migrateKeyStorePassword(tenant.getId());
+                    }
+                });
+        logResults(results, "Keystore passwords");
     }
 }
@@ -1,22 +1,28 @@
 package org.wso2.carbon.ei.migration.service.migrator;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.analytics.common.jmx.agent.profiles.Profile;
-import org.wso2.carbon.analytics.common.jmx.agent.tasks.internal.JmxTaskServiceComponent;
 import org.wso2.carbon.core.util.CryptoException;
 import org.wso2.carbon.ei.migration.MigrationClientException;
 import org.wso2.carbon.ei.migration.internal.MigrationServiceDataHolder;
+import org.wso2.carbon.ei.migration.service.MigrationInventory;
+import org.wso2.carbon.ei.migration.service.MigrationResource;
 import org.wso2.carbon.ei.migration.service.Migrator;
+import org.wso2.carbon.ei.migration.service.execution.WorkResult;
+import org.wso2.carbon.ei.migration.service.execution.WorkTask;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.ResourceType;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.Stage;
 import org.wso2.carbon.ei.migration.util.Constant;
 import org.wso2.carbon.ei.migration.util.Utility;
+import org.wso2.carbon.ei.migration.util.XmlIOService;
 import org.wso2.carbon.registry.core.Collection;
 import org.wso2.carbon.registry.core.Registry;
 import org.wso2.carbon.registry.core.Resource;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
-import org.wso2.carbon.registry.core.service.RegistryService;
 import org.wso2.carbon.user.api.Tenant;
-import org.wso2.carbon.user.api.UserStoreException;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -25,90 +31,93 @@ import javax.xml.bind.Unmarshaller;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
 public class ProfileDataMigrator extends Migrator {
     private static final String PROFILE_SAVE_REG_LOCATION = "repository/components/org.wso2.carbon.publish.jmx.agent/";
     private static final Log LOG = LogFactory.getLog(ProfileDataMigrator.class);
 
-    private Registry registry;
-    private RegistryService registryService;
-
+    @Override
+    public List<MigrationResource> getResources() {
+        return Collections.singletonList(
+                MigrationResource.registry(Constant.GOVERNANCE_REGISTRY_ROOT, PROFILE_SAVE_REG_LOCATION));
+    }
 
     @Override
-    public void migrate() {
+    public void migrate() throws MigrationClientException {
         migrateProfilePassword();
     }
 
-    private void migrateProfilePassword() {
-        Tenant[] tenants = new Tenant[0];
-        try {
-            tenants = MigrationServiceDataHolder.getRealmService().getTenantManager().getAllTenants();
-        } catch (UserStoreException e) {
-            LOG.error("Error while migrating profiles. Tenant retrieving failed. ", e);
-        }
-        for (Tenant tenant : tenants) {
-            try {
+    private void migrateProfilePassword() throws MigrationClientException {
+        List<WorkResult<Tenant>> results = forEachTenant(getTenants(false), new WorkTask<Tenant>() {
+            @Override
+            public void execute(Tenant tenant) throws Exception {
                 migrateProfilePasswordforTenant(tenant.getId());
-            } catch (MigrationClientException e) {
-                LOG.error("Error while migrating profiles. ", e);
             }
-        }
+        });
+        logResults(results, "JMX profile password");
     }
 
     private void migrateProfilePasswordforTenant(int tenantID) throws MigrationClientException {
-        if (tenantID == Constant.SUPER_TENANT_ID) {
-            try {
-                Collection profilesCollection = (Collection) registry.get(PROFILE_SAVE_REG_LOCATION);
-                for (String profileName : profilesCollection.getChildren()) {
-                    Profile profile = getProfile(profileName);
-                    reEncryptProfileWithNewCipher(profile);
-                }
-            } catch (RegistryException e) {
-                throw new MigrationClientException("error while obtaining the registry ", e);
+        try {
+            Registry registry = MigrationServiceDataHolder.getRegistryService().getGovernanceSystemRegistry(tenantID);
+            MigrationMetrics metrics = MigrationMetrics.getInstance();
+            long start = System.nanoTime();
+            metrics.registryGet();
+            if (!registry.resourceExists(PROFILE_SAVE_REG_LOCATION)) {
+                return;
             }
-        } else {
-            try {
-                registryService = JmxTaskServiceComponent.getRegistryService();
-                registry = registryService.getGovernanceSystemRegistry(tenantID);
-                Collection profileCollection = (Collection) registry.get(PROFILE_SAVE_REG_LOCATION);
-                for (String profileName : profileCollection.getChildren()) {
-                    Profile profile = getProfile(profileName);
-                    reEncryptProfileWithNewCipher(profile);
-                }
-            } catch (RegistryException e) {
-                throw new MigrationClientException("error while obtaining the registry ", e);
+            metrics.registryGet();
+            Collection profileCollection = (Collection) registry.get(PROFILE_SAVE_REG_LOCATION);
+            metrics.record(ResourceType.REGISTRY, Stage.LIST, start);
+            for (String profileName : profileCollection.getChildren()) {
+                Profile profile = getProfile(registry, profileName);
+                reEncryptProfileWithNewCipher(registry, profile);
             }
+        } catch (RegistryException e) {
+            throw new MigrationClientException("error while obtaining the registry ", e);
         }
     }
 
-    private void reEncryptProfileWithNewCipher(Profile profile) throws MigrationClientException {
+    private void reEncryptProfileWithNewCipher(Registry registry, Profile profile) throws MigrationClientException {
         String reEncryptedValue;
         try {
             reEncryptedValue = Utility.getNewEncryptedValue(profile.getPass());
         } catch (CryptoException e) {
             throw new MigrationClientException(e.getMessage());
         }
-        profile.setPass(reEncryptedValue);
-        saveUpdatedProfile(profile);
+        if (StringUtils.isNotEmpty(reEncryptedValue)) {
+            profile.setPass(reEncryptedValue);
+            saveUpdatedProfile(registry, profile);
+        }
     }
 
 
-    private Profile getProfile(String profileName) throws MigrationClientException {
+    private Profile getProfile(Registry registry, String profileName) throws MigrationClientException {
         ByteArrayInputStream byteArrayInputStream;
+        MigrationMetrics metrics = MigrationMetrics.getInstance();
+        metrics.itemScanned(ResourceType.REGISTRY);
+        long start = System.nanoTime();
         try {
             //if the profile exists
+            metrics.registryGet();
             Resource res = registry.get(PROFILE_SAVE_REG_LOCATION + profileName);
+            MigrationInventory.getInstance().resourceScanned(res);
             byteArrayInputStream = new ByteArrayInputStream((byte[]) res.getContent());
+            metrics.record(ResourceType.REGISTRY, Stage.READ, start);
         } catch (RegistryException e) {
             LOG.error("Unable to get profile : " + profileName + ". ", e);
             throw new MigrationClientException("Unable to get profile : ".concat(profileName).concat(". "), e);
         }
 
         Profile profile;
+        start = System.nanoTime();
         try {
-            JAXBContext jaxbContext = JAXBContext.newInstance(Profile.class);
+            JAXBContext jaxbContext = XmlIOService.getInstance().getJAXBContext(Profile.class);
             Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
             profile = (Profile) jaxbUnmarshaller.unmarshal(byteArrayInputStream);
+            metrics.record(ResourceType.REGISTRY, Stage.PARSE, start);
         } catch (JAXBException e) {
             LOG.error("JAXB unmarshalling exception :" + profileName + ". ", e);
             throw new MigrationClientException("JAXB unmarshalling exception has occurred while retrieving '".
@@ -118,15 +127,18 @@ public class ProfileDataMigrator extends Migrator {
 
     }
 
-    private void saveUpdatedProfile(Profile profile) throws MigrationClientException {
+    private void saveUpdatedProfile(Registry registry, Profile profile) throws MigrationClientException {
         String path = PROFILE_SAVE_REG_LOCATION + profile.getName();
 
         JAXBContext jaxbContext;
         ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        MigrationMetrics metrics = MigrationMetrics.getInstance();
+        long start = System.nanoTime();
         try {
-            jaxbContext = JAXBContext.newInstance(Profile.class);
+            jaxbContext = XmlIOService.getInstance().getJAXBContext(Profile.class);
             Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
             jaxbMarshaller.marshal(profile, byteArrayOutputStream);
+            metrics.record(ResourceType.REGISTRY, Stage.SERIALIZE, start);
         } catch (JAXBException e) {
             throw new MigrationClientException("JAXB unmarshalling exception has occurred while saving '".
                     concat(profile.getName()).concat("'."), e);
@@ -136,10 +148,13 @@ public class ProfileDataMigrator extends Migrator {
         try {
             Resource res = registry.newResource();
             res.setContent(byteArrayOutputStream.toString());
+            start = System.nanoTime();
             //delete the existing profile
             registry.delete(path);
             //save the new profile
+            metrics.registryPut();
             registry.put(path, res);
+            metrics.record(ResourceType.REGISTRY, Stage.WRITE, start);
         } catch (RegistryException e) {
             throw new MigrationClientException("Error has occurred while trying to save '".concat(profile.getName())
                     .concat("' profile on registry. "), e);
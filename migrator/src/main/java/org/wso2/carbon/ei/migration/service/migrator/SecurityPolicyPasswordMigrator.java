@@ -21,24 +21,38 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.ei.migration.MigrationClientException;
 import org.wso2.carbon.ei.migration.service.RegistryDataManager;
+import org.wso2.carbon.ei.migration.service.MigrationResource;
 import org.wso2.carbon.ei.migration.service.Migrator;
+import org.wso2.carbon.ei.migration.service.execution.WorkResult;
+import org.wso2.carbon.ei.migration.service.execution.WorkTask;
 import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.user.api.Tenant;
+
+import java.util.Collections;
+import java.util.List;
 
 public class SecurityPolicyPasswordMigrator extends Migrator {
 
     private static final Log log = LogFactory.getLog(SecurityPolicyPasswordMigrator.class);
 
     @Override
-    public void migrate() {
+    public List<MigrationResource> getResources() {
+        return Collections.singletonList(
+                MigrationResource.registry(Constant.CONFIG_REGISTRY_ROOT, Constant.SERVICE_GROUPS_PATH));
+    }
 
-        log.info(Constant.MIGRATION_LOG + "Migration starting on Security Policies");
-        RegistryDataManager registryDataManager = RegistryDataManager.getInstance();
+    @Override
+    public void migrate() throws MigrationClientException {
 
-        boolean isIgnoreForInactiveTenants = Boolean.parseBoolean(System.getProperty(Constant.IGNORE_INACTIVE_TENANTS));
-        try {
-            registryDataManager.migrateServicePrinciplePassword(isIgnoreForInactiveTenants);
-        } catch (Exception e) {
-            log.error("Error while migrating Service Principle Password", e);
-        }
+        log.info(Constant.MIGRATION_LOG + "Migration starting on Security Policies");
+        final RegistryDataManager registryDataManager = RegistryDataManager.getInstance();
+        List<WorkResult<Tenant>> results = forEachTenant(getTenants(isIgnoreInactiveTenants()),
+                new WorkTask<Tenant>() {
+                    @Override
+                    public void execute(Tenant tenant) throws Exception {
+                        registryDataManager.migrateServicePrinciplePassword(tenant.getId());
+                    }
+                });
+        logResults(results, "Service Principle Passwords");
     }
 }
@@ -18,15 +18,31 @@ package org.wso2.carbon.ei.migration.service.migrator;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.ei.migration.MigrationClientException;
+import org.wso2.carbon.ei.migration.internal.MigrationServiceDataHolder;
+import org.wso2.carbon.ei.migration.service.MigrationInventory;
+import org.wso2.carbon.ei.migration.service.MigrationResource;
 import org.wso2.carbon.ei.migration.service.Migrator;
 import org.wso2.carbon.ei.migration.service.dao.ServerProfileDAO;
+import org.wso2.carbon.ei.migration.service.execution.WorkResult;
+import org.wso2.carbon.ei.migration.service.execution.WorkTask;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.ResourceType;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.Stage;
 import org.wso2.carbon.ei.migration.util.Constant;
 import org.wso2.carbon.ei.migration.util.Utility;
+import org.wso2.carbon.user.api.Tenant;
+import org.wso2.carbon.user.api.UserStoreException;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import static org.wso2.carbon.base.MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+
 /**
  * Password transformation class for server profile.
  */
@@ -34,7 +50,12 @@ public class ServerProfileMigrator extends Migrator {
     private static final Log log = LogFactory.getLog(ServerProfileMigrator.class);
 
     @Override
-    public void migrate() {
+    public List<MigrationResource> getResources() {
+        return Collections.singletonList(MigrationResource.fileSystem(Constant.BPEL_REPOSITORY_PATH));
+    }
+
+    @Override
+    public void migrate() throws MigrationClientException {
         transformPasswordInAllServerProfiles();
     }
 
@@ -43,99 +64,139 @@ public class ServerProfileMigrator extends Migrator {
      * algorithm.
      *
      */
-    private void transformPasswordInAllServerProfiles() {
+    private void transformPasswordInAllServerProfiles() throws MigrationClientException {
         log.info(Constant.MIGRATION_LOG + "Migration starting on Server Profiles.");
-        updateSuperTenantConfigs();
-        updateTenantConfigs();
-    }
+        final String repositoryPath = Paths.get(System.getProperty(Constant.CARBON_HOME),
+                new String[]{"wso2", "business-process", "repository"}).toString();
+        List<Tenant> tenants = new ArrayList<>();
+        if (isTenantSelected(Constant.SUPER_TENANT_ID, SUPER_TENANT_DOMAIN_NAME)) {
+            tenants.add(getSuperTenant());
+        }
+        File[] tenantFolders = new File(repositoryPath, "tenants").listFiles();
+        if (tenantFolders != null) {
+            for (File tenantFolder : tenantFolders) {
+                Tenant tenant = getSelectedTenant(tenantFolder.getName());
+                if (tenant != null) {
+                    tenants.add(tenant);
+                }
+            }
+        }
 
-    private void updateSuperTenantConfigs() {
-        String carbonHome = System.getProperty(Constant.CARBON_HOME);
-        try {
-            String zipPath = Paths.get(carbonHome,
-                    new String[]{"wso2", "business-process", "repository", "deployment", "server", "bpel"}).toString();
-            File[] spZipFiles = new File(zipPath).listFiles();
-            if (spZipFiles != null) {
-                for (File zipFile : spZipFiles) {
-                    if (zipFile.getName().toLowerCase().endsWith(".zip")) {
-                        String extractedFolderPath = zipPath + "/Extracted_" + zipFile.getName().replace(".zip", "");
-                        Utility.unZipIt(zipFile.getAbsolutePath(), extractedFolderPath);
-                        String sourceFolderPath = extractedFolderPath + File.separator
-                                + zipFile.getName().replace(".zip", "");
-                        ServerProfileDAO.getInstance().modifyInsideExtractedFolder(sourceFolderPath);
-                        if (ServerProfileDAO.getInstance().isModified) {
-                            Utility.delete(zipFile);
-                            List<String> files = Utility.generateFileList(sourceFolderPath);
-                            Utility.zipIt(sourceFolderPath, zipFile.getAbsolutePath(), files);
-                        }
-                        Utility.delete(new File(extractedFolderPath));
-                    }
+        List<WorkResult<Tenant>> results = forEachTenantResource(tenants, new ResourceLister<File>() {
+            @Override
+            public List<File> list(Tenant tenant) {
+                String tenantId = String.valueOf(tenant.getId());
+                String zipPath = tenant.getId() == Constant.SUPER_TENANT_ID
+                        ? Paths.get(repositoryPath, new String[]{"deployment", "server", "bpel"}).toString()
+                        : Paths.get(repositoryPath, new String[]{"tenants", tenantId, "bpel"}).toString();
+                List<File> files = new ArrayList<>();
+                addFiles(files, new File(zipPath).listFiles(), ".zip");
+                addSPFiles(files, new File(Paths.get(repositoryPath, new String[]{"bpel", tenantId}).toString())
+                        .listFiles());
+                return files;
+            }
+        }, new WorkTask<File>() {
+            @Override
+            public void execute(File file) throws Exception {
+                if (file.getName().toLowerCase().endsWith(".zip")) {
+                    processZipFile(file);
+                } else {
+                    ServerProfileDAO.getInstance().transformSPPassword(file.getAbsolutePath());
                 }
             }
+        }, "Server profile password");
+        logResults(results, "Server profile password");
+    }
 
-            File[] spFolders = new File(Paths.get(carbonHome,
-                    new String[]{"wso2", "business-process", "repository", "bpel", Constant.SUPER_TENANT_ID + ""})
-                    .toString()).listFiles();
-            processSPFiles(spFolders);
-        } catch (Exception e) {
-            log.error("Error while updating mediator password for super tenant", e);
+    @Override
+    protected ResourceType getResourceType(Object item) {
+        if (item instanceof File && ((File) item).getName().toLowerCase().endsWith(".zip")) {
+            return ResourceType.ARCHIVE;
         }
+        return super.getResourceType(item);
     }
 
-
-    private void updateTenantConfigs() {
-        String carbonHome = System.getProperty(Constant.CARBON_HOME);
+    private void processZipFile(File zipFile) throws MigrationClientException {
+        String zipPath = zipFile.getParent();
+        if (MigrationInventory.getInstance().isEnabled()) {
+            // A dry run must not write next to the deployed archives
+            try {
+                zipPath = Files.createTempDirectory("server-profiles").toString();
+            } catch (IOException e) {
+                throw new MigrationClientException("Unable to create a temporary directory for " + zipFile, e);
+            }
+        }
+        String extractedFolderPath = zipPath + "/Extracted_" + zipFile.getName().replace(".zip", "");
+        MigrationMetrics metrics = MigrationMetrics.getInstance();
         try {
-            String tenantsPath = Paths.get(carbonHome,
-                    new String[]{"wso2", "business-process", "repository", "tenants"}).toString();
-            File[] tenantFolders = new File(tenantsPath).listFiles();
-            if (tenantFolders != null) {
-                for (File tenantFolder : tenantFolders) {
-                    String zipPath = Paths.get(tenantFolder.getAbsolutePath(),
-                            new String[]{"bpel"}).toString();
-                    File[] spZipFiles = new File(zipPath).listFiles();
-                    if (spZipFiles != null) {
-                        for (File zipFile : spZipFiles) {
-                            if (zipFile.getName().toLowerCase().endsWith(".zip")) {
-                                String extractedFolderPath = zipPath + "/Extracted_"
-                                        + zipFile.getName().replace(".zip", "");
-                                Utility.unZipIt(zipFile.getAbsolutePath(), extractedFolderPath);
-                                String sourceFolderPath = extractedFolderPath + File.separator
-                                        + zipFile.getName().replace(".zip", "");
-                                ServerProfileDAO.getInstance().modifyInsideExtractedFolder(sourceFolderPath);
-                                if (ServerProfileDAO.getInstance().isModified) {
-                                    Utility.delete(zipFile);
-                                    List<String> files = Utility.generateFileList(sourceFolderPath);
-                                    Utility.zipIt(sourceFolderPath, zipFile.getAbsolutePath(), files);
-                                }
-                                Utility.delete(new File(extractedFolderPath));
-                            }
-                        }
-                    }
-
-                    File[] spFolders = new File(Paths.get(carbonHome,
-                            new String[]{"wso2", "business-process", "repository", "bpel", tenantFolder.getName() + ""})
-                            .toString()).listFiles();
-                    processSPFiles(spFolders);
-                }
+            long start = System.nanoTime();
+            Utility.unZipIt(zipFile.getAbsolutePath(), extractedFolderPath);
+            metrics.record(ResourceType.ARCHIVE, Stage.READ, start);
+            metrics.bytesRead(zipFile.length());
+            String sourceFolderPath = extractedFolderPath + File.separator + zipFile.getName().replace(".zip", "");
+            if (ServerProfileDAO.getInstance().modifyInsideExtractedFolder(sourceFolderPath)) {
+                start = System.nanoTime();
+                Utility.delete(zipFile);
+                List<String> files = Utility.generateFileList(sourceFolderPath);
+                Utility.zipIt(sourceFolderPath, zipFile.getAbsolutePath(), files);
+                metrics.record(ResourceType.ARCHIVE, Stage.WRITE, start);
+                metrics.bytesWritten(zipFile.length());
+            }
+        } finally {
+            Utility.delete(new File(extractedFolderPath));
+            if (!zipPath.equals(zipFile.getParent())) {
+                Utility.delete(new File(zipPath));
             }
-        } catch (MigrationClientException e) {
-            log.error("Error while updating server profile mediator password for tenant", e);
         }
     }
 
-    private void processSPFiles(File[] spFolders) throws MigrationClientException {
+    private void addSPFiles(List<File> spFiles, File[] spFolders) {
         if (spFolders != null) {
             for (File folder : spFolders) {
-                File[] spFiles = folder.listFiles();
-                if (spFiles != null) {
-                    for (File spFile : spFiles) {
-                        if (spFile.isFile() && spFile.getName().toLowerCase().endsWith(".xml")) {
-                            ServerProfileDAO.getInstance().transformSPPassword(spFile.getAbsolutePath());
-                        }
-                    }
+                addFiles(spFiles, folder.listFiles(), ".xml");
+            }
+        }
+    }
+
+    private void addFiles(List<File> files, File[] candidates, String extension) {
+        if (candidates != null) {
+            for (File file : candidates) {
+                if (file.isFile() && file.getName().toLowerCase().endsWith(extension)) {
+                    files.add(file);
                 }
             }
         }
     }
+
+    /**
+     * Tenant folders are named by the tenant id, which is resolved to the tenant domain, so a tenant can be selected by
+     * either. Any other folder is skipped.
+     *
+     * @param tenantFolderName name of the tenant folder
+     * @return tenant of the folder, or null if the folder is not selected
+     */
+    private Tenant getSelectedTenant(String tenantFolderName) {
+        int tenantId;
+        try {
+            tenantId = Integer.parseInt(tenantFolderName);
+        } catch (NumberFormatException e) {
+            log.warn("Skipping " + tenantFolderName + ", which is not named by a tenant id");
+            return null;
+        }
+        String tenantDomain = null;
+        try {
+            tenantDomain = MigrationServiceDataHolder.getRealmService().getTenantManager().getDomain(tenantId);
+        } catch (UserStoreException e) {
+            log.error("Error while retrieving the domain of tenant " + tenantId + ". The tenant is only selected by "
+                    + "its id.", e);
+        }
+        if (!isTenantSelected(tenantId, tenantDomain)) {
+            return null;
+        }
+        Tenant tenant = new Tenant();
+        tenant.setId(tenantId);
+        tenant.setDomain(tenantDomain);
+        tenant.setActive(true);
+        return tenant;
+    }
 }
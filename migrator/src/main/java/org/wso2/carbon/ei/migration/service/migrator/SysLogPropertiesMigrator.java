@@ -17,34 +17,41 @@ package org.wso2.carbon.ei.migration.service.migrator;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.core.util.CryptoException;
 import org.wso2.carbon.ei.migration.MigrationClientException;
 import org.wso2.carbon.ei.migration.service.RegistryDataManager;
+import org.wso2.carbon.ei.migration.service.MigrationResource;
 import org.wso2.carbon.ei.migration.service.Migrator;
+import org.wso2.carbon.ei.migration.service.execution.WorkResult;
+import org.wso2.carbon.ei.migration.service.execution.WorkTask;
 import org.wso2.carbon.ei.migration.util.Constant;
-import org.wso2.carbon.registry.core.exceptions.RegistryException;
-import org.wso2.carbon.user.api.UserStoreException;
+import org.wso2.carbon.user.api.Tenant;
+
+import java.util.Collections;
+import java.util.List;
 
 public class SysLogPropertiesMigrator extends Migrator {
 
     private static final Log log = LogFactory.getLog(SysLogPropertiesMigrator.class);
 
     @Override
-    public void migrate() {
+    public List<MigrationResource> getResources() {
+        return Collections.singletonList(MigrationResource.registry(Constant.CONFIG_REGISTRY_ROOT, Constant.SYSLOG));
+    }
+
+    @Override
+    public void migrate() throws MigrationClientException {
         migrateSysLogPropertiesPassword();
     }
 
-    private void migrateSysLogPropertiesPassword() {
+    private void migrateSysLogPropertiesPassword() throws MigrationClientException {
         log.info(Constant.MIGRATION_LOG + "Migration starting on SYSLOG_PROPERTIES file");
-        boolean isIgnoreForInactiveTenants = Boolean.parseBoolean(System.getProperty(Constant.IGNORE_INACTIVE_TENANTS));
-        try {
-            RegistryDataManager.getInstance().migrateSysLogPropertyPassword(isIgnoreForInactiveTenants);
-        } catch (UserStoreException e) {
-            log.error("Error while retrieving all tenants. ", e);
-        } catch (RegistryException e) {
-            log.error("Error while accessing registry and loading SYSLOG_PROPERTIES file.", e);
-        } catch (CryptoException e) {
-            log.error("Error while encrypting/decrypting SYSLOG_PROPERTIES password. ", e);
-        }
+        List<WorkResult<Tenant>> results = forEachTenant(getTenants(isIgnoreInactiveTenants()),
+                new WorkTask<Tenant>() {
+                    @Override
+                    public void execute(Tenant tenant) throws Exception {
+                        RegistryDataManager.getInstance().migrateSysLogPropertyPassword(tenant.getId());
+                    }
+                });
+        logResults(results, "Sys log property password");
     }
 }
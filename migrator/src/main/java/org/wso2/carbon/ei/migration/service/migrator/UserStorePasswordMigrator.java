@@ -17,75 +17,69 @@
  */
 package org.wso2.carbon.ei.migration.service.migrator;
 
-import org.apache.axiom.om.OMElement;
-import org.apache.axiom.om.impl.builder.StAXOMBuilder;
-import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.core.util.CryptoException;
 import org.wso2.carbon.ei.migration.MigrationClientException;
-import org.wso2.carbon.ei.migration.internal.MigrationServiceDataHolder;
+import org.wso2.carbon.ei.migration.service.MigrationResource;
 import org.wso2.carbon.ei.migration.service.Migrator;
+import org.wso2.carbon.ei.migration.service.execution.WorkResult;
+import org.wso2.carbon.ei.migration.service.execution.WorkTask;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.ResourceType;
 import org.wso2.carbon.ei.migration.util.Constant;
-import org.wso2.carbon.ei.migration.util.Utility;
+import org.wso2.carbon.ei.migration.util.StreamingXmlRewriter;
+import org.wso2.carbon.ei.migration.util.TargetRule;
 import org.wso2.carbon.user.api.Tenant;
 
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.file.Paths;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class UserStorePasswordMigrator extends Migrator {
 
     private static final Log log = LogFactory.getLog(UserStorePasswordMigrator.class);
 
+    /**
+     * Selects the text of the password properties of a user store configuration.
+     */
+    private static final StreamingXmlRewriter REWRITER = new StreamingXmlRewriter(
+            TargetRule.parse("/*/Property[@name='" + Constant.PASSWORD + "']/text()"),
+            TargetRule.parse("/*/Property[@name='" + Constant.CONNECTION_PASSWORD + "']/text()"));
+
     @Override
-    public void migrate() {
-        log.info(Constant.MIGRATION_LOG + "Migration starting on Secondary User Stores");
-        updateSuperTenantConfigs();
-        updateTenantConfigs();
+    public List<MigrationResource> getResources() {
+        return Arrays.asList(
+                MigrationResource.fileSystem(Constant.SUPER_TENANT_DEPLOYMENT_PATH, "userstores"),
+                MigrationResource.fileSystem(Constant.TENANTS_PATH, "userstores"));
     }
 
-    private void updateTenantConfigs() {
-        Tenant[] tenants;
-        try {
-            tenants = MigrationServiceDataHolder.getRealmService().getTenantManager().getAllTenants();
-            boolean isIgnoreForInactiveTenants = Boolean.parseBoolean(System.getProperty(Constant.IGNORE_INACTIVE_TENANTS));
-            for (Tenant tenant : tenants) {
-                if (isIgnoreForInactiveTenants && !tenant.isActive()) {
-                    log.info("Tenant " + tenant.getDomain() + " is inactive. Skipping secondary userstore migration!");
-                    continue;
-                }
-                File[] userstoreConfigs = getUserStoreConfigFiles(tenant.getId());
-                for (File file : userstoreConfigs) {
-                    if (file.isFile()) {
+    @Override
+    public void migrate() throws MigrationClientException {
+        log.info(Constant.MIGRATION_LOG + "Migration starting on Secondary User Stores");
+        List<WorkResult<Tenant>> results = forEachTenantResource(getTenants(isIgnoreInactiveTenants()),
+                new ResourceLister<File>() {
+                    @Override
+                    public List<File> list(Tenant tenant) throws Exception {
+                        List<File> configFiles = new ArrayList<>();
+                        for (File file : getUserStoreConfigFiles(tenant.getId())) {
+                            if (file.isFile()) {
+                                configFiles.add(file);
+                            }
+                        }
+                        return configFiles;
+                    }
+                }, new WorkTask<File>() {
+                    @Override
+                    public void execute(File file) throws Exception {
                         updatePassword(file.getAbsolutePath());
                     }
-                }
-            }
-        } catch (Exception e) {
-            log.error("Error while updating secondary user store password for tenant", e);
-        }
-    }
-
-    private void updateSuperTenantConfigs() {
-        try {
-            File[] userstoreConfigs = getUserStoreConfigFiles(Constant.SUPER_TENANT_ID);
-            for (File file : userstoreConfigs) {
-                if (file.isFile()) {
-                    updatePassword(file.getAbsolutePath());
-                }
-            }
-        } catch (Exception e) {
-            log.error("Error while updating secondary user store password for super tenant", e);
-        }
+                }, "Secondary user store password");
+        logResults(results, "Secondary user store password");
     }
 
     private File[] getUserStoreConfigFiles(int tenantId) throws FileNotFoundException {
@@ -103,52 +97,13 @@ public class UserStorePasswordMigrator extends Migrator {
         return files != null ? files : new File[0];
     }
 
-    private void updatePassword(String filePath) throws FileNotFoundException, CryptoException {
+    private void updatePassword(String filePath) throws IOException, CryptoException, MigrationClientException {
 
-        XMLStreamReader parser = null;
-        FileInputStream stream = null;
         try {
             log.info("Migrating password in: " + filePath);
-            stream = new FileInputStream(filePath);
-            parser = XMLInputFactory.newInstance().createXMLStreamReader(stream);
-            StAXOMBuilder builder = new StAXOMBuilder(parser);
-            OMElement documentElement = builder.getDocumentElement();
-            Iterator it = documentElement.getChildElements();
-            String newEncryptedPassword = null;
-            while (it.hasNext()) {
-                OMElement element = (OMElement) it.next();
-                if (Constant.PASSWORD.equals(element.getAttributeValue(Constant.NAME_Q)) ||
-                        Constant.CONNECTION_PASSWORD.equals(element.getAttributeValue(Constant.NAME_Q))) {
-                    String encryptedPassword = element.getText();
-                    newEncryptedPassword = Utility.getNewEncryptedValue(encryptedPassword);
-                    if (StringUtils.isNotEmpty(newEncryptedPassword)) {
-                        element.setText(newEncryptedPassword);
-                    }
-                }
-            }
-
-            if (newEncryptedPassword != null) {
-                OutputStream outputStream = new FileOutputStream(filePath);
-                documentElement.serialize(outputStream);
-            }
+            REWRITER.rewrite(new File(filePath), ResourceType.FILE);
         } catch (XMLStreamException ex) {
-            log.error("Error while updating password for: " + filePath);
-        } finally {
-            try {
-                if (parser != null) {
-                    parser.close();
-                }
-                if (stream != null) {
-                    try {
-                        stream.close();
-                    } catch (IOException e) {
-                        log.error("Error occurred while closing Input stream", e);
-                    }
-                }
-            } catch (XMLStreamException ex) {
-                log.error("Error while closing XML stream", ex);
-            }
-
+            throw new MigrationClientException("Error while updating password for: " + filePath, ex);
         }
     }
 }
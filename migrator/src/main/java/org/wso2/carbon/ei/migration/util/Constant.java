@@ -61,4 +61,35 @@ public class Constant {
     public static final String CONNECTION_PASSWORD = "ConnectionPassword";
 
     public static final QName SECURE_PASSWORD_Q = new QName("securePassword");
+
+    public static final String MIGRATOR_THREADS = "migrate.threads";
+    public static final String IO_STRATEGY = "migrate.ioStrategy";
+    public static final String IO_THREADS = "migrate.ioThreads";
+    public static final String CPU_STRATEGY = "migrate.cpuStrategy";
+    public static final String CPU_THREADS = "migrate.cpuThreads";
+    public static final String INLINE_BATCH_SIZE = "migrate.inlineBatchSize";
+    public static final String RESUME = "migrate.resume";
+    public static final String JOURNAL_FILE = "migration.journal";
+    public static final String DRY_RUN = "migrate.dryRun";
+    public static final String METRICS_FILE = "migration-metrics.json";
+    public static final String REPORT_FILE_PREFIX = "migration-report-";
+    public static final String CONFIG_REGISTRY_ROOT = "/_system/config";
+    public static final String GOVERNANCE_REGISTRY_ROOT = "/_system/governance";
+    public static final String SUPER_TENANT_DEPLOYMENT_PATH = "repository/deployment/server";
+    public static final String TENANTS_PATH = "repository/tenants/*";
+    public static final String BPEL_REPOSITORY_PATH = "wso2/business-process/repository";
+    public static final String MIGRATORS = "migrate.migrators";
+    public static final String EXCLUDE_MIGRATORS = "migrate.excludeMigrators";
+    public static final String TENANTS = "migrate.tenants";
+    public static final String EXCLUDE_TENANTS = "migrate.excludeTenants";
+    public static final String CACHE_ENABLED = "migrate.cache";
+    public static final String CACHE_SIZE = "migrate.cacheSize";
+    public static final String CACHE_TTL_SECONDS = "migrate.cacheTtlSeconds";
+    public static final String FILTER_ENABLED = "migrate.filter";
+    public static final String FILTER_CAPACITY = "migrate.filterCapacity";
+    public static final String FILTER_FILE = "migrated-values.bloom";
+    public static final String CRYPTO_PROVIDER = "migrate.cryptoProvider";
+    public static final String CRYPTO_KEY_SIZE = "migrate.cryptoKeySize";
+    public static final String SPLICE_ENABLED = "migrate.splice";
+    public static final String PREFILTER_ENABLED = "migrate.prefilter";
 }
@@ -0,0 +1,188 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Byte level search for the markers of a migration target, e.g. the name of an attribute holding a password, so a
+ * file without any of them is skipped before it is parsed. The markers are compiled into an Aho-Corasick automaton,
+ * which finds any of them in a single pass over the bytes of the file.
+ * <p>
+ * Markers are ASCII, so they are matched on the bytes of any ASCII compatible encoding. A file which starts like a
+ * UTF-16 or UTF-32 document always passes the filter. Files are read through a direct buffer reused per thread. They
+ * are not memory mapped, as a mapping holds the file until it is garbage collected, which prevents replacing the file
+ * on Windows.
+ */
+public class MarkerPrefilter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int ALPHABET = 256;
+
+    private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+    };
+
+    // Automaton with the failure links folded into the transitions
+    private final int[][] transitions;
+    private final boolean[] accepting;
+
+    /**
+     * @param markers ASCII markers. A file containing any of them passes the filter.
+     */
+    public MarkerPrefilter(String... markers) {
+        List<int[]> gotos = new ArrayList<>();
+        List<Boolean> outputs = new ArrayList<>();
+        gotos.add(newState());
+        outputs.add(false);
+        for (String marker : markers) {
+            if (marker.isEmpty()) {
+                throw new IllegalArgumentException("Empty marker");
+            }
+            int state = 0;
+            for (byte b : marker.getBytes(StandardCharsets.US_ASCII)) {
+                int next = gotos.get(state)[b & 0xFF];
+                if (next < 0) {
+                    next = gotos.size();
+                    gotos.add(newState());
+                    outputs.add(false);
+                    gotos.get(state)[b & 0xFF] = next;
+                }
+                state = next;
+            }
+            outputs.set(state, true);
+        }
+
+        transitions = gotos.toArray(new int[gotos.size()][]);
+        accepting = new boolean[transitions.length];
+        for (int i = 0; i < accepting.length; i++) {
+            accepting[i] = outputs.get(i);
+        }
+        // Breadth first, so the failure state of a state is complete before the state itself.
+        int[] failure = new int[transitions.length];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            if (transitions[0][c] < 0) {
+                transitions[0][c] = 0;
+            } else {
+                queue.add(transitions[0][c]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            accepting[state] |= accepting[failure[state]];
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = transitions[state][c];
+                if (next < 0) {
+                    transitions[state][c] = transitions[failure[state]][c];
+                } else {
+                    failure[next] = transitions[failure[state]][c];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param file file to search
+     * @return true if the file contains any of the markers, or is not in an ASCII compatible encoding
+     * @throws IOException if the file can not be read
+     */
+    public boolean matches(File file) throws IOException {
+        ByteBuffer buffer = BUFFERS.get();
+        buffer.clear();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            int state = 0;
+            boolean isFirst = true;
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                if (isFirst && !isAsciiCompatible(buffer)) {
+                    return true;
+                }
+                isFirst = false;
+                state = search(state, buffer);
+                if (state < 0) {
+                    return true;
+                }
+                buffer.clear();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @param content bytes to search, from the position to the limit of the buffer
+     * @return true if the bytes contain any of the markers, or are not in an ASCII compatible encoding
+     */
+    public boolean matches(ByteBuffer content) {
+        return !isAsciiCompatible(content) || search(0, content) < 0;
+    }
+
+    /**
+     * Advance the automaton over the bytes from the position to the limit of the buffer.
+     *
+     * @return state after the bytes, or -1 if a marker was found
+     */
+    private int search(int state, ByteBuffer content) {
+        for (int i = content.position(); i < content.limit(); i++) {
+            state = transitions[state][content.get(i) & 0xFF];
+            if (accepting[state]) {
+                return -1;
+            }
+        }
+        return state;
+    }
+
+    /**
+     * A document in UTF-16 or UTF-32 starts with a byte order mark, or has a zero byte within its first characters.
+     */
+    private static boolean isAsciiCompatible(ByteBuffer content) {
+        int start = content.position();
+        int end = Math.min(content.limit(), start + 4);
+        if (end - start >= 2) {
+            int first = content.get(start) & 0xFF;
+            int second = content.get(start + 1) & 0xFF;
+            if (first == 0xFE && second == 0xFF || first == 0xFF && second == 0xFE) {
+                return false;
+            }
+        }
+        for (int i = start; i < end; i++) {
+            if (content.get(i) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] newState() {
+        int[] state = new int[ALPHABET];
+        Arrays.fill(state, -1);
+        return state;
+    }
+}
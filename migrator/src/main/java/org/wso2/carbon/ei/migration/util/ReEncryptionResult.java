@@ -0,0 +1,59 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.util;
+
+/**
+ * Outcome of re-encrypting a value with the new encryption algorithm.
+ */
+public class ReEncryptionResult {
+
+    /**
+     * Classification of the value given for re-encryption.
+     */
+    public enum Outcome {
+        /** The value is already encrypted with the new, self contained, cipher text format. */
+        ALREADY_NEW,
+        /** The value was encrypted with the legacy RSA algorithm and has been re-encrypted. */
+        MIGRATED,
+        /** The value is not a cipher text. */
+        PLAINTEXT,
+        /** The value looks like a cipher text, but can not be decrypted with the server key. */
+        UNDECRYPTABLE
+    }
+
+    private final Outcome outcome;
+    private final String value;
+
+    public ReEncryptionResult(Outcome outcome, String value) {
+        this.outcome = outcome;
+        this.value = value;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return value encrypted with the new algorithm, or null unless the outcome is {@link Outcome#MIGRATED}
+     */
+    public String getValue() {
+        return value;
+    }
+
+    public boolean isMigrated() {
+        return outcome == Outcome.MIGRATED;
+    }
+}
@@ -0,0 +1,659 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.util;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.core.util.CryptoException;
+import org.wso2.carbon.ei.migration.service.crypto.ReEncryptionBatch;
+import org.wso2.carbon.ei.migration.service.crypto.ReEncryptionService;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.ResourceType;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.Stage;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites the encrypted values of an XML document without building a tree of it. The StAX events of the document
+ * are copied from the reader to the writer and only the values selected by the {@link TargetRule}s are swapped as
+ * they pass, so the memory used does not depend on the size of the document.
+ * <p>
+ * Every document holding a value of a rule contains the marker of the rule, e.g. the name of the attribute holding
+ * the value. A file whose bytes do not contain any of the markers is skipped by a {@link MarkerPrefilter} without being
+ * parsed. Any other file is read twice. The first pass collects the values, which are submitted to the
+ * {@link ReEncryptionService} as a batch. The second pass, which is skipped when none of the values is re-encrypted,
+ * copies the document to a temporary file next to it with the new values. The temporary file then replaces the
+ * document with an atomic move, so an interrupted migration never leaves a partially written document behind.
+ * <p>
+ * Unless -Dmigrate.splice=false is set, the second pass splices the new values into the original bytes instead of
+ * writing the document again from its events. The unchanged regions are copied with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, so the result is identical to the
+ * original apart from the values. The offsets of the values are found by searching the original bytes, which is only
+ * possible when a value is written literally, i.e. without character references, in an ASCII compatible encoding, and
+ * when every occurrence of a value in the file is one of the selected values. Otherwise the document is written from
+ * its events.
+ */
+public class StreamingXmlRewriter {
+
+    private static final Log log = LogFactory.getLog(StreamingXmlRewriter.class);
+
+    private static final String DEFAULT_ENCODING = "UTF-8";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final TargetMatcher matcher;
+    private final MarkerPrefilter prefilter;
+
+    /**
+     * @param rules rules selecting the values. The prefilter, disabled with -Dmigrate.prefilter=false, is only used
+     *              when every rule has a marker.
+     */
+    public StreamingXmlRewriter(TargetRule... rules) {
+        this.matcher = new TargetMatcher(Collections.unmodifiableList(Arrays.asList(rules)));
+        List<String> markers = new ArrayList<>();
+        for (TargetRule rule : rules) {
+            markers.add(rule.getMarker());
+        }
+        this.prefilter = !markers.isEmpty() && !markers.contains(null)
+                ? new MarkerPrefilter(markers.toArray(new String[markers.size()])) : null;
+    }
+
+    /**
+     * Re-encrypt the values of a file. The reads and writes are recorded in the migration metrics.
+     *
+     * @param file document to rewrite
+     * @param type type of the resource
+     * @return true if any of the values was re-encrypted
+     * @throws IOException        if the file can not be read or replaced
+     * @throws XMLStreamException if the file is not a well formed document
+     * @throws CryptoException    if a value can not be encrypted with the new algorithm
+     */
+    public boolean rewrite(File file, ResourceType type) throws IOException, XMLStreamException, CryptoException {
+        MigrationMetrics metrics = MigrationMetrics.getInstance();
+        long start = System.nanoTime();
+        if (prefilter != null && isPrefilterEnabled()) {
+            boolean hasMarker = prefilter.matches(file);
+            metrics.record(type, Stage.READ, start);
+            if (!hasMarker) {
+                metrics.itemSkipped();
+                return false;
+            }
+            start = System.nanoTime();
+        }
+        List<String> values = new ArrayList<>();
+        String encoding;
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)) {
+            encoding = scan(inputStream, values);
+        }
+        metrics.record(type, Stage.PARSE, start);
+        metrics.bytesRead(file.length());
+        if (values.isEmpty()) {
+            return false;
+        }
+
+        ReEncryptionBatch batch = ReEncryptionService.getInstance().submit(values);
+        if (!hasNewValue(values, batch)) {
+            return false;
+        }
+
+        File tempFile = File.createTempFile(file.getName() + ".", ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            start = System.nanoTime();
+            if (!isSpliceEnabled() || !splice(file, tempFile, encoding, values, batch)) {
+                try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+                     OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(tempFile),
+                             BUFFER_SIZE)) {
+                    rewrite(inputStream, outputStream, batch);
+                }
+            }
+            metrics.record(type, Stage.SERIALIZE, start);
+            metrics.bytesWritten(tempFile.length());
+
+            start = System.nanoTime();
+            replace(tempFile, file);
+            metrics.record(type, Stage.WRITE, start);
+        } finally {
+            if (tempFile.exists() && !tempFile.delete()) {
+                log.warn("Unable to delete the temporary file " + tempFile.getAbsolutePath());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collect the values selected by the rules.
+     *
+     * @param inputStream document. The stream is not closed.
+     * @return values in document order
+     * @throws XMLStreamException if the document is not well formed
+     */
+    public List<String> scan(InputStream inputStream) throws XMLStreamException {
+        List<String> values = new ArrayList<>();
+        scan(inputStream, values);
+        return values;
+    }
+
+    private String scan(InputStream inputStream, final List<String> values) throws XMLStreamException {
+        XMLStreamReader reader = XmlIOService.getInstance().createCopyingXMLStreamReader(inputStream);
+        try {
+            process(reader, null, new ValueHandler() {
+                @Override
+                public String handle(String value) {
+                    values.add(value);
+                    return null;
+                }
+            });
+            return reader.getEncoding();
+        } catch (CryptoException e) {
+            // Never thrown as no value is re-encrypted while scanning.
+            throw new IllegalStateException(e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Copy a document, replacing the values selected by the rules with their re-encrypted values.
+     *
+     * @param inputStream  document. The stream is not closed.
+     * @param outputStream stream to write the document to. The stream is not closed.
+     * @param batch        batch holding the values of the document
+     * @return true if any of the values was replaced
+     * @throws XMLStreamException if the document is not well formed or can not be written
+     * @throws CryptoException    if a value can not be encrypted with the new algorithm
+     */
+    public boolean rewrite(InputStream inputStream, OutputStream outputStream, final ReEncryptionBatch batch)
+            throws XMLStreamException, CryptoException {
+        XMLStreamReader reader = XmlIOService.getInstance().createCopyingXMLStreamReader(inputStream);
+        try {
+            String encoding = reader.getCharacterEncodingScheme() != null ? reader.getCharacterEncodingScheme()
+                    : DEFAULT_ENCODING;
+            XMLStreamWriter writer = XmlIOService.getInstance().createXMLStreamWriter(outputStream, encoding);
+            try {
+                return process(reader, writer, new ValueHandler() {
+                    @Override
+                    public String handle(String value) throws CryptoException {
+                        String newValue = batch.getNewEncryptedValue(value);
+                        return StringUtils.isNotEmpty(newValue) ? newValue : null;
+                    }
+                });
+            } finally {
+                writer.close();
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private boolean process(XMLStreamReader reader, XMLStreamWriter writer, ValueHandler handler)
+            throws XMLStreamException, CryptoException {
+        TargetMatcher.Walker walker = matcher.newWalker();
+        int depth = 0;
+        // Depth of the element holding the current value. Values are not searched within it.
+        int valueDepth = -1;
+        // Text of the element holding the current value, if the value is not an attribute.
+        ElementText elementText = null;
+        boolean isModified = false;
+        while (true) {
+            switch (reader.getEventType()) {
+                case XMLStreamConstants.START_DOCUMENT:
+                    if (writer != null && reader.getVersion() != null) {
+                        if (reader.getCharacterEncodingScheme() != null) {
+                            writer.writeStartDocument(reader.getCharacterEncodingScheme(), reader.getVersion());
+                        } else {
+                            writer.writeStartDocument(reader.getVersion());
+                        }
+                    }
+                    break;
+                case XMLStreamConstants.START_ELEMENT:
+                    TargetRule rule = walker.startElement(reader);
+                    if (valueDepth >= 0) {
+                        rule = null;
+                        if (elementText != null && depth == valueDepth) {
+                            elementText.markup(writer, true);
+                        }
+                    }
+                    depth++;
+                    String newValue = null;
+                    if (rule != null && rule.getAttribute() != null) {
+                        newValue = handler.handle(TargetRule.getAttributeValue(reader, rule.getAttribute())
+                                .substring(rule.getPrefix().length()));
+                    }
+                    if (writer != null) {
+                        copyStartElement(reader, writer, rule, newValue);
+                    }
+                    if (rule != null) {
+                        valueDepth = depth;
+                        if (rule.getAttribute() == null) {
+                            elementText = new ElementText(rule, reader.getLocalName());
+                        }
+                    }
+                    isModified |= newValue != null;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (elementText != null && depth == valueDepth) {
+                        isModified |= elementText.end(writer, handler) != null;
+                        elementText = null;
+                    }
+                    if (writer != null) {
+                        writer.writeEndElement();
+                    }
+                    if (depth == valueDepth) {
+                        valueDepth = -1;
+                    }
+                    walker.endElement();
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                    if (elementText != null && depth == valueDepth) {
+                        elementText.characters(writer, reader.getText(), false);
+                    } else if (writer != null) {
+                        writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(),
+                                reader.getTextLength());
+                    }
+                    break;
+                case XMLStreamConstants.CDATA:
+                    if (elementText != null && depth == valueDepth) {
+                        elementText.characters(writer, reader.getText(), true);
+                    } else if (writer != null) {
+                        writer.writeCData(reader.getText());
+                    }
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    if (elementText != null && depth == valueDepth) {
+                        elementText.markup(writer, false);
+                    }
+                    if (writer != null) {
+                        writer.writeComment(reader.getText());
+                    }
+                    break;
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    if (elementText != null && depth == valueDepth) {
+                        elementText.markup(writer, false);
+                    }
+                    if (writer != null) {
+                        writer.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+                    }
+                    break;
+                case XMLStreamConstants.DTD:
+                    if (writer != null) {
+                        writer.writeDTD(reader.getText());
+                    }
+                    break;
+                case XMLStreamConstants.ENTITY_REFERENCE:
+                    if (elementText != null && depth == valueDepth) {
+                        elementText.markup(writer, true);
+                    }
+                    if (writer != null) {
+                        writer.writeEntityRef(reader.getLocalName());
+                    }
+                    break;
+                case XMLStreamConstants.END_DOCUMENT:
+                    if (writer != null) {
+                        writer.writeEndDocument();
+                        writer.flush();
+                    }
+                    return isModified;
+                default:
+                    break;
+            }
+            reader.next();
+        }
+    }
+
+    private static void copyStartElement(XMLStreamReader reader, XMLStreamWriter writer, TargetRule rule,
+                                         String newValue) throws XMLStreamException {
+        writer.writeStartElement(StringUtils.defaultString(reader.getPrefix()), reader.getLocalName(),
+                StringUtils.defaultString(reader.getNamespaceURI()));
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            if (StringUtils.isEmpty(reader.getNamespacePrefix(i))) {
+                writer.writeDefaultNamespace(StringUtils.defaultString(reader.getNamespaceURI(i)));
+            } else {
+                writer.writeNamespace(reader.getNamespacePrefix(i), reader.getNamespaceURI(i));
+            }
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            QName name = reader.getAttributeName(i);
+            String value = reader.getAttributeValue(i);
+            if (newValue != null && StringUtils.isEmpty(name.getNamespaceURI())
+                    && name.getLocalPart().equals(rule.getAttribute())) {
+                value = rule.getPrefix() + newValue;
+            }
+            if (StringUtils.isEmpty(name.getNamespaceURI())) {
+                writer.writeAttribute(name.getLocalPart(), value);
+            } else {
+                writer.writeAttribute(name.getPrefix(), name.getNamespaceURI(), name.getLocalPart(), value);
+            }
+        }
+    }
+
+    private static boolean hasNewValue(List<String> values, ReEncryptionBatch batch) throws CryptoException {
+        for (String value : values) {
+            if (StringUtils.isNotEmpty(batch.getNewEncryptedValue(value))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPrefilterEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(Constant.PREFILTER_ENABLED, "true").trim());
+    }
+
+    private static boolean isSpliceEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(Constant.SPLICE_ENABLED, "true").trim());
+    }
+
+    /**
+     * Write the document to the target with the re-encrypted values spliced into the original bytes.
+     *
+     * @return false if the values can not be located in the original bytes. Nothing is written then.
+     */
+    private static boolean splice(File source, File target, String encoding, List<String> values,
+                                  ReEncryptionBatch batch) throws IOException, CryptoException {
+        Charset charset = getAsciiCompatibleCharset(encoding);
+        if (charset == null) {
+            return false;
+        }
+        Map<String, Occurrences> occurrences = new LinkedHashMap<>();
+        for (String value : values) {
+            String newValue = batch.getNewEncryptedValue(value);
+            if (StringUtils.isEmpty(newValue)) {
+                continue;
+            }
+            if (!isLiteral(value) || !isLiteral(newValue)) {
+                return false;
+            }
+            Occurrences occurrence = occurrences.get(value);
+            if (occurrence == null) {
+                occurrence = new Occurrences(value.getBytes(charset), newValue.getBytes(charset));
+                occurrences.put(value, occurrence);
+            }
+            occurrence.expected++;
+        }
+
+        List<Occurrences> patterns = new ArrayList<>(occurrences.values());
+        try (InputStream inputStream = new FileInputStream(source)) {
+            byte[] buffer = XmlIOService.getInstance().getBuffer();
+            long position = 0;
+            int length;
+            while ((length = inputStream.read(buffer)) > 0) {
+                for (Occurrences pattern : patterns) {
+                    if (!pattern.search(buffer, length, position)) {
+                        return false;
+                    }
+                }
+                position += length;
+            }
+        }
+        // Every occurrence of a value is one of the selected values, so each of them is replaced.
+        List<long[]> splices = new ArrayList<>();
+        for (int i = 0; i < patterns.size(); i++) {
+            Occurrences pattern = patterns.get(i);
+            if (pattern.offsets.size() != pattern.expected) {
+                return false;
+            }
+            for (Long offset : pattern.offsets) {
+                splices.add(new long[]{offset, pattern.value.length, i});
+            }
+        }
+        Collections.sort(splices, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] first, long[] second) {
+                return Long.compare(first[0], second[0]);
+            }
+        });
+
+        try (FileChannel sourceChannel = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+             FileChannel targetChannel = FileChannel.open(target.toPath(), StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            for (long[] splice : splices) {
+                if (splice[0] < position) {
+                    // Overlapping values. The target is written again from the events.
+                    return false;
+                }
+                transfer(sourceChannel, position, splice[0] - position, targetChannel);
+                ByteBuffer newValue = ByteBuffer.wrap(patterns.get((int) splice[2]).newValue);
+                while (newValue.hasRemaining()) {
+                    targetChannel.write(newValue);
+                }
+                position = splice[0] + splice[1];
+            }
+            transfer(sourceChannel, position, sourceChannel.size() - position, targetChannel);
+        }
+        return true;
+    }
+
+    private static Charset getAsciiCompatibleCharset(String encoding) {
+        try {
+            Charset charset = Charset.forName(encoding != null ? encoding : DEFAULT_ENCODING);
+            String name = charset.name();
+            if (name.equals("UTF-8") || name.equals("US-ASCII") || name.startsWith("ISO-8859-")
+                    || name.startsWith("windows-125")) {
+                return charset;
+            }
+        } catch (IllegalArgumentException e) {
+            log.debug("Unsupported encoding " + encoding, e);
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the value is written as it is in both the text and the attributes of a document
+     */
+    private static boolean isLiteral(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20 && c != '\t' && c != '\n' || c > 0x7E || c == '<' || c == '>' || c == '&' || c == '"'
+                    || c == '\'') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void transfer(FileChannel source, long position, long count, FileChannel target)
+            throws IOException {
+        while (count > 0) {
+            long transferred = source.transferTo(position, count, target);
+            position += transferred;
+            count -= transferred;
+        }
+    }
+
+    private static void replace(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Offsets of a value in the original bytes, found with a Knuth-Morris-Pratt search which carries its state over
+     * the buffers of the file.
+     */
+    private static final class Occurrences {
+
+        private final byte[] value;
+        private final byte[] newValue;
+        private final int[] failure;
+        private final List<Long> offsets = new ArrayList<>();
+        private int expected;
+        private int matched;
+
+        private Occurrences(byte[] value, byte[] newValue) {
+            this.value = value;
+            this.newValue = newValue;
+            this.failure = new int[value.length];
+            for (int i = 1, k = 0; i < value.length; i++) {
+                while (k > 0 && value[i] != value[k]) {
+                    k = failure[k - 1];
+                }
+                if (value[i] == value[k]) {
+                    k++;
+                }
+                failure[i] = k;
+            }
+        }
+
+        /**
+         * @return false if the value occurs more often than it was selected
+         */
+        private boolean search(byte[] buffer, int length, long position) {
+            for (int i = 0; i < length; i++) {
+                while (matched > 0 && buffer[i] != value[matched]) {
+                    matched = failure[matched - 1];
+                }
+                if (buffer[i] == value[matched]) {
+                    matched++;
+                }
+                if (matched == value.length) {
+                    offsets.add(position + i + 1 - value.length);
+                    if (offsets.size() > expected) {
+                        return false;
+                    }
+                    matched = 0;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Text of an element holding a value. The text and CDATA sections directly within the element are held back
+     * until the end of the element, where either the new value or the original sections are written. The new value is
+     * written as a CDATA section when the original value was. Comments and processing instructions are copied in
+     * place. An element whose text is interrupted by markup, or which has child elements, does not hold a value; its
+     * content is copied as it is.
+     */
+    private static final class ElementText {
+
+        private final TargetRule rule;
+        private final String name;
+        private final List<String> sections = new ArrayList<>();
+        private final BitSet cdata = new BitSet();
+        private boolean isMixed;
+
+        private ElementText(TargetRule rule, String name) {
+            this.rule = rule;
+            this.name = name;
+        }
+
+        private void characters(XMLStreamWriter writer, String text, boolean isCData) throws XMLStreamException {
+            if (isMixed) {
+                write(writer, text, isCData);
+            } else {
+                cdata.set(sections.size(), isCData);
+                sections.add(text);
+            }
+        }
+
+        /**
+         * @param isElement true for a child element, false for a comment or processing instruction
+         */
+        private void markup(XMLStreamWriter writer, boolean isElement) throws XMLStreamException {
+            if (!isMixed && (isElement || !sections.isEmpty())) {
+                if (writer == null) {
+                    log.warn("The value of the element " + name + " is interrupted by markup and is not migrated");
+                }
+                isMixed = true;
+                flush(writer);
+            }
+        }
+
+        /**
+         * @return new value, or null if the value is kept
+         */
+        private String end(XMLStreamWriter writer, ValueHandler handler) throws XMLStreamException, CryptoException {
+            if (isMixed) {
+                return null;
+            }
+            StringBuilder text = new StringBuilder();
+            for (String section : sections) {
+                text.append(section);
+            }
+            String newValue = null;
+            if (text.indexOf(rule.getPrefix()) == 0) {
+                newValue = handler.handle(text.substring(rule.getPrefix().length()));
+            }
+            if (newValue == null) {
+                flush(writer);
+            } else if (writer != null) {
+                write(writer, rule.getPrefix() + newValue, !cdata.isEmpty());
+            }
+            return newValue;
+        }
+
+        private void flush(XMLStreamWriter writer) throws XMLStreamException {
+            for (int i = 0; i < sections.size(); i++) {
+                write(writer, sections.get(i), cdata.get(i));
+            }
+            sections.clear();
+            cdata.clear();
+        }
+
+        private static void write(XMLStreamWriter writer, String text, boolean isCData) throws XMLStreamException {
+            if (writer == null) {
+                return;
+            }
+            if (isCData) {
+                writer.writeCData(text);
+            } else {
+                writer.writeCharacters(text);
+            }
+        }
+    }
+
+    private interface ValueHandler {
+
+        /**
+         * @param value value selected by a rule
+         * @return new value, or null to keep the value
+         */
+        String handle(String value) throws CryptoException;
+    }
+}
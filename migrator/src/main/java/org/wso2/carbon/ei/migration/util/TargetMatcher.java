@@ -0,0 +1,122 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.util;
+
+import org.wso2.carbon.ei.migration.util.TargetRule.Step;
+
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * {@link TargetRule}s compiled into a single state machine over the element path of a document. A state is a step of
+ * a rule which is waiting for an element. The states of all the rules are numbered in rule order, so the active
+ * states of an element are a bit set and the first rule matching an element is the first accepting state found.
+ * <p>
+ * When an element starts, every active state of its parent whose step matches the element activates the next state
+ * of its rule for the children of the element, or selects the element when it is the last step. A descendant step
+ * also stays active for the children, whether it matched or not. The matcher is immutable and shared by the threads;
+ * the active states of a document are kept by a {@link Walker}.
+ */
+final class TargetMatcher {
+
+    private final List<TargetRule> rules;
+    private final Step[] steps;
+    // Rule selected when the step of the state matches, or -1 if the state is not the last step of its rule
+    private final int[] accepting;
+    private final BitSet initial = new BitSet();
+
+    TargetMatcher(List<TargetRule> rules) {
+        this.rules = rules;
+        List<Step> allSteps = new ArrayList<>();
+        List<Integer> allAccepting = new ArrayList<>();
+        for (int i = 0; i < rules.size(); i++) {
+            List<Step> ruleSteps = rules.get(i).getSteps();
+            initial.set(allSteps.size());
+            for (int j = 0; j < ruleSteps.size(); j++) {
+                allSteps.add(ruleSteps.get(j));
+                allAccepting.add(j == ruleSteps.size() - 1 ? i : -1);
+            }
+        }
+        steps = allSteps.toArray(new Step[allSteps.size()]);
+        accepting = new int[steps.length];
+        for (int i = 0; i < accepting.length; i++) {
+            accepting[i] = allAccepting.get(i);
+        }
+    }
+
+    Walker newWalker() {
+        return new Walker();
+    }
+
+    /**
+     * Active states of a document being read. Follows the start and end of every element of the document.
+     */
+    final class Walker {
+
+        // Active states per depth. The bit sets are reused as the walker goes up and down the document.
+        private final List<BitSet> active = new ArrayList<>();
+        private int depth;
+
+        private Walker() {
+            active.add(initial);
+        }
+
+        /**
+         * @param element reader positioned at the start of an element
+         * @return first rule selecting a value of the element, or null if no rule does
+         */
+        TargetRule startElement(XMLStreamReader element) {
+            BitSet parent = active.get(depth);
+            depth++;
+            if (active.size() == depth) {
+                active.add(new BitSet(steps.length));
+            }
+            BitSet current = active.get(depth);
+            current.clear();
+
+            TargetRule selected = null;
+            for (int state = parent.nextSetBit(0); state >= 0; state = parent.nextSetBit(state + 1)) {
+                Step step = steps[state];
+                if (step.isDescendant()) {
+                    current.set(state);
+                }
+                if (!step.matches(element)) {
+                    continue;
+                }
+                if (accepting[state] < 0) {
+                    current.set(state + 1);
+                } else if (selected == null && hasValue(rules.get(accepting[state]), element)) {
+                    selected = rules.get(accepting[state]);
+                }
+            }
+            return selected;
+        }
+
+        void endElement() {
+            depth--;
+        }
+
+        private boolean hasValue(TargetRule rule, XMLStreamReader element) {
+            if (rule.getAttribute() == null) {
+                return true;
+            }
+            String value = TargetRule.getAttributeValue(element, rule.getAttribute());
+            return value != null && value.startsWith(rule.getPrefix());
+        }
+    }
+}
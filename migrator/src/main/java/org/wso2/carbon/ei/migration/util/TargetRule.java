@@ -0,0 +1,300 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.util;
+
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Declarative location of an encrypted value within an XML document, written as a small subset of XPath:
+ * <ul>
+ * <li><code>/*&#47;Property[&#64;name='password']/text()</code> selects the text of the password properties of a
+ * user store</li>
+ * <li><code>/*&#47;to/*[&#64;encrypted='true']/text()</code> selects the text of the encrypted properties of an
+ * event publisher</li>
+ * <li><code>/*&#47;*[&#64;securePassword='true']/&#64;password</code> selects the password attribute of the secure
+ * services of a server profile</li>
+ * <li><code>/*&#47;/*&#47;&#64;remoteServicePassword</code> selects an attribute of the elements at any depth below
+ * the document element</li>
+ * </ul>
+ * A path is a sequence of steps, each separated from the previous one by '/' for a child or '//' for a descendant.
+ * A step is an element name or '*', followed by any number of predicates: '[@attribute]' requires the attribute and
+ * '[@attribute='value']' requires its value. The path ends with the value, either 'text()' or '@attribute'. Names are
+ * matched on their local part, the way Axiom matches a name without a namespace. Namespace prefixes are not supported.
+ * <p>
+ * The rules of a {@link StreamingXmlRewriter} are compiled into a single {@link TargetMatcher}, so a document is
+ * matched against all of them in one pass.
+ */
+public final class TargetRule {
+
+    private final String expression;
+    private final List<Step> steps;
+    private final String attribute;
+    private final String prefix;
+
+    private TargetRule(String expression, List<Step> steps, String attribute, String prefix) {
+        this.expression = expression;
+        this.steps = steps;
+        this.attribute = attribute;
+        this.prefix = prefix;
+    }
+
+    /**
+     * @param expression location of the value
+     * @return rule
+     * @throws IllegalArgumentException if the expression is not valid
+     */
+    public static TargetRule parse(String expression) {
+        return parse(expression, "");
+    }
+
+    /**
+     * @param expression location of the value
+     * @param prefix     prefix of the value, e.g. "enc:". A value which does not start with the prefix is not
+     *                   selected. The prefix is not part of the value and is kept when the value is replaced.
+     * @return rule
+     * @throws IllegalArgumentException if the expression is not valid
+     */
+    public static TargetRule parse(String expression, String prefix) {
+        return new Parser(expression).parse(prefix);
+    }
+
+    List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return name of the attribute holding the value, or null if the value is the text of the element
+     */
+    String getAttribute() {
+        return attribute;
+    }
+
+    String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * A literal which every document holding a value of the rule contains. The longest of the names and values of
+     * the rule is used, as it is the least likely to occur in other documents.
+     *
+     * @return marker of the rule, or null if the rule has no literal, e.g. /&#42;/text()
+     */
+    String getMarker() {
+        String marker = attribute;
+        for (Step step : steps) {
+            marker = longest(marker, step.name);
+            for (Predicate predicate : step.predicates) {
+                marker = longest(longest(marker, predicate.attribute), predicate.value);
+            }
+        }
+        return marker;
+    }
+
+    private static String longest(String first, String second) {
+        if (first == null || second != null && second.length() > first.length()) {
+            return second;
+        }
+        return first;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * Step of a path.
+     */
+    static final class Step {
+
+        private final boolean isDescendant;
+        private final String name;
+        private final List<Predicate> predicates;
+
+        private Step(boolean isDescendant, String name, List<Predicate> predicates) {
+            this.isDescendant = isDescendant;
+            this.name = name;
+            this.predicates = predicates;
+        }
+
+        /**
+         * @return true if the step matches any descendant of the element matched by the previous step, rather than
+         * only its children
+         */
+        boolean isDescendant() {
+            return isDescendant;
+        }
+
+        /**
+         * @param element reader positioned at the start of an element
+         * @return true if the element has the name and the attributes of the step
+         */
+        boolean matches(XMLStreamReader element) {
+            if (name != null && !name.equals(element.getLocalName())) {
+                return false;
+            }
+            for (Predicate predicate : predicates) {
+                String value = getAttributeValue(element, predicate.attribute);
+                if (value == null || predicate.value != null && !predicate.value.equals(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Get an attribute without a namespace of the element the reader is positioned at.
+     *
+     * @param element   reader positioned at the start of an element
+     * @param attribute local name of the attribute
+     * @return attribute value, or null if the element does not have the attribute
+     */
+    static String getAttributeValue(XMLStreamReader element, String attribute) {
+        for (int i = 0; i < element.getAttributeCount(); i++) {
+            String namespace = element.getAttributeNamespace(i);
+            if ((namespace == null || namespace.isEmpty()) && attribute.equals(element.getAttributeLocalName(i))) {
+                return element.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    private static final class Predicate {
+
+        private final String attribute;
+        private final String value;
+
+        private Predicate(String attribute, String value) {
+            this.attribute = attribute;
+            this.value = value;
+        }
+    }
+
+    private static final class Parser {
+
+        private final String expression;
+        private int position;
+
+        private Parser(String expression) {
+            this.expression = expression;
+        }
+
+        private TargetRule parse(String prefix) {
+            List<Step> steps = new ArrayList<>();
+            String attribute = null;
+            boolean isText = false;
+            while (position < expression.length() && !isText && attribute == null) {
+                boolean isDescendant;
+                if (expression.startsWith("//", position)) {
+                    isDescendant = true;
+                    position += 2;
+                } else if (expression.startsWith("/", position)) {
+                    isDescendant = false;
+                    position++;
+                } else {
+                    throw error("'/' expected");
+                }
+
+                if (expression.startsWith("text()", position)) {
+                    position += "text()".length();
+                    isText = true;
+                } else if (expression.startsWith("@", position)) {
+                    position++;
+                    attribute = name();
+                } else {
+                    String name = null;
+                    if (expression.startsWith("*", position)) {
+                        position++;
+                    } else {
+                        name = name();
+                    }
+                    List<Predicate> predicates = new ArrayList<>();
+                    while (expression.startsWith("[", position)) {
+                        predicates.add(predicate());
+                    }
+                    steps.add(new Step(isDescendant, name, Collections.unmodifiableList(predicates)));
+                    continue;
+                }
+                if (isDescendant) {
+                    throw error("the value must be selected with '/'");
+                }
+            }
+            if (position < expression.length()) {
+                throw error("end of the expression expected");
+            }
+            if (steps.isEmpty() || !isText && attribute == null) {
+                throw error("a path ending with '/text()' or '/@attribute' expected");
+            }
+            return new TargetRule(expression, Collections.unmodifiableList(steps), attribute,
+                    prefix != null ? prefix : "");
+        }
+
+        private Predicate predicate() {
+            position++;
+            if (!expression.startsWith("@", position)) {
+                throw error("'@' expected");
+            }
+            position++;
+            String attribute = name();
+            String value = null;
+            if (expression.startsWith("=", position)) {
+                position++;
+                char quote = position < expression.length() ? expression.charAt(position) : 0;
+                if (quote != '\'' && quote != '"') {
+                    throw error("quoted value expected");
+                }
+                int end = expression.indexOf(quote, position + 1);
+                if (end < 0) {
+                    throw error("unterminated value");
+                }
+                value = expression.substring(position + 1, end);
+                position = end + 1;
+            }
+            if (!expression.startsWith("]", position)) {
+                throw error("']' expected");
+            }
+            position++;
+            return new Predicate(attribute, value);
+        }
+
+        private String name() {
+            int start = position;
+            while (position < expression.length() && isNameChar(expression.charAt(position))) {
+                position++;
+            }
+            if (position == start) {
+                throw error("name expected");
+            }
+            if (expression.startsWith(":", position)) {
+                throw error("namespace prefixes are not supported");
+            }
+            return expression.substring(start, position);
+        }
+
+        private static boolean isNameChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.';
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid target rule " + expression + " at " + position + ": "
+                    + message);
+        }
+    }
+}
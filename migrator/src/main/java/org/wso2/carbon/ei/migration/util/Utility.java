@@ -25,15 +25,24 @@ import org.wso2.carbon.core.util.CryptoException;
 import org.wso2.carbon.core.util.CryptoUtil;
 import org.wso2.carbon.ei.migration.MigrationClientException;
 import org.wso2.carbon.ei.migration.internal.MigrationServiceDataHolder;
+import org.wso2.carbon.ei.migration.service.MigrationInventory;
+import org.wso2.carbon.ei.migration.service.MigrationReport;
+import org.wso2.carbon.ei.migration.service.crypto.ReEncryptionCache;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.ResourceType;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.Stage;
+import org.wso2.carbon.ei.migration.util.ReEncryptionResult.Outcome;
 
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -51,20 +60,200 @@ public class Utility {
         return path.toString();
     }
 
+    /**
+     * Read an integer system property.
+     *
+     * @param name         property name
+     * @param defaultValue value used when the property is not set or is not a number
+     * @return property value
+     */
+    public static int getIntProperty(String name, int defaultValue) {
+        String value = System.getProperty(name);
+        if (StringUtils.isEmpty(value)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value " + value + " for " + name + ". Using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Read a comma separated list system property.
+     *
+     * @param name property name
+     * @return trimmed, non empty values of the property. An empty set when the property is not set.
+     */
+    public static Set<String> getListProperty(String name) {
+        Set<String> values = new LinkedHashSet<>();
+        String value = System.getProperty(name);
+        if (StringUtils.isEmpty(value)) {
+            return values;
+        }
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                values.add(item.trim());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return true if -Dmigrate.dryRun is set, unless it is set to false
+     */
+    public static boolean isDryRun() {
+        String value = System.getProperty(Constant.DRY_RUN);
+        return value != null && !"false".equalsIgnoreCase(value.trim());
+    }
+
     public static OMElement toOM(InputStream inputStream) throws XMLStreamException {
-        XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(inputStream);
+        XMLStreamReader reader = XmlIOService.getInstance().createXMLStreamReader(inputStream);
         StAXOMBuilder builder = new StAXOMBuilder(reader);
         return builder.getDocumentElement();
     }
 
+    /**
+     * Build a complete OM tree of a document, recording the parse in the migration metrics.
+     *
+     * @param content document
+     * @param type    type of the resource holding the document
+     * @return document element
+     * @throws XMLStreamException if the document can not be parsed
+     */
+    public static OMElement toOM(byte[] content, ResourceType type) throws XMLStreamException {
+        long start = System.nanoTime();
+        XMLStreamReader reader = XmlIOService.getInstance().createXMLStreamReader(new ByteArrayInputStream(content));
+        try {
+            OMElement documentElement = new StAXOMBuilder(reader).getDocumentElement();
+            documentElement.build();
+            return documentElement;
+        } finally {
+            reader.close();
+            MigrationMetrics.getInstance().record(type, Stage.PARSE, start);
+        }
+    }
+
+    /**
+     * Serialize an OM tree, recording the serialization in the migration metrics.
+     *
+     * @param documentElement document element
+     * @param type            type of the resource holding the document
+     * @return serialized document
+     * @throws XMLStreamException if the document can not be serialized
+     */
+    public static byte[] serialize(OMElement documentElement, ResourceType type) throws XMLStreamException {
+        long start = System.nanoTime();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        documentElement.serialize(outputStream);
+        MigrationMetrics.getInstance().record(type, Stage.SERIALIZE, start);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Read a file, recording the read in the migration metrics.
+     *
+     * @param file file to read
+     * @param type type of the resource
+     * @return file content
+     * @throws IOException if the file can not be read
+     */
+    public static byte[] readFile(File file, ResourceType type) throws IOException {
+        long start = System.nanoTime();
+        byte[] content = Files.readAllBytes(file.toPath());
+        MigrationMetrics metrics = MigrationMetrics.getInstance();
+        metrics.record(type, Stage.READ, start);
+        metrics.bytesRead(content.length);
+        return content;
+    }
+
+    /**
+     * Write a file, recording the write in the migration metrics.
+     *
+     * @param file    file to write
+     * @param content file content
+     * @param type    type of the resource
+     * @throws IOException if the file can not be written
+     */
+    public static void writeFile(File file, byte[] content, ResourceType type) throws IOException {
+        long start = System.nanoTime();
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(content);
+        } finally {
+            outputStream.close();
+        }
+        MigrationMetrics metrics = MigrationMetrics.getInstance();
+        metrics.record(type, Stage.WRITE, start);
+        metrics.bytesWritten(content.length);
+    }
+
+    /**
+     * Re-encrypt a value encrypted with the legacy RSA algorithm.
+     *
+     * @param encryptedValue value to re-encrypt
+     * @return value encrypted with the new algorithm, or null if the value does not need to be migrated
+     * @throws CryptoException if the value can not be encrypted with the new algorithm
+     */
     public static String getNewEncryptedValue(String encryptedValue) throws CryptoException {
-        CryptoUtil cryptoUtil = getDefaultCryptoUtil();
-        if (StringUtils.isNotEmpty(encryptedValue) && !isNewlyEncrypted(cryptoUtil, encryptedValue)
-                && isEncryptedByRSA(cryptoUtil, encryptedValue)) {
-            byte[] decryptedPassword = cryptoUtil.base64DecodeAndDecrypt(encryptedValue, Constant.RSA);
-            return cryptoUtil.encryptAndBase64Encode(decryptedPassword);
+        MigrationInventory inventory = MigrationInventory.getInstance();
+        if (inventory.isEnabled()) {
+            inventory.valueScanned(encryptedValue);
+            return null;
+        }
+        if (StringUtils.isEmpty(encryptedValue)) {
+            return null;
+        }
+        return reEncrypt(encryptedValue).getValue();
+    }
+
+    /**
+     * Classify a value and re-encrypt it with the new algorithm if it was encrypted with the legacy RSA algorithm,
+     * recording the outcome in the migration metrics.
+     *
+     * @param encryptedValue value to re-encrypt
+     * @return outcome of the re-encryption
+     * @throws CryptoException if the value can not be encrypted with the new algorithm
+     * @see ReEncryptionCache#reEncrypt(String)
+     */
+    public static ReEncryptionResult reEncrypt(String encryptedValue) throws CryptoException {
+        if (StringUtils.isEmpty(encryptedValue)) {
+            return new ReEncryptionResult(Outcome.PLAINTEXT, null);
+        }
+        long start = System.nanoTime();
+        MigrationMetrics metrics = MigrationMetrics.getInstance();
+        try {
+            ReEncryptionResult result = ReEncryptionCache.getInstance().reEncrypt(encryptedValue);
+            recordOutcome(result);
+            return result;
+        } finally {
+            metrics.recordCrypto(start);
+        }
+    }
+
+    /**
+     * Record the outcome of a re-encryption in the migration metrics and report of the current migrator.
+     *
+     * @param result outcome of the re-encryption
+     */
+    public static void recordOutcome(ReEncryptionResult result) {
+        if (result == null) {
+            return;
+        }
+        if (result.isMigrated()) {
+            MigrationMetrics.getInstance().valueReEncrypted();
+            MigrationReport.getInstance().valueMigrated();
+        } else if (result.getOutcome() == Outcome.UNDECRYPTABLE) {
+            MigrationMetrics.getInstance().valueUndecryptable();
+            log.warn(Constant.MIGRATION_LOG + "Unable to decrypt a value with the server key. The value is kept "
+                    + "as it is.");
+        } else if (result.getOutcome() == Outcome.PLAINTEXT) {
+            MigrationMetrics.getInstance().valuePlaintext();
+            MigrationReport.getInstance().valuePlaintext();
+            log.warn(Constant.MIGRATION_LOG + "A value is not encrypted with the legacy algorithm, e.g. a plain text "
+                    + "password. The value is kept as it is.");
         }
-        return null;
     }
 
     public static boolean isNewlyEncrypted(CryptoUtil cryptoUtil, String encryptedValue) throws CryptoException {
@@ -148,10 +337,12 @@ public class Utility {
 
             zos.closeEntry();
         } catch (IOException ex) {
-            ex.printStackTrace();
+            throw new MigrationClientException("Error while creating the archive " + zipFile, ex);
         } finally {
             try {
-                zos.close();
+                if (zos != null) {
+                    zos.close();
+                }
             } catch (IOException e) {
                 throw new MigrationClientException(e.getMessage());
             }
@@ -0,0 +1,189 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * XML factories shared by the migrators. Looking up a factory goes through the service loader, which is expensive in
+ * an OSGi container, so each factory is discovered and configured once. Creating readers and writers from a
+ * configured factory is thread safe.
+ * <p>
+ * Both readers are hardened the same way: DTDs are not processed and external entities are not resolved, so a
+ * document referring to an entity declared in its DTD can not be read. The DOCTYPE declaration itself is reported as
+ * it is. The reader used to copy documents also reports CDATA sections, so a copied document only differs from the
+ * original in the values which were replaced.
+ * <p>
+ * StAX readers and writers can not be reset, so they are created per document. The document builder, which can be
+ * reset, and the copy buffer are reused per thread.
+ */
+public class XmlIOService {
+
+    private static final Log log = LogFactory.getLog(XmlIOService.class);
+
+    static final int BUFFER_SIZE = 8192;
+
+    private static final String EXTERNAL_GENERAL_ENTITIES = "http://xml.org/sax/features/external-general-entities";
+    private static final String EXTERNAL_PARAMETER_ENTITIES =
+            "http://xml.org/sax/features/external-parameter-entities";
+
+    // The JDK reader reports CDATA sections as text unless this property is set. Other readers report them anyway.
+    private static final String REPORT_CDATA_EVENT = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+    private static XmlIOService instance = new XmlIOService();
+
+    private final XMLInputFactory inputFactory;
+    private final XMLInputFactory copyInputFactory;
+    private final XMLOutputFactory outputFactory;
+    private final DocumentBuilderFactory documentBuilderFactory;
+    private final ConcurrentMap<Class<?>, JAXBContext> jaxbContexts = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<DocumentBuilder> documentBuilder = new ThreadLocal<>();
+    private final ThreadLocal<byte[]> buffer = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[BUFFER_SIZE];
+        }
+    };
+
+    private XmlIOService() {
+        inputFactory = createInputFactory();
+
+        copyInputFactory = createInputFactory();
+        if (copyInputFactory.isPropertySupported(REPORT_CDATA_EVENT)) {
+            copyInputFactory.setProperty(REPORT_CDATA_EVENT, true);
+        }
+
+        outputFactory = XMLOutputFactory.newInstance();
+
+        documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setExpandEntityReferences(false);
+        try {
+            documentBuilderFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            documentBuilderFactory.setFeature(EXTERNAL_GENERAL_ENTITIES, false);
+            documentBuilderFactory.setFeature(EXTERNAL_PARAMETER_ENTITIES, false);
+        } catch (ParserConfigurationException e) {
+            log.warn("Unable to enable secure processing of the document builder factory "
+                    + documentBuilderFactory.getClass().getName(), e);
+        }
+    }
+
+    public static XmlIOService getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param inputStream document. Closing the reader does not close the stream.
+     * @return reader for building an object model of the document
+     * @throws XMLStreamException if the reader can not be created
+     */
+    public XMLStreamReader createXMLStreamReader(InputStream inputStream) throws XMLStreamException {
+        return inputFactory.createXMLStreamReader(inputStream);
+    }
+
+    /**
+     * @param inputStream document. Closing the reader does not close the stream.
+     * @return reader which reports the CDATA sections of the document, for copying it
+     * @throws XMLStreamException if the reader can not be created
+     */
+    public XMLStreamReader createCopyingXMLStreamReader(InputStream inputStream) throws XMLStreamException {
+        return copyInputFactory.createXMLStreamReader(inputStream);
+    }
+
+    /**
+     * @param outputStream stream to write the document to. Closing the writer does not close the stream.
+     * @param encoding     encoding of the document
+     * @return writer
+     * @throws XMLStreamException if the writer can not be created
+     */
+    public XMLStreamWriter createXMLStreamWriter(OutputStream outputStream, String encoding)
+            throws XMLStreamException {
+        return outputFactory.createXMLStreamWriter(outputStream, encoding);
+    }
+
+    /**
+     * @return document builder of the current thread, reset to its initial state
+     * @throws ParserConfigurationException if the document builder can not be created
+     */
+    public DocumentBuilder getDocumentBuilder() throws ParserConfigurationException {
+        DocumentBuilder builder = documentBuilder.get();
+        if (builder == null) {
+            synchronized (documentBuilderFactory) {
+                builder = documentBuilderFactory.newDocumentBuilder();
+            }
+            documentBuilder.set(builder);
+        } else {
+            builder.reset();
+        }
+        return builder;
+    }
+
+    /**
+     * @param type class bound to the context
+     * @return shared context of the class. A context is thread safe, its marshallers and unmarshallers are not.
+     * @throws JAXBException if the context can not be created
+     */
+    public JAXBContext getJAXBContext(Class<?> type) throws JAXBException {
+        JAXBContext context = jaxbContexts.get(type);
+        if (context == null) {
+            context = JAXBContext.newInstance(type);
+            JAXBContext existing = jaxbContexts.putIfAbsent(type, context);
+            if (existing != null) {
+                context = existing;
+            }
+        }
+        return context;
+    }
+
+    /**
+     * @return copy buffer of the current thread. The buffer must not be held across calls which may use it.
+     */
+    public byte[] getBuffer() {
+        return buffer.get();
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        setProperty(factory, XMLInputFactory.SUPPORT_DTD, false);
+        setProperty(factory, XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private static void setProperty(XMLInputFactory factory, String name, boolean value) {
+        if (factory.isPropertySupported(name)) {
+            factory.setProperty(name, value);
+        } else {
+            log.warn("XML input factory " + factory.getClass().getName() + " does not support " + name);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service;
+
+import junit.framework.TestCase;
+
+public class MigrationResourceTest extends TestCase {
+
+    public void testNestedResourcesConflict() {
+        MigrationResource tenants = MigrationResource.fileSystem("repository/tenants");
+        MigrationResource userStores = MigrationResource.fileSystem("repository", "tenants/1/userstores");
+
+        assertTrue(tenants.conflictsWith(userStores));
+        assertTrue(userStores.conflictsWith(tenants));
+    }
+
+    public void testSiblingResourcesDoNotConflict() {
+        MigrationResource userStores = MigrationResource.fileSystem("repository/tenants/1/userstores");
+        MigrationResource bpel = MigrationResource.fileSystem("repository/tenants/1/bpel");
+
+        assertFalse(userStores.conflictsWith(bpel));
+    }
+
+    public void testWildcardMatchesAnySegment() {
+        MigrationResource userStores = MigrationResource.fileSystem("repository/tenants/*/userstores");
+
+        assertTrue(userStores.conflictsWith(MigrationResource.fileSystem("repository/tenants/5/userstores/a.xml")));
+        assertFalse(userStores.conflictsWith(MigrationResource.fileSystem("repository/tenants/5/bpel")));
+    }
+
+    public void testResourcesOfDifferentStoragesDoNotConflict() {
+        assertFalse(MigrationResource.registry("/_system/config")
+                .conflictsWith(MigrationResource.fileSystem("_system/config")));
+    }
+
+    public void testPathIsNormalized() {
+        assertEquals("/repository/tenants", MigrationResource.fileSystem("repository\\", "/tenants/").getPath());
+    }
+}
@@ -0,0 +1,151 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service;
+
+import junit.framework.TestCase;
+import org.wso2.carbon.ei.migration.MigrationClientException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class MigratorSchedulerTest extends TestCase {
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+    public void testStartsMigratorAfterItsDependencies() throws Exception {
+        TestMigrator first = new TestMigrator("first", MigrationResource.registry("/a"));
+        TestMigrator second = new TestMigrator("second", MigrationResource.registry("/b"));
+        second.dependencies = Arrays.asList("first");
+
+        new MigratorScheduler(4).execute(Arrays.<Migrator>asList(second, first));
+
+        assertEquals(Arrays.asList("start first", "end first", "start second", "end second"), events);
+    }
+
+    public void testIgnoresDependencyNotScheduled() throws Exception {
+        TestMigrator migrator = new TestMigrator("only", MigrationResource.registry("/a"));
+        migrator.dependencies = Arrays.asList("missing");
+
+        new MigratorScheduler(2).execute(Arrays.<Migrator>asList(migrator));
+
+        assertEquals(Arrays.asList("start only", "end only"), events);
+    }
+
+    public void testFailsOnCyclicDependencies() {
+        TestMigrator first = new TestMigrator("first", MigrationResource.registry("/a"));
+        TestMigrator second = new TestMigrator("second", MigrationResource.registry("/b"));
+        first.dependencies = Arrays.asList("second");
+        second.dependencies = Arrays.asList("first");
+
+        try {
+            new MigratorScheduler(2).execute(Arrays.<Migrator>asList(first, second));
+            fail("Cyclic dependencies were resolved");
+        } catch (MigrationClientException e) {
+            assertTrue(e.getMessage().contains("Unable to resolve the dependencies"));
+        }
+        assertTrue(events.isEmpty());
+    }
+
+    public void testRunsConflictingMigratorsOneAfterTheOther() throws Exception {
+        TestMigrator tenants = new TestMigrator("tenants", MigrationResource.fileSystem("repository/tenants"));
+        TestMigrator userStores = new TestMigrator("userStores",
+                MigrationResource.fileSystem("repository/tenants/*/userstores"));
+        TestMigrator exclusive = new TestMigrator("exclusive");
+
+        new MigratorScheduler(4).execute(Arrays.<Migrator>asList(tenants, userStores, exclusive));
+
+        assertEquals(Arrays.asList("start tenants", "end tenants", "start userStores", "end userStores",
+                "start exclusive", "end exclusive"), events);
+    }
+
+    public void testRunsIndependentMigratorsTogether() throws Exception {
+        TestMigrator registry = new TestMigrator("registry", MigrationResource.registry("/a"));
+        TestMigrator files = new TestMigrator("files", MigrationResource.fileSystem("repository/a"));
+
+        new MigratorScheduler(2).execute(Arrays.<Migrator>asList(registry, files));
+
+        assertEquals(Arrays.asList("start registry", "start files"), events.subList(0, 2));
+    }
+
+    public void testRunsOneAtATimeWithSingleThread() throws Exception {
+        TestMigrator registry = new TestMigrator("registry", MigrationResource.registry("/a"));
+        TestMigrator files = new TestMigrator("files", MigrationResource.fileSystem("repository/a"));
+
+        new MigratorScheduler(1).execute(Arrays.<Migrator>asList(registry, files));
+
+        assertEquals(Arrays.asList("start registry", "end registry", "start files", "end files"), events);
+    }
+
+    public void testStopsSchedulingAfterFailure() {
+        TestMigrator failing = new TestMigrator("failing", MigrationResource.registry("/a"));
+        failing.isFailing = true;
+        TestMigrator next = new TestMigrator("next", MigrationResource.registry("/b"));
+        next.dependencies = Arrays.asList("failing");
+
+        try {
+            new MigratorScheduler(2).execute(Arrays.<Migrator>asList(failing, next));
+            fail("Failure of a migrator was not thrown");
+        } catch (MigrationClientException e) {
+            assertTrue(e.getMessage().contains("failing"));
+        }
+        assertEquals(Arrays.asList("start failing", "end failing"), events);
+    }
+
+    private class TestMigrator extends Migrator {
+
+        private final String name;
+        private final List<MigrationResource> resources;
+        private List<String> dependencies = Collections.emptyList();
+        private boolean isFailing;
+
+        TestMigrator(String name, MigrationResource... resources) {
+            this.name = name;
+            this.resources = Arrays.asList(resources);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public List<String> getDependencies() {
+            return dependencies;
+        }
+
+        @Override
+        public List<MigrationResource> getResources() {
+            return resources;
+        }
+
+        @Override
+        public void migrate() throws MigrationClientException {
+            events.add("start " + name);
+            try {
+                // Long enough for a concurrently scheduled migrator to start.
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            events.add("end " + name);
+            if (isFailing) {
+                throw new MigrationClientException("Migration of " + name + " failed");
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.crypto;
+
+import junit.framework.TestCase;
+import org.wso2.carbon.ei.migration.service.crypto.CipherTextClassifier.Shape;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import javax.xml.bind.DatatypeConverter;
+
+public class CipherTextClassifierTest extends TestCase {
+
+    private static final int MODULUS_LENGTH = 256;
+
+    public void testValueWhichIsNotBase64IsPlaintext() {
+        for (String value : new String[]{"", "admin", "abc", "ab=c", "a===", "pass word!"}) {
+            assertEquals(value, Shape.PLAINTEXT, CipherTextClassifier.classify(value, MODULUS_LENGTH));
+            assertEquals(value, Shape.PLAINTEXT, CipherTextClassifier.classify(value, 0));
+        }
+        assertEquals(Shape.PLAINTEXT, CipherTextClassifier.classify(null, 0));
+    }
+
+    public void testClassifiesByDecodedLength() {
+        assertEquals(Shape.LEGACY_RSA, CipherTextClassifier.classify(encode(block(MODULUS_LENGTH, 'x')),
+                MODULUS_LENGTH));
+        assertEquals(Shape.PLAINTEXT, CipherTextClassifier.classify(encode(block(MODULUS_LENGTH - 1, 'x')),
+                MODULUS_LENGTH));
+        assertEquals(Shape.OVERSIZED, CipherTextClassifier.classify(encode(block(MODULUS_LENGTH + 1, 'x')),
+                MODULUS_LENGTH));
+    }
+
+    public void testBlockOfModulusLengthIsLegacyDespiteHeader() {
+        byte[] block = block(MODULUS_LENGTH, 'x');
+        block[0] = '{';
+        block[1] = '"';
+        String value = encode(block);
+
+        assertTrue(CipherTextClassifier.hasSelfContainedHeader(value));
+        assertEquals(Shape.LEGACY_RSA, CipherTextClassifier.classify(value, MODULUS_LENGTH));
+    }
+
+    public void testJsonIsSelfContained() {
+        String value = envelope(MODULUS_LENGTH);
+
+        assertEquals(Shape.SELF_CONTAINED, CipherTextClassifier.classify(value, MODULUS_LENGTH));
+        assertEquals(Shape.SELF_CONTAINED, CipherTextClassifier.classify(value, 0));
+    }
+
+    public void testAnyBase64IsLegacyWithoutModulusLength() {
+        assertEquals(Shape.LEGACY_RSA, CipherTextClassifier.classify(encode(block(10, 'x')), 0));
+    }
+
+    public void testDecodedLengthIgnoresWhiteSpace() {
+        assertEquals(6, CipherTextClassifier.getDecodedLength("YWJj\n ZGVm"));
+        assertEquals(4, CipherTextClassifier.getDecodedLength("YWJjZA=="));
+        assertEquals(-1, CipherTextClassifier.getDecodedLength("YWJjZA=x"));
+        assertEquals(-1, CipherTextClassifier.getDecodedLength("YWJjZ"));
+    }
+
+    public void testHeaderMayFollowWhiteSpace() {
+        assertTrue(CipherTextClassifier.hasSelfContainedHeader(" \neyJj"));
+        assertFalse(CipherTextClassifier.hasSelfContainedHeader("eyK"));
+        assertFalse(CipherTextClassifier.hasSelfContainedHeader("ey"));
+    }
+
+    public void testEnvelopeRequiresCipherTextAndTransformation() {
+        assertTrue(CipherTextClassifier.hasSelfContainedEnvelope(envelope(0)));
+        assertFalse(CipherTextClassifier.hasSelfContainedEnvelope(encode("{\"c\":\"YWJj\"}")));
+        assertFalse(CipherTextClassifier.hasSelfContainedEnvelope(encode("{\"t\":\"RSA\",\"c\":\"YWJj\"")));
+        assertFalse(CipherTextClassifier.hasSelfContainedEnvelope(encode("\"c\":\"t\":}")));
+        assertFalse(CipherTextClassifier.hasSelfContainedEnvelope("not base64"));
+    }
+
+    private static String envelope(int padding) {
+        char[] cipherText = new char[padding];
+        Arrays.fill(cipherText, 'A');
+        return encode("{\"c\":\"" + new String(cipherText) + "\",\"t\":\"RSA/ECB/OAEPwithSHA1andMGF1Padding\"}");
+    }
+
+    private static byte[] block(int length, char content) {
+        byte[] block = new byte[length];
+        Arrays.fill(block, (byte) content);
+        return block;
+    }
+
+    private static String encode(String value) {
+        return encode(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String encode(byte[] value) {
+        return DatatypeConverter.printBase64Binary(value);
+    }
+}
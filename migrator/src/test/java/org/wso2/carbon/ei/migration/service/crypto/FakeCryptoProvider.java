@@ -0,0 +1,95 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.crypto;
+
+import org.wso2.carbon.core.util.CryptoException;
+
+import java.nio.charset.StandardCharsets;
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * Crypto provider for the tests, which encodes instead of encrypting. A legacy cipher text is the base64 encoding of
+ * "legacy:" followed by the plain text and a new cipher text the base64 encoding of "migrated:" followed by the plain
+ * text, so the new value of a legacy value is known in advance.
+ */
+public class FakeCryptoProvider implements CryptoProvider {
+
+    private static final String LEGACY = "legacy:";
+    private static final String MIGRATED = "migrated:";
+
+    /**
+     * @param plainText plain text
+     * @return legacy cipher text of the plain text
+     */
+    public static String legacy(String plainText) {
+        return encode(LEGACY + plainText);
+    }
+
+    /**
+     * @param plainText plain text
+     * @return new cipher text of the plain text
+     */
+    public static String migrated(String plainText) {
+        return encode(MIGRATED + plainText);
+    }
+
+    @Override
+    public String getName() {
+        return "fake";
+    }
+
+    @Override
+    public int getModulusLength() {
+        return 0;
+    }
+
+    @Override
+    public boolean isSelfContained(String cipherText) {
+        return decode(cipherText).startsWith(MIGRATED);
+    }
+
+    @Override
+    public byte[] decryptLegacy(String cipherText) throws CryptoException {
+        String decoded = decode(cipherText);
+        if (!decoded.startsWith(LEGACY)) {
+            throw new CryptoException("Not a legacy cipher text");
+        }
+        return decoded.substring(LEGACY.length()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean isLegacyCipherText(String cipherText, byte[] plainText) {
+        return true;
+    }
+
+    @Override
+    public String encryptLegacy(byte[] plainText) {
+        return legacy(new String(plainText, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String encrypt(byte[] plainText) {
+        return migrated(new String(plainText, StandardCharsets.UTF_8));
+    }
+
+    private static String encode(String value) {
+        return DatatypeConverter.printBase64Binary(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        return new String(DatatypeConverter.parseBase64Binary(value), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.crypto;
+
+import junit.framework.TestCase;
+import org.wso2.carbon.core.util.CryptoException;
+import org.wso2.carbon.ei.migration.util.Constant;
+import org.wso2.carbon.ei.migration.util.ReEncryptionResult;
+
+public class ReEncryptionCacheTest extends TestCase {
+
+    private final CountingCryptoProvider provider = new CountingCryptoProvider();
+    private final ReEncryptionCache cache = ReEncryptionCache.getInstance();
+
+    @Override
+    protected void setUp() {
+        CipherEngine.getInstance().setProvider(provider);
+    }
+
+    @Override
+    protected void tearDown() {
+        System.clearProperty(Constant.CACHE_ENABLED);
+        System.clearProperty(Constant.CACHE_SIZE);
+        System.clearProperty(Constant.CACHE_TTL_SECONDS);
+        cache.reset();
+        CipherEngine.getInstance().setProvider(null);
+    }
+
+    public void testDisabledByDefault() throws Exception {
+        cache.reset();
+
+        ReEncryptionResult first = cache.reEncrypt(FakeCryptoProvider.legacy("a"));
+        ReEncryptionResult second = cache.reEncrypt(FakeCryptoProvider.legacy("a"));
+
+        assertEquals(2, provider.decryptions);
+        assertNotSame(first, second);
+    }
+
+    public void testReusesResultOfIdenticalValue() throws Exception {
+        configure(10, 3600);
+
+        ReEncryptionResult first = cache.reEncrypt(FakeCryptoProvider.legacy("a"));
+        ReEncryptionResult second = cache.reEncrypt(FakeCryptoProvider.legacy("a"));
+
+        assertEquals(1, provider.decryptions);
+        assertSame(first, second);
+        assertEquals(FakeCryptoProvider.migrated("a"), second.getValue());
+    }
+
+    public void testEvictsLeastRecentlyUsedValue() throws Exception {
+        configure(2, 3600);
+        cache.reEncrypt(FakeCryptoProvider.legacy("a"));
+        cache.reEncrypt(FakeCryptoProvider.legacy("b"));
+        cache.reEncrypt(FakeCryptoProvider.legacy("a"));
+        cache.reEncrypt(FakeCryptoProvider.legacy("c"));
+        assertEquals(3, provider.decryptions);
+
+        cache.reEncrypt(FakeCryptoProvider.legacy("a"));
+        assertEquals(3, provider.decryptions);
+        cache.reEncrypt(FakeCryptoProvider.legacy("b"));
+        assertEquals(4, provider.decryptions);
+    }
+
+    public void testExpiresValueAfterTimeToLive() throws Exception {
+        configure(10, 1);
+        cache.reEncrypt(FakeCryptoProvider.legacy("a"));
+        cache.reEncrypt(FakeCryptoProvider.legacy("a"));
+        assertEquals(1, provider.decryptions);
+
+        Thread.sleep(1100);
+        cache.reEncrypt(FakeCryptoProvider.legacy("a"));
+        assertEquals(2, provider.decryptions);
+    }
+
+    public void testDisabledWithoutSize() throws Exception {
+        configure(0, 3600);
+
+        cache.reEncrypt(FakeCryptoProvider.legacy("a"));
+        cache.reEncrypt(FakeCryptoProvider.legacy("a"));
+
+        assertEquals(2, provider.decryptions);
+    }
+
+    private void configure(int size, int ttlSeconds) {
+        System.setProperty(Constant.CACHE_ENABLED, "true");
+        System.setProperty(Constant.CACHE_SIZE, String.valueOf(size));
+        System.setProperty(Constant.CACHE_TTL_SECONDS, String.valueOf(ttlSeconds));
+        cache.reset();
+    }
+
+    private static class CountingCryptoProvider extends FakeCryptoProvider {
+
+        private int decryptions;
+
+        @Override
+        public byte[] decryptLegacy(String cipherText) throws CryptoException {
+            decryptions++;
+            return super.decryptLegacy(cipherText);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.service.crypto;
+
+import junit.framework.TestCase;
+import org.wso2.carbon.core.util.CryptoException;
+import org.wso2.carbon.ei.migration.service.execution.ExecutionStrategyFactory;
+import org.wso2.carbon.ei.migration.util.Constant;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ReEncryptionServiceTest extends TestCase {
+
+    private final ThreadRecordingCryptoProvider provider = new ThreadRecordingCryptoProvider();
+
+    @Override
+    protected void setUp() {
+        CipherEngine.getInstance().setProvider(provider);
+        ReEncryptionCache.getInstance().reset();
+    }
+
+    @Override
+    protected void tearDown() {
+        System.clearProperty(Constant.INLINE_BATCH_SIZE);
+        CipherEngine.getInstance().setProvider(null);
+        ExecutionStrategyFactory.shutdown();
+    }
+
+    public void testReEncryptsSmallBatchOnSubmittingThread() throws Exception {
+        ReEncryptionBatch batch = ReEncryptionService.getInstance().submit(
+                Arrays.asList(FakeCryptoProvider.legacy("a"), FakeCryptoProvider.legacy("b")));
+
+        assertEquals(Collections.singleton(Thread.currentThread().getName()), provider.threads);
+        assertEquals(FakeCryptoProvider.migrated("b"), batch.getNewEncryptedValue(FakeCryptoProvider.legacy("b")));
+    }
+
+    public void testReEncryptsLargerBatchOnOtherThreads() throws Exception {
+        System.setProperty(Constant.INLINE_BATCH_SIZE, "0");
+
+        ReEncryptionBatch batch = ReEncryptionService.getInstance().submit(
+                Arrays.asList(FakeCryptoProvider.legacy("a"), FakeCryptoProvider.legacy("b")));
+
+        assertEquals(FakeCryptoProvider.migrated("a"), batch.getNewEncryptedValue(FakeCryptoProvider.legacy("a")));
+        assertFalse(provider.threads.contains(Thread.currentThread().getName()));
+    }
+
+    public void testDecryptsRepeatedValueOnce() throws Exception {
+        String value = FakeCryptoProvider.legacy("a");
+
+        ReEncryptionBatch batch = ReEncryptionService.getInstance().submit(Arrays.asList(value, "", value));
+
+        assertEquals(FakeCryptoProvider.migrated("a"), batch.getNewEncryptedValue(value));
+        assertEquals(1, provider.decryptions);
+    }
+
+    private static class ThreadRecordingCryptoProvider extends FakeCryptoProvider {
+
+        private final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+        private volatile int decryptions;
+
+        @Override
+        public synchronized byte[] decryptLegacy(String cipherText) throws CryptoException {
+            threads.add(Thread.currentThread().getName());
+            decryptions++;
+            return super.decryptLegacy(cipherText);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.util;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+public class MarkerPrefilterTest extends TestCase {
+
+    private final MarkerPrefilter prefilter = new MarkerPrefilter("password", "ConnectionPassword", "word");
+
+    public void testMatchesAnyMarker() {
+        assertTrue(matches("<a password='x'/>", StandardCharsets.UTF_8));
+        assertTrue(matches("<Property name='ConnectionPassword'/>", StandardCharsets.UTF_8));
+        assertTrue(matches("<a>sword</a>", StandardCharsets.UTF_8));
+        assertFalse(matches("<a name='pass'>wor</a>", StandardCharsets.UTF_8));
+        assertFalse(matches("", StandardCharsets.UTF_8));
+    }
+
+    public void testMatchesOverlappingMarkers() {
+        // "passpassword" needs the failure link from the second "pass" back into the automaton.
+        assertTrue(new MarkerPrefilter("password").matches(toBuffer("passpassword", StandardCharsets.US_ASCII)));
+        assertTrue(new MarkerPrefilter("abcd", "bc").matches(toBuffer("xabcx", StandardCharsets.US_ASCII)));
+        assertFalse(new MarkerPrefilter("abcd").matches(toBuffer("abcabc", StandardCharsets.US_ASCII)));
+    }
+
+    public void testSearchesFromBufferPosition() {
+        ByteBuffer content = toBuffer("password and more", StandardCharsets.US_ASCII);
+        content.position(1);
+
+        assertFalse(new MarkerPrefilter("password").matches(content));
+    }
+
+    public void testPassesUtf16Documents() {
+        assertTrue(matches("<a name='x'/>", StandardCharsets.UTF_16));
+        assertTrue(matches("<a name='x'/>", StandardCharsets.UTF_16LE));
+    }
+
+    public void testRejectsEmptyMarker() {
+        try {
+            new MarkerPrefilter("password", "");
+            fail("An empty marker was accepted");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Empty marker", e.getMessage());
+        }
+    }
+
+    public void testMatchesMarkerAcrossBufferBoundary() throws IOException {
+        // The buffer of a file is 64 KiB, so the marker is split between the first and the second read.
+        char[] padding = new char[64 * 1024 - 4];
+        Arrays.fill(padding, ' ');
+        File file = File.createTempFile("prefilter", ".xml");
+        try {
+            Files.write(file.toPath(), (new String(padding) + "password").getBytes(StandardCharsets.UTF_8));
+            assertTrue(prefilter.matches(file));
+
+            Files.write(file.toPath(), (new String(padding) + "passwor").getBytes(StandardCharsets.UTF_8));
+            assertFalse(new MarkerPrefilter("password").matches(file));
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    private boolean matches(String content, Charset charset) {
+        return prefilter.matches(toBuffer(content, charset));
+    }
+
+    private static ByteBuffer toBuffer(String content, Charset charset) {
+        return ByteBuffer.wrap(content.getBytes(charset));
+    }
+}
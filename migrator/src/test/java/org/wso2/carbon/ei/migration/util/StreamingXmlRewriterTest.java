@@ -0,0 +1,137 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.util;
+
+import junit.framework.TestCase;
+import org.wso2.carbon.ei.migration.service.crypto.CipherEngine;
+import org.wso2.carbon.ei.migration.service.crypto.FakeCryptoProvider;
+import org.wso2.carbon.ei.migration.service.crypto.ReEncryptionCache;
+import org.wso2.carbon.ei.migration.service.metrics.MigrationMetrics.ResourceType;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class StreamingXmlRewriterTest extends TestCase {
+
+    private static final String OLD = FakeCryptoProvider.legacy("secret");
+    private static final String NEW = FakeCryptoProvider.migrated("secret");
+
+    private final StreamingXmlRewriter rewriter = new StreamingXmlRewriter(
+            TargetRule.parse("/*/*[@name='password']/text()"), TargetRule.parse("/*/*[@secure='true']/@password"));
+
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        CipherEngine.getInstance().setProvider(new FakeCryptoProvider());
+        ReEncryptionCache.getInstance().reset();
+        file = File.createTempFile("rewriter", ".xml");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        System.clearProperty(Constant.SPLICE_ENABLED);
+        CipherEngine.getInstance().setProvider(null);
+        Files.deleteIfExists(file.toPath());
+    }
+
+    public void testSplicesTextAndAttributeValues() throws Exception {
+        String document = "<?xml version='1.0'?>\r\n<!-- store -->\n<Store  a = 'x'>\n"
+                + "  <Property name=\"password\">" + OLD + "</Property>\n"
+                + "  <Service secure='true' password='" + OLD + "'/>\n</Store>\n";
+
+        assertTrue(rewrite(document));
+        assertEquals(document.replace(OLD, NEW), read());
+    }
+
+    public void testKeepsDocumentWithoutLegacyValues() throws Exception {
+        String document = "<Store><Property name=\"password\">" + NEW + "</Property></Store>";
+
+        assertFalse(rewrite(document));
+        assertEquals(document, read());
+    }
+
+    public void testSplicesCDataValue() throws Exception {
+        String document = "<Store><Property name=\"password\"><![CDATA[" + OLD + "]]></Property></Store>";
+
+        assertTrue(rewrite(document));
+        assertEquals(document.replace(OLD, NEW), read());
+    }
+
+    public void testWritesCDataValueAsCDataWithoutSplice() throws Exception {
+        System.setProperty(Constant.SPLICE_ENABLED, "false");
+        String document = "<Store><Property name=\"password\"><![CDATA[" + OLD + "]]></Property></Store>";
+
+        assertTrue(rewrite(document));
+        assertTrue(read().contains("<Property name=\"password\"><![CDATA[" + NEW + "]]></Property>"));
+    }
+
+    public void testKeepsCommentWithinValueElement() throws Exception {
+        System.setProperty(Constant.SPLICE_ENABLED, "false");
+        String document = "<Store><Property name=\"password\"><!-- old -->" + OLD + "</Property></Store>";
+
+        assertTrue(rewrite(document));
+        assertTrue(read().contains("<Property name=\"password\"><!-- old -->" + NEW + "</Property>"));
+    }
+
+    public void testSkipsValueElementWithChildElements() throws Exception {
+        System.setProperty(Constant.SPLICE_ENABLED, "false");
+        String document = "<Store><Property name=\"password\">" + OLD + "<Value>" + OLD + "</Value></Property></Store>";
+
+        assertEquals(Collections.emptyList(), rewriter.scan(new ByteArrayInputStream(bytes(document))));
+        assertFalse(rewrite(document));
+        assertEquals(document, read());
+    }
+
+    public void testRewritesDocumentInAsciiIncompatibleCharset() throws Exception {
+        String document = "<?xml version=\"1.0\" encoding=\"UTF-16\"?><Store>"
+                + "<Property name=\"password\">" + OLD + "</Property><Name>été</Name></Store>";
+        Files.write(file.toPath(), document.getBytes(StandardCharsets.UTF_16));
+
+        assertTrue(rewriter.rewrite(file, ResourceType.FILE));
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_16);
+        assertTrue(content.contains("<Property name=\"password\">" + NEW + "</Property>"));
+        assertTrue(content.contains("<Name>été</Name>"));
+    }
+
+    public void testRewritesFromEventsWhenValueOccursOutsideTheRules() throws Exception {
+        String document = "<Store><Property name=\"password\">" + OLD + "</Property>"
+                + "<Property name=\"backup\">" + OLD + "</Property></Store>";
+
+        assertEquals(Arrays.asList(OLD), rewriter.scan(new ByteArrayInputStream(bytes(document))));
+        assertTrue(rewrite(document));
+        String content = read().replaceFirst("<\\?xml.*?\\?>", "");
+        assertEquals("<Store><Property name=\"password\">" + NEW + "</Property>"
+                + "<Property name=\"backup\">" + OLD + "</Property></Store>", content);
+    }
+
+    private boolean rewrite(String document) throws Exception {
+        Files.write(file.toPath(), bytes(document));
+        return rewriter.rewrite(file, ResourceType.FILE);
+    }
+
+    private String read() throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String document) {
+        return document.getBytes(StandardCharsets.UTF_8);
+    }
+}
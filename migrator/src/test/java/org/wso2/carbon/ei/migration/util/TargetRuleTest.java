@@ -0,0 +1,115 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.util;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+public class TargetRuleTest extends TestCase {
+
+    private static final String USER_STORE = "<UserStoreManager class='x'>"
+            + "<Property name='password'>a</Property>"
+            + "<Property name='ConnectionPassword'>b</Property>"
+            + "<Other name='password'>c</Other>"
+            + "<Property name='url'>d</Property>"
+            + "<Nested><Property name='password'>e</Property></Nested>"
+            + "</UserStoreManager>";
+
+    public void testParsesPathAndValue() {
+        TargetRule text = TargetRule.parse("/*/Property[@name='password']/text()");
+        assertEquals(2, text.getSteps().size());
+        assertNull(text.getAttribute());
+        assertEquals("", text.getPrefix());
+
+        TargetRule attribute = TargetRule.parse("/*//*[@secure]/@password", "enc:");
+        assertEquals(2, attribute.getSteps().size());
+        assertTrue(attribute.getSteps().get(1).isDescendant());
+        assertEquals("password", attribute.getAttribute());
+        assertEquals("enc:", attribute.getPrefix());
+    }
+
+    public void testRejectsInvalidExpressions() {
+        for (String expression : new String[]{"", "Property/text()", "/*", "/*/text()/x", "/*//text()",
+                "/*[name]/text()", "/*[@name='x/text()", "/*[@name=x]/text()", "/ns:a/text()", "/*/@"}) {
+            try {
+                TargetRule.parse(expression);
+                fail("Expression " + expression + " was parsed");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains(expression));
+            }
+        }
+    }
+
+    public void testMarkerIsLongestLiteral() {
+        assertEquals("ConnectionPassword",
+                TargetRule.parse("/*/Property[@name='ConnectionPassword']/text()").getMarker());
+        assertEquals("remoteServicePassword", TargetRule.parse("/*//*/@remoteServicePassword").getMarker());
+        assertNull(TargetRule.parse("/*/*/text()").getMarker());
+    }
+
+    public void testSelectsPropertyElementsOnly() throws Exception {
+        List<String> selected = select(USER_STORE, TargetRule.parse("/*/Property[@name='password']/text()"),
+                TargetRule.parse("/*/Property[@name='ConnectionPassword']/text()"));
+
+        assertEquals(Arrays.asList("a", "b"), selected);
+    }
+
+    public void testDescendantStepSelectsAtAnyDepth() throws Exception {
+        List<String> selected = select(USER_STORE, TargetRule.parse("/*//Property[@name='password']/text()"));
+
+        assertEquals(Arrays.asList("a", "e"), selected);
+    }
+
+    public void testAttributeRuleRequiresAttributeWithPrefix() throws Exception {
+        String document = "<a><b p='enc:x'/><b p='y'/><b/></a>";
+
+        List<String> selected = select(document, TargetRule.parse("/*/b/@p", "enc:"));
+
+        assertEquals(Arrays.asList("enc:x"), selected);
+    }
+
+    /**
+     * @return text or attribute values of the elements selected by the rules, in document order
+     */
+    private static List<String> select(String document, TargetRule... rules) throws Exception {
+        TargetMatcher.Walker walker = new TargetMatcher(Arrays.asList(rules)).newWalker();
+        XMLStreamReader reader = XmlIOService.getInstance().createXMLStreamReader(
+                new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)));
+        List<String> selected = new ArrayList<>();
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                TargetRule rule = walker.startElement(reader);
+                if (rule != null) {
+                    selected.add(rule.getAttribute() != null ? TargetRule.getAttributeValue(reader,
+                            rule.getAttribute()) : reader.getElementText());
+                    walker.endElement();
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                walker.endElement();
+            }
+        }
+        reader.close();
+        return selected;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+* Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.wso2.carbon.ei.migration.util;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+public class XmlIOServiceTest extends TestCase {
+
+    private static final String EXTERNAL_ENTITY = "<!DOCTYPE r [<!ENTITY e SYSTEM 'file:///etc/hosts'>]><r>&e;</r>";
+    private static final String INTERNAL_ENTITY = "<!DOCTYPE r [<!ENTITY e 'x'>]><r>&e;</r>";
+
+    public void testReadersDoNotResolveEntities() {
+        for (String document : new String[]{EXTERNAL_ENTITY, INTERNAL_ENTITY}) {
+            assertNotReadable(document, false);
+            assertNotReadable(document, true);
+        }
+    }
+
+    public void testCopyingReaderReportsDoctypeAndCData() throws Exception {
+        XMLStreamReader reader = createReader("<!DOCTYPE r [<!ELEMENT r ANY>]><r><![CDATA[a]]></r>", true);
+
+        assertEquals(XMLStreamConstants.DTD, reader.next());
+        assertEquals("<!DOCTYPE r [<!ELEMENT r ANY>]>", reader.getText());
+        assertEquals(XMLStreamConstants.START_ELEMENT, reader.next());
+        assertEquals(XMLStreamConstants.CDATA, reader.next());
+        assertEquals("a", reader.getText());
+        reader.close();
+    }
+
+    private static void assertNotReadable(String document, boolean isCopying) {
+        try {
+            XMLStreamReader reader = createReader(document, isCopying);
+            while (reader.hasNext()) {
+                reader.next();
+            }
+            fail("Entity of " + document + " was resolved");
+        } catch (XMLStreamException e) {
+            // Expected, the entity is not declared as the DTD is not processed.
+        }
+    }
+
+    private static XMLStreamReader createReader(String document, boolean isCopying) throws XMLStreamException {
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8));
+        return isCopying ? XmlIOService.getInstance().createCopyingXMLStreamReader(inputStream)
+                : XmlIOService.getInstance().createXMLStreamReader(inputStream);
+    }
+}